@@ -1,5 +1,6 @@
 package com.rise.autotest.robot.db;
 
+import com.rise.autotest.robot.util.SessionNamespace;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NonNull;
@@ -15,7 +16,8 @@ import java.util.UUID;
 
 public class ConnectionManager {
 
-    private static ConnectionManager connectionManager;
+    private static final SessionNamespace.PerNamespace<ConnectionManager> connectionManagers =
+            SessionNamespace.perNamespace(ConnectionManager::new);
     private Map<UUID, ConnectionTuple> sessionIdConnectionMap = new HashMap<>();
     private Deque<UUID> sessionIdStack = new ArrayDeque<>();
 
@@ -25,18 +27,24 @@ public class ConnectionManager {
     private ConnectionManager() { }
 
     /**
-     * initialize the instance of this class to be singleton
-     * @return this instance {@code connectionManager}
+     * Returns the instance of the current session namespace, see {@link SessionNamespace}.
+     * There is a single instance when the library is used by robot directly.
+     * @return this instance {@code ConnectionManager}
      */
-    public static synchronized ConnectionManager instance() {
-        if(connectionManager == null) {
-            synchronized (ConnectionManager.class) {
-                if(connectionManager == null) {
-                    connectionManager = new ConnectionManager();
-                }
-            }
+    public static ConnectionManager instance() {
+        return connectionManagers.get();
+    }
+
+    /**
+     * Closes the connections of the current session namespace and forgets its instance, see {@link SessionNamespace}.
+     * The next {@link #instance()} of the namespace is a new one.
+     * @throws SQLException failure to close a connection.
+     */
+    public static void closeNamespace() throws SQLException {
+        ConnectionManager connectionManager = connectionManagers.remove();
+        if(connectionManager != null) {
+            connectionManager.cleanup();
         }
-        return connectionManager;
     }
 
     public synchronized String register(Connection connection, String alias) {
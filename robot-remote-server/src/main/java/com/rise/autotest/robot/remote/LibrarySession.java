@@ -0,0 +1,164 @@
+package com.rise.autotest.robot.remote;
+
+import com.rise.autotest.robot.CustomAnnotationLibrary;
+import com.rise.autotest.robot.util.SessionNamespace;
+import lombok.Getter;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * A library instance serving the clients of one session namespace.<br>
+ * <br>
+ * The library is created and its keywords are run on a thread dedicated to the namespace, so the keywords see the
+ * browsers and connections of their own namespace only (see {@link SessionNamespace}), and keywords of the same
+ * namespace never run concurrently, like in a local robot run.<br>
+ * <br>
+ * The requests {@link #acquire()} the session while they use it, a session is only retired when no request uses it.
+ * A retired session cannot be acquired any more, the next request of the namespace gets a new session.
+ */
+class LibrarySession {
+
+    @Getter
+    private final String namespace;
+    private final ExecutorService executor;
+    private final CustomAnnotationLibrary library;
+    private int users;
+    private long lastUsed = System.currentTimeMillis();
+    private boolean retired;
+
+    /**
+     * Constructor. Creates the library on the namespace thread.
+     *
+     * @param libraryName   library name, used for the thread name
+     * @param namespace session namespace
+     * @param libraryFactory    creates the library instance
+     */
+    LibrarySession(String libraryName, String namespace, Supplier<? extends CustomAnnotationLibrary> libraryFactory) {
+        this.namespace = namespace;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(() -> {
+                SessionNamespace.set(namespace);
+                runnable.run();
+            }, String.format("remote-%s-%s", libraryName, namespace));
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.library = call(libraryFactory::get);
+    }
+
+    /**
+     * Marks the session as used by a request, until {@link #release()}.
+     *
+     * @return  false if the session is retired, the request needs a new one.
+     */
+    synchronized boolean acquire() {
+        if (retired) {
+            return false;
+        }
+        users++;
+        return true;
+    }
+
+    /**
+     * Ends a use of the session started by {@link #acquire()}.
+     */
+    synchronized void release() {
+        users--;
+        lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Retires the session if no request used it for <b>idleMillis</b>. The caller then closes it.
+     *
+     * @param idleMillis    how long the session must have been unused, 0 to retire it whenever no request uses it
+     * @return  true if the session was retired by this call.
+     */
+    synchronized boolean retire(long idleMillis) {
+        if (retired || users > 0 || System.currentTimeMillis() - lastUsed < idleMillis) {
+            return false;
+        }
+        retired = true;
+        return true;
+    }
+
+    /**
+     * Retires the session, even if requests are using it: they complete first, as {@link #close(Runnable)} runs after
+     * them on the namespace thread. The caller then closes it.
+     *
+     * @return  true if the session was retired by this call.
+     */
+    synchronized boolean retire() {
+        if (retired) {
+            return false;
+        }
+        retired = true;
+        return true;
+    }
+
+    /**
+     * Runs the <b>action</b> with the library, on the namespace thread. Waits for the keywords running for other
+     * clients of the same namespace.
+     *
+     * @param action    the action to run
+     * @param <T>   result type
+     * @return  the result of the action
+     */
+    <T> T call(LibraryAction<T> action) {
+        return call(() -> action.apply(library));
+    }
+
+    /**
+     * Runs the <b>cleanup</b> on the namespace thread, then closes the library.
+     *
+     * @param cleanup   releases the resources of the namespace, e.g. quits the browsers.
+     */
+    void close(Runnable cleanup) {
+        try {
+            call(() -> {
+                try {
+                    cleanup.run();
+                } finally {
+                    library.close();
+                }
+                return null;
+            });
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private <T> T call(Callable<T> callable) {
+        Future<T> future = executor.submit(callable);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for namespace " + namespace, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Action on the library of the session.
+     *
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    interface LibraryAction<T> {
+        T apply(CustomAnnotationLibrary library) throws Exception;
+    }
+}
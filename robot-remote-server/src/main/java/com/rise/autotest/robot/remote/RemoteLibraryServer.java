@@ -0,0 +1,415 @@
+package com.rise.autotest.robot.remote;
+
+import com.rise.autotest.robot.CustomAnnotationLibrary;
+import com.rise.autotest.robot.db.ConnectionManager;
+import com.rise.autotest.robot.db.DatabaseLibrary;
+import com.rise.autotest.robot.selenium.SeleniumLibrary;
+import com.rise.autotest.robot.selenium.WebDriverManager;
+import com.rise.autotest.robot.util.RobotLogger;
+import com.rise.autotest.robot.util.SessionNamespace;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.AllArgsConstructor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Serves the libraries over the robot remote library protocol (XML-RPC), so that a single warm JVM can serve many
+ * robot runs.<br>
+ * <br>
+ * The libraries are reached at <b>http://host:port/&lt;library&gt;/&lt;namespace&gt;</b>, e.g.
+ * <pre>
+ * Library    Remote    http://127.0.0.1:8270/SeleniumLibrary/build-42    WITH NAME    SeleniumLibrary
+ * </pre>
+ * Each namespace gets its own library instance and its own browsers and connections. Clients using different
+ * namespaces run concurrently. The namespace is optional, clients without one share the 'default' namespace.<br>
+ * <br>
+ * A namespace is closed, quitting its browsers and closing its connections, by the keyword 'Close Namespace' that
+ * every served library has, e.g. in the suite teardown of the client, or once none of its libraries was used for
+ * the idle timeout, 'robot.remote.namespace.idle' seconds (30 minutes by default, 0 to never close idle namespaces).
+ */
+public class RemoteLibraryServer {
+
+    public static final int DEFAULT_PORT = 8270;
+    public static final String DEFAULT_HOST = "127.0.0.1";
+
+    private static final int FAULT_INVALID_REQUEST = 1;
+    private static final int FAULT_UNKNOWN_METHOD = 2;
+    private static final int FAULT_SERVER_ERROR = 3;
+    private static final String CLOSE_NAMESPACE = "closeNamespace";
+    private static final long MAX_IDLE_CHECK_MILLIS = 60_000L;
+
+    private final Map<String, LibraryDefinition> libraries = new LinkedHashMap<>();
+    private final ConcurrentMap<String, LibrarySession> sessions = new ConcurrentHashMap<>();
+    private HttpServer httpServer;
+    private ExecutorService requestExecutor;
+    private ScheduledExecutorService idleExecutor;
+    private long idleTimeoutMillis = TimeUnit.SECONDS.toMillis(Long.getLong("robot.remote.namespace.idle", 1800L));
+
+    /**
+     * Adds a library to serve.
+     *
+     * @param name  library name, the first part of the path
+     * @param libraryFactory    creates a library instance, once per namespace
+     * @param cleanup   releases the resources of a namespace when the server stops, run on the namespace thread
+     * @return  this server
+     */
+    public RemoteLibraryServer addLibrary(String name, Supplier<? extends CustomAnnotationLibrary> libraryFactory,
+                                          Runnable cleanup) {
+        libraries.put(name, new LibraryDefinition(libraryFactory, cleanup));
+        return this;
+    }
+
+    /**
+     * Sets how long a namespace can stay unused before it is closed. Takes effect when the server starts.
+     *
+     * @param timeout   the idle timeout, 0 to never close idle namespaces
+     * @param unit  the unit of the timeout
+     * @return  this server
+     */
+    public RemoteLibraryServer setNamespaceIdleTimeout(long timeout, TimeUnit unit) {
+        this.idleTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Starts serving the libraries. Returns immediately.<br>
+     * <br>
+     * The server uses the robot logger until it is stopped, so that the python interpreters of the logger are kept
+     * when the libraries of a namespace are closed, see {@link RobotLogger#open()}.
+     *
+     * @param address   address to listen to, port 0 for any free port.
+     * @throws IOException if the server could not be started.
+     */
+    public synchronized void start(InetSocketAddress address) throws IOException {
+        if (httpServer != null) {
+            throw new IllegalStateException("Remote library server is already started");
+        }
+        requestExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "remote-library-request");
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpServer = HttpServer.create(address, 0);
+        httpServer.createContext("/", this::handle);
+        httpServer.setExecutor(requestExecutor);
+        httpServer.start();
+        RobotLogger.open();
+        if (idleTimeoutMillis > 0) {
+            long checkMillis = Math.max(10L, Math.min(idleTimeoutMillis / 2, MAX_IDLE_CHECK_MILLIS));
+            idleExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "remote-library-idle");
+                thread.setDaemon(true);
+                return thread;
+            });
+            idleExecutor.scheduleWithFixedDelay(this::closeIdleSessions, checkMillis, checkMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return  the port the server listens to.
+     */
+    public synchronized int getPort() {
+        if (httpServer == null) {
+            throw new IllegalStateException("Remote library server is not started");
+        }
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server and closes all the sessions, quitting their browsers and closing their connections.
+     */
+    public synchronized void stop() {
+        if (httpServer == null) {
+            return;
+        }
+        httpServer.stop(0);
+        requestExecutor.shutdown();
+        if (idleExecutor != null) {
+            idleExecutor.shutdownNow();
+            idleExecutor = null;
+        }
+        httpServer = null;
+        for (Map.Entry<String, LibrarySession> entry : sessions.entrySet()) {
+            if (entry.getValue().retire()) {
+                close(entry.getKey(), entry.getValue());
+            }
+        }
+        sessions.clear();
+        RobotLogger.close();
+    }
+
+    /**
+     * Closes the sessions of a namespace in all the libraries, quitting its browsers and closing its connections.
+     * The next request of the namespace starts new sessions.
+     *
+     * @param namespace the session namespace
+     * @return  the number of library sessions closed
+     */
+    public int closeNamespace(String namespace) {
+        int closed = 0;
+        for (Map.Entry<String, LibrarySession> entry : sessions.entrySet()) {
+            LibrarySession session = entry.getValue();
+            if (session.getNamespace().equals(namespace) && session.retire()) {
+                sessions.remove(entry.getKey(), session);
+                close(entry.getKey(), session);
+                closed++;
+            }
+        }
+        return closed;
+    }
+
+    private void closeIdleSessions() {
+        for (Map.Entry<String, LibrarySession> entry : sessions.entrySet()) {
+            LibrarySession session = entry.getValue();
+            if (session.retire(idleTimeoutMillis)) {
+                sessions.remove(entry.getKey(), session);
+                close(entry.getKey(), session);
+            }
+        }
+    }
+
+    private void close(String key, LibrarySession session) {
+        String libraryName = key.substring(0, key.indexOf('/'));
+        try {
+            session.close(libraries.get(libraryName).cleanup);
+        } catch (RuntimeException e) {
+            //ignore, close the other sessions
+        }
+    }
+
+    /**
+     * Starts the server with SeleniumLibrary and DatabaseLibrary.<br>
+     * <br>
+     * Arguments: [--host &lt;host&gt;] [--port &lt;port&gt;], by default 127.0.0.1 and 8270.
+     *
+     * @param args  command line arguments
+     * @throws IOException if the server could not be started.
+     */
+    public static void main(String[] args) throws IOException {
+        String host = DEFAULT_HOST;
+        int port = DEFAULT_PORT;
+        for (int i = 0; i < args.length - 1; i += 2) {
+            if ("--host".equals(args[i])) {
+                host = args[i + 1];
+            } else if ("--port".equals(args[i])) {
+                port = Integer.parseInt(args[i + 1]);
+            } else {
+                throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+        RemoteLibraryServer server = new RemoteLibraryServer()
+                .addLibrary("SeleniumLibrary", SeleniumLibrary::new, WebDriverManager::closeNamespace)
+                .addLibrary("DatabaseLibrary", DatabaseLibrary::new, RemoteLibraryServer::closeConnections);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "remote-library-shutdown"));
+        server.start(new InetSocketAddress(host, port));
+        System.out.println(String.format("Remote library server listening on %s:%d, libraries %s",
+                host, server.getPort(), server.libraries.keySet()));
+    }
+
+    private static void closeConnections() {
+        try {
+            ConnectionManager.closeNamespace();
+        } catch (SQLException e) {
+            //ignore, the namespace is closed
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                send(exchange, 405, "Only XML-RPC POST requests are supported");
+                return;
+            }
+            String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/+", 2);
+            String libraryName = URLDecoder.decode(path[0], "UTF-8");
+            LibraryDefinition definition = libraries.get(libraryName);
+            if (definition == null) {
+                send(exchange, 404, String.format("No library '%s', served libraries are %s",
+                        libraryName, libraries.keySet()));
+                return;
+            }
+            String namespace = path.length > 1 ? URLDecoder.decode(path[1], "UTF-8") : SessionNamespace.DEFAULT;
+
+            String response;
+            try {
+                XmlRpc.Call call = XmlRpc.parseCall(exchange.getRequestBody());
+                LibrarySession session = acquire(libraryName, namespace, definition);
+                try {
+                    response = dispatch(session, call);
+                } finally {
+                    session.release();
+                }
+            } catch (IOException e) {
+                response = XmlRpc.fault(FAULT_INVALID_REQUEST, e.getMessage());
+            } catch (RuntimeException e) {
+                response = XmlRpc.fault(FAULT_SERVER_ERROR, errorMessage(e));
+            }
+            send(exchange, 200, response);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // a new session when the one in the map was retired since
+    private LibrarySession acquire(String libraryName, String namespace, LibraryDefinition definition) {
+        String key = libraryName + "/" + namespace;
+        while (true) {
+            LibrarySession session = sessions.computeIfAbsent(key,
+                    k -> new LibrarySession(libraryName, namespace, definition.libraryFactory));
+            if (session.acquire()) {
+                return session;
+            }
+            sessions.remove(key, session);
+        }
+    }
+
+    private String dispatch(LibrarySession session, XmlRpc.Call call) {
+        List<Object> params = call.getParams();
+        switch (call.getMethodName()) {
+            case "get_keyword_names":
+                List<String> keywordNames = new ArrayList<>(Arrays.asList(
+                        session.call(CustomAnnotationLibrary::getKeywordNames)));
+                keywordNames.add(CLOSE_NAMESPACE);
+                return XmlRpc.response(keywordNames);
+            case "get_keyword_arguments":
+                if (CLOSE_NAMESPACE.equals(param(params, 0))) {
+                    return XmlRpc.response(new String[0]);
+                }
+                return XmlRpc.response(session.call(library -> library.getKeywordArguments(param(params, 0))));
+            case "get_keyword_documentation":
+                String keywordName = param(params, 0);
+                if (keywordName.startsWith("__")) {
+                    // __intro__ and __init__, the library has no such documentation
+                    return XmlRpc.response("");
+                }
+                if (CLOSE_NAMESPACE.equals(keywordName)) {
+                    return XmlRpc.response("Closes the namespace of this client in all the libraries of the server,"
+                            + " quitting its browsers and closing its connections.");
+                }
+                return XmlRpc.response(session.call(library -> library.getKeywordDocumentation(keywordName)));
+            case "run_keyword":
+                if (CLOSE_NAMESPACE.equals(param(params, 0))) {
+                    closeNamespace(session.getNamespace());
+                    Map<String, Object> result = new LinkedHashMap<>();
+                    result.put("status", "PASS");
+                    result.put("return", "");
+                    return XmlRpc.response(result);
+                }
+                return XmlRpc.response(session.call(library -> runKeyword(library, params)));
+            default:
+                return XmlRpc.fault(FAULT_UNKNOWN_METHOD, "Unknown method " + call.getMethodName());
+        }
+    }
+
+    private Map<String, Object> runKeyword(CustomAnnotationLibrary library, List<Object> params) {
+        String keywordName = param(params, 0);
+        List<Object> args = new ArrayList<>();
+        if (params.size() > 1 && params.get(1) instanceof List) {
+            args.addAll((List<?>) params.get(1));
+        }
+        if (params.size() > 2 && params.get(2) instanceof Map) {
+            // the libraries take named arguments as 'name=value', same as in a local run
+            for (Map.Entry<?, ?> kwarg : ((Map<?, ?>) params.get(2)).entrySet()) {
+                args.add(kwarg.getKey() + "=" + kwarg.getValue());
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        RobotLogger.startCapture();
+        try {
+            Object returnValue = library.runKeyword(keywordName, args.toArray());
+            result.put("status", "PASS");
+            result.put("return", returnValue);
+        } catch (Throwable e) {
+            // the library reports keyword failures as RuntimeException, the robot attributes are on the cause
+            Throwable failure = e;
+            while (failure.getClass() == RuntimeException.class && failure.getCause() != null) {
+                failure = failure.getCause();
+            }
+            result.put("status", "FAIL");
+            result.put("error", errorMessage(e));
+            result.put("traceback", traceback(e));
+            if (robotAttribute(failure, "ROBOT_EXIT_ON_FAILURE")) {
+                result.put("fatal", true);
+            }
+            if (robotAttribute(failure, "ROBOT_CONTINUE_ON_FAILURE")) {
+                result.put("continuable", true);
+            }
+        } finally {
+            result.put("output", RobotLogger.stopCapture());
+        }
+        return result;
+    }
+
+    private static String param(List<Object> params, int index) {
+        if (params.size() <= index) {
+            throw new IllegalArgumentException("Missing argument " + (index + 1));
+        }
+        return String.valueOf(params.get(index));
+    }
+
+    private static String errorMessage(Throwable e) {
+        String message = e.getMessage();
+        if (message == null || message.isEmpty()) {
+            return e.getClass().getSimpleName();
+        }
+        List<Class<?>> generic = Arrays.asList(Exception.class, RuntimeException.class, AssertionError.class,
+                Error.class);
+        return generic.contains(e.getClass()) || robotAttribute(e, "ROBOT_SUPPRESS_NAME")
+                ? message : e.getClass().getSimpleName() + ": " + message;
+    }
+
+    private static String traceback(Throwable e) {
+        StringWriter traceback = new StringWriter();
+        e.printStackTrace(new PrintWriter(traceback));
+        return traceback.toString();
+    }
+
+    private static boolean robotAttribute(Throwable e, String name) {
+        try {
+            Field field = e.getClass().getField(name);
+            return Modifier.isStatic(field.getModifiers()) && Boolean.TRUE.equals(field.get(null));
+        } catch (NoSuchFieldException | IllegalAccessException ex) {
+            return false;
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", status == 200 ? "text/xml; charset=UTF-8"
+                : "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    @AllArgsConstructor
+    private static class LibraryDefinition {
+        private final Supplier<? extends CustomAnnotationLibrary> libraryFactory;
+        private final Runnable cleanup;
+    }
+}
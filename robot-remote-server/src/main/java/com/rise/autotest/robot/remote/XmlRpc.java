@@ -0,0 +1,276 @@
+package com.rise.autotest.robot.remote;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal XML-RPC codec, covering what the robot remote library protocol uses.<br>
+ * <br>
+ * Values are read as String, Integer, Boolean, Double, byte[], List and Map. When writing, null is sent as an empty
+ * string and unknown types as their string value, like the robot remote servers do.
+ */
+final class XmlRpc {
+
+    private static final DocumentBuilderFactory factory = newDocumentBuilderFactory();
+
+    private XmlRpc() {
+
+    }
+
+    /**
+     * Parses an XML-RPC method call.
+     *
+     * @param input the request body
+     * @return  the parsed call
+     * @throws IOException if the request is not a valid method call.
+     */
+    static Call parseCall(InputStream input) throws IOException {
+        Document document;
+        try {
+            DocumentBuilder builder;
+            // the factory is not thread safe, the builders are used by one thread only
+            synchronized (factory) {
+                builder = factory.newDocumentBuilder();
+            }
+            document = builder.parse(input);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Invalid XML-RPC request: " + e.getMessage(), e);
+        }
+        Element root = document.getDocumentElement();
+        if (!"methodCall".equals(root.getTagName())) {
+            throw new IOException("Invalid XML-RPC request: expected methodCall, found " + root.getTagName());
+        }
+        Element methodName = child(root, "methodName");
+        if (methodName == null) {
+            throw new IOException("Invalid XML-RPC request: methodName is missing");
+        }
+        List<Object> params = new ArrayList<>();
+        Element paramsElement = child(root, "params");
+        if (paramsElement != null) {
+            for (Element param : children(paramsElement, "param")) {
+                params.add(parseValue(child(param, "value")));
+            }
+        }
+        return new Call(methodName.getTextContent().trim(), params);
+    }
+
+    /**
+     * @param value the value to return
+     * @return  the XML-RPC method response with the value.
+     */
+    static String response(Object value) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        xml.append("<methodResponse><params><param>");
+        writeValue(xml, value);
+        xml.append("</param></params></methodResponse>\n");
+        return xml.toString();
+    }
+
+    /**
+     * @param code  fault code
+     * @param message   fault message
+     * @return  the XML-RPC fault response.
+     */
+    static String fault(int code, String message) {
+        Map<String, Object> fault = new LinkedHashMap<>();
+        fault.put("faultCode", code);
+        fault.put("faultString", message);
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        xml.append("<methodResponse><fault>");
+        writeValue(xml, fault);
+        xml.append("</fault></methodResponse>\n");
+        return xml.toString();
+    }
+
+    private static Object parseValue(Element value) throws IOException {
+        if (value == null) {
+            throw new IOException("Invalid XML-RPC request: value is missing");
+        }
+        Element typed = firstChildElement(value);
+        if (typed == null) {
+            // no type means string
+            return value.getTextContent();
+        }
+        String text = typed.getTextContent();
+        switch (typed.getTagName()) {
+            case "string":
+            case "dateTime.iso8601":
+                return text;
+            case "int":
+            case "i4":
+                return Integer.valueOf(text.trim());
+            case "i8":
+                return Long.valueOf(text.trim());
+            case "boolean":
+                return "1".equals(text.trim());
+            case "double":
+                return Double.valueOf(text.trim());
+            case "base64":
+                return Base64.getMimeDecoder().decode(text.trim());
+            case "nil":
+                return null;
+            case "array":
+                List<Object> list = new ArrayList<>();
+                Element data = child(typed, "data");
+                if (data != null) {
+                    for (Element item : children(data, "value")) {
+                        list.add(parseValue(item));
+                    }
+                }
+                return list;
+            case "struct":
+                Map<String, Object> map = new LinkedHashMap<>();
+                for (Element member : children(typed, "member")) {
+                    Element name = child(member, "name");
+                    map.put(name == null ? "" : name.getTextContent(), parseValue(child(member, "value")));
+                }
+                return map;
+            default:
+                throw new IOException("Invalid XML-RPC request: unsupported type " + typed.getTagName());
+        }
+    }
+
+    private static void writeValue(StringBuilder xml, Object value) {
+        xml.append("<value>");
+        if (value == null) {
+            xml.append("<string></string>");
+        } else if (value instanceof Boolean) {
+            xml.append("<boolean>").append((Boolean) value ? '1' : '0').append("</boolean>");
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            xml.append("<int>").append(value).append("</int>");
+        } else if (value instanceof Long) {
+            long number = (Long) value;
+            if (number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE) {
+                xml.append("<int>").append(number).append("</int>");
+            } else {
+                // out of the XML-RPC int range, same as the python remote server
+                writeString(xml, String.valueOf(number));
+            }
+        } else if (value instanceof Double || value instanceof Float) {
+            xml.append("<double>").append(value).append("</double>");
+        } else if (value instanceof byte[]) {
+            xml.append("<base64>").append(Base64.getEncoder().encodeToString((byte[]) value)).append("</base64>");
+        } else if (value instanceof Map) {
+            xml.append("<struct>");
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                xml.append("<member><name>");
+                escape(xml, String.valueOf(entry.getKey()));
+                xml.append("</name>");
+                writeValue(xml, entry.getValue());
+                xml.append("</member>");
+            }
+            xml.append("</struct>");
+        } else if (value instanceof Collection) {
+            xml.append("<array><data>");
+            for (Object item : (Collection<?>) value) {
+                writeValue(xml, item);
+            }
+            xml.append("</data></array>");
+        } else if (value.getClass().isArray()) {
+            xml.append("<array><data>");
+            for (int i = 0; i < Array.getLength(value); i++) {
+                writeValue(xml, Array.get(value, i));
+            }
+            xml.append("</data></array>");
+        } else {
+            writeString(xml, String.valueOf(value));
+        }
+        xml.append("</value>");
+    }
+
+    private static void writeString(StringBuilder xml, String value) {
+        xml.append("<string>");
+        escape(xml, value);
+        xml.append("</string>");
+    }
+
+    private static void escape(StringBuilder xml, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    xml.append("&amp;");
+                    break;
+                case '<':
+                    xml.append("&lt;");
+                    break;
+                case '>':
+                    xml.append("&gt;");
+                    break;
+                case '\r':
+                    xml.append("&#13;");
+                    break;
+                default:
+                    // control characters are not allowed in XML 1.0
+                    if (c >= 0x20 || c == '\n' || c == '\t') {
+                        xml.append(c);
+                    }
+            }
+        }
+    }
+
+    private static Element child(Element parent, String tagName) {
+        List<Element> children = children(parent, tagName);
+        return children.isEmpty() ? null : children.get(0);
+    }
+
+    private static List<Element> children(Element parent, String tagName) {
+        List<Element> children = new ArrayList<>();
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element && tagName.equals(((Element) node).getTagName())) {
+                children.add((Element) node);
+            }
+        }
+        return children;
+    }
+
+    private static Element firstChildElement(Element parent) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element) {
+                return (Element) node;
+            }
+        }
+        return null;
+    }
+
+    private static DocumentBuilderFactory newDocumentBuilderFactory() {
+        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        try {
+            // requests never need a DTD, refuse them (XXE)
+            documentBuilderFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            documentBuilderFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+        documentBuilderFactory.setExpandEntityReferences(false);
+        return documentBuilderFactory;
+    }
+
+    /**
+     * An XML-RPC method call.
+     */
+    @Getter
+    @AllArgsConstructor
+    static class Call {
+        private final String methodName;
+        private final List<Object> params;
+    }
+}
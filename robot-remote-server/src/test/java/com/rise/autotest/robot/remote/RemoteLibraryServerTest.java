@@ -0,0 +1,175 @@
+package com.rise.autotest.robot.remote;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import com.rise.autotest.robot.CustomAnnotationLibrary;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RemoteLibraryServerTest {
+
+    private RemoteLibraryServer server;
+
+    @BeforeAll
+    void setup() throws IOException {
+        System.setProperty("robot.keyword.statistics", "false");
+        server = new RemoteLibraryServer().addLibrary("EchoLibrary", EchoLibrary::new, () -> { });
+        server.start(new InetSocketAddress("127.0.0.1", 0));
+    }
+
+    @AfterAll
+    void cleanup() {
+        server.stop();
+    }
+
+    @Test
+    void testGetKeywordNames_ShouldReturnLibraryKeywords() throws IOException {
+        String response = post("/EchoLibrary", call("get_keyword_names"));
+        assertThat(response).contains("<string>echo</string>", "<string>currentNamespace</string>",
+                "<string>closeNamespace</string>");
+    }
+
+    @Test
+    void testRunKeyword_WhenKeywordPasses_ShouldReturnValueAndOutput() throws IOException {
+        String response = post("/EchoLibrary", call("run_keyword", "echo", "hello"));
+        assertThat(response).contains("<name>status</name><value><string>PASS</string>",
+                "<name>return</name><value><string>hello</string>",
+                "<name>output</name><value><string>*INFO* hello\n</string>");
+    }
+
+    @Test
+    void testRunKeyword_WhenKeywordFails_ShouldReturnError() throws IOException {
+        String response = post("/EchoLibrary", call("run_keyword", "failWithMessage", "broken"));
+        assertThat(response).contains("<name>status</name><value><string>FAIL</string>",
+                "<name>error</name><value><string>broken</string>");
+        assertThat(response).doesNotContain("<name>fatal</name>");
+    }
+
+    @Test
+    void testRunKeyword_WithNamespaces_ShouldRunInOwnNamespace() throws IOException {
+        assertThat(post("/EchoLibrary/client-1", call("run_keyword", "currentNamespace")))
+                .contains("<name>return</name><value><string>client-1</string>");
+        assertThat(post("/EchoLibrary/client-2", call("run_keyword", "currentNamespace")))
+                .contains("<name>return</name><value><string>client-2</string>");
+        assertThat(post("/EchoLibrary", call("run_keyword", "currentNamespace")))
+                .contains("<name>return</name><value><string>default</string>");
+    }
+
+    @Test
+    void testRunKeyword_WhenKeywordFailsFatally_ShouldReturnFatal() throws IOException {
+        String response = post("/EchoLibrary", call("run_keyword", "failFatally", "stop"));
+        assertThat(response).contains("<name>status</name><value><string>FAIL</string>",
+                "<name>fatal</name><value><boolean>1</boolean>");
+    }
+
+    @Test
+    void testCloseNamespace_ShouldCloseSessionAndStartANewOne() throws IOException {
+        AtomicInteger libraries = new AtomicInteger();
+        AtomicInteger cleanups = new AtomicInteger();
+        RemoteLibraryServer namespaceServer = new RemoteLibraryServer().setNamespaceIdleTimeout(0, TimeUnit.SECONDS)
+                .addLibrary("EchoLibrary", () -> {
+                    libraries.incrementAndGet();
+                    return new EchoLibrary();
+                }, cleanups::incrementAndGet);
+        namespaceServer.start(new InetSocketAddress("127.0.0.1", 0));
+        try {
+            post(namespaceServer, "/EchoLibrary/client-1", call("run_keyword", "echo", "hello"));
+            post(namespaceServer, "/EchoLibrary/client-2", call("run_keyword", "echo", "hello"));
+
+            assertThat(post(namespaceServer, "/EchoLibrary/client-1", call("run_keyword", "closeNamespace")))
+                    .contains("<name>status</name><value><string>PASS</string>");
+            assertThat(cleanups.get()).isEqualTo(1);
+            assertThat(post(namespaceServer, "/EchoLibrary/client-1", call("run_keyword", "currentNamespace")))
+                    .contains("<name>return</name><value><string>client-1</string>");
+            assertThat(libraries.get()).isEqualTo(3);
+        } finally {
+            namespaceServer.stop();
+        }
+        assertThat(cleanups.get()).isEqualTo(3);
+    }
+
+    @Test
+    void testIdleNamespace_ShouldBeClosed() throws Exception {
+        AtomicInteger cleanups = new AtomicInteger();
+        RemoteLibraryServer idleServer = new RemoteLibraryServer().setNamespaceIdleTimeout(100, TimeUnit.MILLISECONDS)
+                .addLibrary("EchoLibrary", EchoLibrary::new, cleanups::incrementAndGet);
+        idleServer.start(new InetSocketAddress("127.0.0.1", 0));
+        try {
+            post(idleServer, "/EchoLibrary/client-1", call("run_keyword", "echo", "hello"));
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (cleanups.get() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertThat(cleanups.get()).isEqualTo(1);
+            assertThat(post(idleServer, "/EchoLibrary/client-1", call("run_keyword", "echo", "again")))
+                    .contains("<name>return</name><value><string>again</string>");
+        } finally {
+            idleServer.stop();
+        }
+    }
+
+    @Test
+    void testUnknownMethod_ShouldReturnFault() throws IOException {
+        assertThat(post("/EchoLibrary", call("get_keyword_types", "echo")))
+                .contains("<fault>", "Unknown method get_keyword_types");
+    }
+
+    private String post(String path, String body) throws IOException {
+        return post(server, path, body);
+    }
+
+    private static String post(RemoteLibraryServer server, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(
+                "http://127.0.0.1:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "text/xml");
+        try (OutputStream output = connection.getOutputStream()) {
+            output.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        try (InputStream input = connection.getInputStream()) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                response.write(buffer, 0, read);
+            }
+        }
+        return new String(response.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String call(String methodName, String... params) {
+        StringBuilder xml = new StringBuilder("<?xml version='1.0'?><methodCall><methodName>")
+                .append(methodName).append("</methodName><params>");
+        if (params.length > 0) {
+            xml.append("<param><value><string>").append(params[0]).append("</string></value></param>");
+            xml.append("<param><value><array><data>");
+            for (int i = 1; i < params.length; i++) {
+                xml.append("<value><string>").append(params[i]).append("</string></value>");
+            }
+            xml.append("</data></array></value></param>");
+        }
+        return xml.append("</params></methodCall>").toString();
+    }
+
+    public static class EchoLibrary extends CustomAnnotationLibrary {
+        public EchoLibrary() {
+            super("com/rise/autotest/robot/remote/keywords/**/*.class", "EchoLibrary.robodoc");
+        }
+    }
+}
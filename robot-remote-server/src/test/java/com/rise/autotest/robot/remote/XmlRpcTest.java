@@ -0,0 +1,99 @@
+package com.rise.autotest.robot.remote;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class XmlRpcTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testParseCall_WithTypedValues_ShouldReturnJavaValues() throws IOException {
+        XmlRpc.Call call = XmlRpc.parseCall(xml("<?xml version='1.0'?><methodCall>"
+                + "<methodName>run_keyword</methodName><params>"
+                + "<param><value><string>openBrowser</string></value></param>"
+                + "<param><value><array><data><value>untyped</value><value><int>42</int></value>"
+                + "<value><boolean>1</boolean></value></data></array></value></param>"
+                + "<param><value><struct><member><name>alias</name><value><string>main</string></value></member>"
+                + "</struct></value></param>"
+                + "</params></methodCall>"));
+
+        assertThat(call.getMethodName()).isEqualTo("run_keyword");
+        assertThat(call.getParams()).hasSize(3);
+        assertThat(call.getParams().get(0)).isEqualTo("openBrowser");
+        assertThat((List<?>) call.getParams().get(1)).containsExactly("untyped", 42, true);
+        assertThat((Map<String, Object>) call.getParams().get(2)).containsEntry("alias", "main");
+    }
+
+    @Test
+    void testParseCall_WithoutParams_ShouldReturnEmptyParams() throws IOException {
+        XmlRpc.Call call = XmlRpc.parseCall(xml("<methodCall><methodName>get_keyword_names</methodName>"
+                + "</methodCall>"));
+
+        assertThat(call.getMethodName()).isEqualTo("get_keyword_names");
+        assertThat(call.getParams()).isEmpty();
+    }
+
+    @Test
+    void testParseCall_WithDoctype_ShouldThrowIOException() {
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> XmlRpc.parseCall(xml("<?xml version='1.0'?><!DOCTYPE methodCall "
+                        + "[<!ENTITY x SYSTEM 'file:///etc/passwd'>]><methodCall><methodName>&x;</methodName>"
+                        + "</methodCall>")))
+                .withMessageStartingWith("Invalid XML-RPC request");
+    }
+
+    @Test
+    void testParseCall_WhenNotMethodCall_ShouldThrowIOException() {
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> XmlRpc.parseCall(xml("<methodResponse/>")))
+                .withMessage("Invalid XML-RPC request: expected methodCall, found methodResponse");
+    }
+
+    @Test
+    void testResponse_WithNestedValues_ShouldWriteXmlRpcTypes() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", "PASS");
+        result.put("return", Arrays.asList(1, 3_000_000_000L, 1.5, false, null));
+        result.put("output", "*INFO* <a> & b");
+
+        assertThat(XmlRpc.response(result)).contains("<methodResponse><params><param><value><struct>"
+                + "<member><name>status</name><value><string>PASS</string></value></member>"
+                + "<member><name>return</name><value><array><data>"
+                + "<value><int>1</int></value><value><string>3000000000</string></value>"
+                + "<value><double>1.5</double></value><value><boolean>0</boolean></value>"
+                + "<value><string></string></value></data></array></value></member>"
+                + "<member><name>output</name><value><string>*INFO* &lt;a&gt; &amp; b</string></value></member>"
+                + "</struct></value></param></params></methodResponse>");
+    }
+
+    @Test
+    void testResponse_WithArray_ShouldWriteXmlRpcArray() {
+        assertThat(XmlRpc.response(new String[] { "a", "b" }))
+                .contains("<value><array><data><value><string>a</string></value>"
+                        + "<value><string>b</string></value></data></array></value>");
+        assertThat(XmlRpc.response(Collections.emptyList())).contains("<value><array><data></data></array></value>");
+    }
+
+    @Test
+    void testFault_ShouldWriteFaultStruct() {
+        assertThat(XmlRpc.fault(2, "Unknown method x")).contains("<methodResponse><fault><value><struct>"
+                + "<member><name>faultCode</name><value><int>2</int></value></member>"
+                + "<member><name>faultString</name><value><string>Unknown method x</string></value></member>"
+                + "</struct></value></fault></methodResponse>");
+    }
+
+    private static InputStream xml(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,35 @@
+package com.rise.autotest.robot.remote.keywords;
+
+import com.rise.autotest.robot.FailureException;
+import com.rise.autotest.robot.FatalException;
+import com.rise.autotest.robot.util.RobotLogger;
+import com.rise.autotest.robot.util.SessionNamespace;
+import org.robotframework.javalib.annotation.ArgumentNames;
+import org.robotframework.javalib.annotation.RobotKeyword;
+import org.robotframework.javalib.annotation.RobotKeywords;
+
+@RobotKeywords
+public class EchoKeywords {
+
+    @RobotKeyword
+    @ArgumentNames({"message"})
+    public String echo(String message) {
+        RobotLogger.info(message);
+        return message;
+    }
+
+    @RobotKeyword
+    public String currentNamespace() {
+        return SessionNamespace.current();
+    }
+
+    @RobotKeyword
+    public void failWithMessage(String message) {
+        throw new FailureException(message);
+    }
+
+    @RobotKeyword
+    public void failFatally(String message) {
+        throw new FatalException(message);
+    }
+}
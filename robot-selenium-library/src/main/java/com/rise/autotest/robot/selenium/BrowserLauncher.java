@@ -0,0 +1,186 @@
+package com.rise.autotest.robot.selenium;
+
+import com.rise.autotest.robot.FailureException;
+import com.rise.autotest.robot.selenium.util.FastProfile;
+import com.rise.autotest.robot.util.SessionNamespace;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.openqa.selenium.WebDriver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Opens several browsers concurrently.<br>
+ * <br>
+ * The drivers are built and navigated to their url on background threads, so the total time is about the time of the
+ * slowest browser instead of the sum of all. Either all the browsers are opened or none: when one fails, the ones
+ * that did start are released again. A single browser can also be opened in the background, while the test goes on,
+ * see {@link #launchAsync(BrowserSpec)}.
+ */
+public class BrowserLauncher {
+
+    private static final String BROWSER_PREFIX = "browser=";
+    private static final String ALIAS_PREFIX = "alias=";
+    private static final String CAPABILITIES_PREFIX = "capabilities=";
+
+    private static final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "browser-launcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final BiFunction<BrowserType, String, WebDriver> driverFactory;
+    private final Consumer<WebDriver> driverRelease;
+
+    /**
+     * Constructor.
+     * @param driverFactory builds a driver for a browser type and capabilities json
+     * @param driverRelease releases a driver that is not used after all
+     */
+    public BrowserLauncher(BiFunction<BrowserType, String, WebDriver> driverFactory,
+                           Consumer<WebDriver> driverRelease) {
+        this.driverFactory = driverFactory;
+        this.driverRelease = driverRelease;
+    }
+
+    /**
+     * Parses the browsers from keyword arguments: each url starts a new browser, optionally followed by
+     * 'browser=&lt;name&gt;', 'alias=&lt;alias&gt;' and 'capabilities=&lt;json&gt;' for that browser.
+     *
+     * @param args  keyword arguments
+     * @param defaultBrowserName    browser name when not given
+     * @return  the browsers, in order
+     */
+    public static List<BrowserSpec> parse(String[] args, String defaultBrowserName) {
+        List<BrowserSpec> specs = new ArrayList<>();
+        BrowserSpec spec = null;
+        for (String arg : args) {
+            if (arg.startsWith(BROWSER_PREFIX) || arg.startsWith(ALIAS_PREFIX) || arg.startsWith(CAPABILITIES_PREFIX)) {
+                if (spec == null) {
+                    throw new FailureException(String.format("'%s' should follow the url of a browser", arg));
+                }
+                String value = arg.substring(arg.indexOf('=') + 1);
+                if (arg.startsWith(BROWSER_PREFIX)) {
+                    spec.browserName = value;
+                } else if (arg.startsWith(ALIAS_PREFIX)) {
+                    spec.alias = value;
+                } else {
+                    spec.capabilitiesJson = value;
+                }
+            } else {
+                spec = new BrowserSpec(arg, defaultBrowserName, null, null);
+                specs.add(spec);
+            }
+        }
+        if (specs.isEmpty()) {
+            throw new FailureException("At least one browser url is required");
+        }
+        return specs;
+    }
+
+    /**
+     * Builds the drivers and navigates them to their url, concurrently.
+     *
+     * @param specs the browsers to open
+     * @return  the drivers, in the order of the <b>specs</b>
+     * @throws FailureException if a browser could not be opened, after releasing the ones that were opened.
+     */
+    public List<WebDriver> launch(List<BrowserSpec> specs) {
+        List<Future<WebDriver>> futures = new ArrayList<>();
+        for (BrowserSpec spec : specs) {
+            futures.add(executor.submit(task(spec)));
+        }
+
+        List<WebDriver> webDrivers = new ArrayList<>();
+        List<String> failures = new ArrayList<>();
+        boolean interrupted = false;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                webDrivers.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                failures.add(String.format("%s: %s", specs.get(i).describe(), e.getCause().getMessage()));
+            } catch (InterruptedException e) {
+                // keep waiting, the started browsers must be released
+                interrupted = true;
+                i--;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!failures.isEmpty()) {
+            webDrivers.forEach(this::releaseQuietly);
+            throw new FailureException(String.format("Unable to open %d of %d browsers. %s",
+                    failures.size(), specs.size(), String.join("; ", failures)));
+        }
+        return webDrivers;
+    }
+
+    /**
+     * Builds the driver and navigates it to its url in the background.
+     *
+     * @param spec  the browser to open
+     * @return  the driver, once opened. Fails with the cause if the browser could not be opened.
+     */
+    public Future<WebDriver> launchAsync(BrowserSpec spec) {
+        return executor.submit(task(spec));
+    }
+
+    // opens the browser in the session namespace of the caller, e.g. for the pool to key the session by it
+    private Callable<WebDriver> task(BrowserSpec spec) {
+        String namespace = SessionNamespace.current();
+        return () -> {
+            SessionNamespace.set(namespace);
+            try {
+                return open(spec);
+            } finally {
+                SessionNamespace.set(null);
+            }
+        };
+    }
+
+    private WebDriver open(BrowserSpec spec) {
+        WebDriver webDriver = driverFactory.apply(BrowserType.fromName(spec.browserName), spec.capabilitiesJson);
+        try {
+            webDriver.get(spec.url);
+            FastProfile.afterNavigation(webDriver);
+        } catch (RuntimeException e) {
+            releaseQuietly(webDriver);
+            throw e;
+        }
+        return webDriver;
+    }
+
+    private void releaseQuietly(WebDriver webDriver) {
+        try {
+            driverRelease.accept(webDriver);
+        } catch (RuntimeException e) {
+            //ignore, release the other browsers
+        }
+    }
+
+    /**
+     * A browser to open: url, browser name, alias and capabilities, as for Open Browser.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class BrowserSpec {
+        private String url;
+        private String browserName;
+        private String alias;
+        private String capabilitiesJson;
+
+        private String describe() {
+            return alias != null ? alias : browserName + " " + url;
+        }
+    }
+}
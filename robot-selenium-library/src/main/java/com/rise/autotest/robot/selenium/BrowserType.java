@@ -31,8 +31,11 @@ public enum BrowserType {
         return browserName;
     }
 
+    /**
+     * @return a copy of the default browser capabilities, the caller may modify it.
+     */
     public DesiredCapabilities capabilities() {
-        return capabilities;
+        return new DesiredCapabilities(capabilities);
     }
 
     public static BrowserType fromName(String browserName) {
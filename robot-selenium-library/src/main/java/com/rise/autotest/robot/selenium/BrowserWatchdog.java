@@ -0,0 +1,232 @@
+package com.rise.autotest.robot.selenium;
+
+import com.rise.autotest.robot.selenium.util.BrowserProcesses;
+import com.rise.autotest.robot.selenium.util.DriverServices;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Background health check of the browser sessions, for long runs.<br>
+ * <br>
+ * Every check sends a cheap command (the window handles) to each open session, of all the session namespaces, and to
+ * each idle session of the {@link WebDriverPool}, and removes the sessions whose browser is dead, killing what is left
+ * of their processes. The sessions a keyword is running with are skipped (see {@link WebDriverManager#markBusy()}). A
+ * session that does not answer in time is busy, not dead, and kept: its probe goes on in the background, on a bounded
+ * number of threads, and the session is not probed again until that probe ends. Then the driver processes started by
+ * this JVM that serve no session, open, pooled or idle in {@link DriverServices}, are killed with their browsers. A
+ * driver process may be starting for a session not registered yet, so it is killed only if it is still an orphan at the
+ * next check.<br>
+ * <br>
+ * The counts of checks, removed sessions and killed processes are kept in {@link #statistics()}.
+ */
+@Slf4j
+public class BrowserWatchdog {
+
+    private static final long PROBE_TIMEOUT_MILLIS = 10_000L;
+    private static final int PROBE_THREADS = 4;
+
+    private static BrowserWatchdog browserWatchdog;
+
+    private final Supplier<Collection<WebDriverManager>> managers;
+    private final Predicate<WebDriver> isAlive;
+    private final ExecutorService probeExecutor = Executors.newFixedThreadPool(PROBE_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "browser-watchdog-probe");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // probes that did not answer in time, by driver
+    private final Map<WebDriver, Future<Boolean>> pendingProbes = new ConcurrentHashMap<>();
+    private volatile ScheduledExecutorService executor;
+    private Set<Integer> suspects = Collections.emptySet();
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder sessionsChecked = new LongAdder();
+    private final LongAdder sessionsEvicted = new LongAdder();
+    private final LongAdder processesKilled = new LongAdder();
+
+    /**
+     * Constructor.
+     * @param managers  the managers of the sessions to check
+     * @param isAlive   checks the browser of a session, false if it is dead
+     */
+    BrowserWatchdog(Supplier<Collection<WebDriverManager>> managers, Predicate<WebDriver> isAlive) {
+        this.managers = managers;
+        this.isAlive = isAlive;
+    }
+
+    /**
+     * initialize the instance of this class to be singleton. The watchdog checks the sessions of all the session
+     * namespaces.
+     * @return this instance {@code BrowserWatchdog}
+     */
+    public static synchronized BrowserWatchdog instance() {
+        if (browserWatchdog == null) {
+            browserWatchdog = new BrowserWatchdog(WebDriverManager::instances, BrowserWatchdog::isAlive);
+        }
+        return browserWatchdog;
+    }
+
+    /**
+     * Starts checking every <b>intervalSeconds</b>, or changes the interval if already started.
+     *
+     * @param intervalSeconds   time between two checks
+     */
+    public synchronized void start(long intervalSeconds) {
+        stop();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "browser-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                check();
+            } catch (RuntimeException e) {
+                log.warn("Browser watchdog check failed", e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops checking.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return executor != null;
+    }
+
+    /**
+     * Checks the sessions and reaps the orphan driver processes once, see {@link BrowserWatchdog}.
+     */
+    public synchronized void check() {
+        checks.increment();
+        Set<Integer> livePorts = new HashSet<>(DriverServices.ports());
+        Set<WebDriver> checked = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (WebDriverManager manager : managers.get()) {
+            List<String> evicted = manager.evictDead(this::probe);
+            if (!evicted.isEmpty()) {
+                log.warn("Removed the sessions of dead browsers {}", evicted);
+                sessionsEvicted.add(evicted.size());
+            }
+            for (WebDriver webDriver : manager.drivers()) {
+                livePorts.add(BrowserProcesses.driverPort(webDriver));
+                checked.add(webDriver);
+            }
+        }
+        List<WebDriver> deadPooled = WebDriverPool.instance().evictDead(this::probe);
+        for (WebDriver webDriver : deadPooled) {
+            BrowserProcesses.forceKill(webDriver);
+        }
+        if (!deadPooled.isEmpty()) {
+            log.warn("Removed {} dead browsers from the pool", deadPooled.size());
+            sessionsEvicted.add(deadPooled.size());
+        }
+        for (WebDriver webDriver : WebDriverPool.instance().drivers()) {
+            livePorts.add(BrowserProcesses.driverPort(webDriver));
+            checked.add(webDriver);
+        }
+        // the probes of the sessions closed meanwhile
+        pendingProbes.keySet().retainAll(checked);
+        reapOrphans(livePorts);
+    }
+
+    /**
+     * @return  the counts since the start of the JVM: checks, sessionsChecked, sessionsEvicted, processesKilled.
+     */
+    public Map<String, Long> statistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("checks", checks.sum());
+        statistics.put("sessionsChecked", sessionsChecked.sum());
+        statistics.put("sessionsEvicted", sessionsEvicted.sum());
+        statistics.put("processesKilled", processesKilled.sum());
+        return statistics;
+    }
+
+    private void reapOrphans(Set<Integer> livePorts) {
+        Set<Integer> orphans = BrowserProcesses.orphanDrivers(livePorts);
+        Set<Integer> confirmed = new HashSet<>(orphans);
+        confirmed.retainAll(suspects);
+        orphans.removeAll(confirmed);
+        suspects = orphans;
+        for (Integer pid : confirmed) {
+            int killed = BrowserProcesses.killTree(pid);
+            log.warn("Killed orphan driver process {} and its {} child processes", pid, killed - 1);
+            processesKilled.add(killed);
+        }
+    }
+
+    private boolean probe(WebDriver webDriver) {
+        Future<Boolean> probe = pendingProbes.get(webDriver);
+        if (probe != null && !probe.isDone()) {
+            // the previous probe is still waiting for the browser
+            return true;
+        }
+        if (probe == null) {
+            sessionsChecked.increment();
+            probe = probeExecutor.submit(() -> isAlive.test(webDriver));
+        }
+        try {
+            boolean alive = probe.get(PROBE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            pendingProbes.remove(webDriver);
+            return alive;
+        } catch (TimeoutException e) {
+            // busy with a long command, or hung: a next check uses its answer, closing it is left to Close All Browsers
+            pendingProbes.put(webDriver, probe);
+            return true;
+        } catch (ExecutionException e) {
+            pendingProbes.remove(webDriver);
+            log.warn("Unable to check a browser session", e.getCause());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        }
+    }
+
+    /**
+     * @param webDriver the driver
+     * @return false if the browser of the session is dead, or the session closed.
+     */
+    static boolean isAlive(WebDriver webDriver) {
+        try {
+            webDriver.getWindowHandles();
+            return true;
+        } catch (NoSuchSessionException | UnreachableBrowserException e) {
+            return false;
+        } catch (WebDriverException e) {
+            // chromedriver: 'chrome not reachable', 'session deleted because of page crash', 'tab crashed'
+            String message = String.valueOf(e.getMessage()).toLowerCase();
+            return !(message.contains("not reachable") || message.contains("session deleted")
+                    || message.contains("crashed"));
+        }
+    }
+}
@@ -22,4 +22,17 @@ public class SeleniumLibrary extends CustomAnnotationLibrary {
         super(KEYWORDS_PATTERN, KEYWORDS_DOC_FILE);
     }
 
+    /**
+     * Runs the keyword with the current browser marked busy, so that the {@link BrowserWatchdog} does not check it
+     * meanwhile.
+     */
+    @Override public Object runKeyword(String keywordName, Object[] args) {
+        Runnable idle = WebDriverManager.instance().markBusy();
+        try {
+            return super.runKeyword(keywordName, args);
+        } finally {
+            idle.run();
+        }
+    }
+
 }
@@ -1,25 +1,62 @@
 package com.rise.autotest.robot.selenium;
 
-import lombok.AllArgsConstructor;
+import com.rise.autotest.robot.FailureException;
+import com.rise.autotest.robot.selenium.locator.ElementCache;
+import com.rise.autotest.robot.selenium.locator.Locators;
+import com.rise.autotest.robot.selenium.util.BrowserProcesses;
+import com.rise.autotest.robot.util.SessionNamespace;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 import org.openqa.selenium.WebDriver;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Deque;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 /**
- * Manages web driver instances. Keeps a cache of all open/running instances
+ * Manages web driver instances. Keeps a cache of all open/running instances.<br>
+ * <br>
+ * Thread safe: the sessions are shared by the threads of the namespace, but the current session is per thread, so
+ * tests running in parallel threads each work with the browser they opened or switched to. The current session of a
+ * thread is the most recent of its sessions that is still open, sessions closed by other threads are skipped.<br>
+ * <br>
+ * A session can be registered while its browser is still starting, see {@link #registerDeferred(Future, String)}: the
+ * first use of the session waits for the browser.
  */
+@Slf4j
 public class WebDriverManager {
 
-    private static WebDriverManager webDriverManager;
-    private Map<UUID, WebDriverTuple> sessionIdDriverMap = new TreeMap<>();
-    private Deque<UUID> sessionIdStack = new ArrayDeque<>();
+    private static final SessionNamespace.PerNamespace<WebDriverManager> webDriverManagers =
+            SessionNamespace.perNamespace(WebDriverManager::new);
+    private final Map<UUID, WebDriverTuple> sessionIdDriverMap = new ConcurrentHashMap<>();
+    private static final long DEFAULT_CLOSE_TIMEOUT_MILLIS =
+            TimeUnit.SECONDS.toMillis(Long.getLong("robot.browser.close.timeout", 30L));
+    private static final long KILL_TIMEOUT_MILLIS = 10_000L;
+    private static final ExecutorService closeExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "browser-close");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ThreadLocal<Deque<UUID>> sessionIdStack = ThreadLocal.withInitial(ArrayDeque::new);
 
     /**
      * private constructor to hide default constructor
@@ -27,66 +64,129 @@ public class WebDriverManager {
     private WebDriverManager() { }
 
     /**
-     * initialize the instance of this class to be singleton
+     * Returns the instance of the current session namespace, see {@link SessionNamespace}.
+     * There is a single instance when the library is used by robot directly.
      * @return this instance {@code WebDriverManager}
      */
-    public static synchronized WebDriverManager instance() {
-        if(webDriverManager == null) {
-            synchronized (WebDriverManager.class) {
-                if(webDriverManager == null) {
-                    webDriverManager = new WebDriverManager();
-                }
-            }
+    public static WebDriverManager instance() {
+        return webDriverManagers.get();
+    }
+
+    /**
+     * @return the instances of all the session namespaces.
+     */
+    public static Collection<WebDriverManager> instances() {
+        return webDriverManagers.all();
+    }
+
+    /**
+     * Closes the browsers of the current session namespace and forgets its instance, see {@link SessionNamespace}.
+     * The idle browsers the pool kept for the namespace are quit too. The next {@link #instance()} of the namespace is
+     * a new one.
+     */
+    public static void closeNamespace() {
+        WebDriverManager webDriverManager = webDriverManagers.remove();
+        if(webDriverManager != null) {
+            webDriverManager.cleanup();
         }
-        return webDriverManager;
+        WebDriverPool.instance().closeNamespace(SessionNamespace.current());
     }
 
     /**
-     * Register a new driver and assign the driver session with a session id
+     * Register a new driver and assign the driver session with a session id. The driver becomes the current one of
+     * the calling thread.
      * @param webDriver driver instance to register
      * @param alias alias for register
      * @return session id for this driver
      */
-    public synchronized String register(WebDriver webDriver, String alias) {
+    public String register(WebDriver webDriver, String alias) {
+        if(webDriver == null ) {
+            throw new IllegalArgumentException("WebDriver should be instantiated before calling register");
+        }
+        return registerDeferred(CompletableFuture.completedFuture(webDriver), alias);
+    }
+
+    /**
+     * Register a driver that is still starting, and assign the driver session with a session id. The driver becomes
+     * the current one of the calling thread, {@link #getCurrent()} waits for it to be started.<br>
+     * If the driver fails to start, the session is removed when it is first used.
+     * @param webDriver driver being started
+     * @param alias alias for register
+     * @return session id for this driver
+     */
+    public String registerDeferred(Future<WebDriver> webDriver, String alias) {
         if(webDriver == null ) {
             throw new IllegalArgumentException("WebDriver should be instantiated before calling register");
         }
         UUID sessionId = newSessionId(alias);
         WebDriverTuple webDriverTuple = new WebDriverTuple(sessionId, webDriver, alias);
         sessionIdDriverMap.put(sessionId, webDriverTuple);
-        sessionIdStack.push(sessionId);
+        Deque<UUID> stack = sessionIdStack.get();
+        stack.remove(sessionId);
+        stack.push(sessionId);
         return sessionId.toString();
     }
 
     /**
-     * Return the current web driver
+     * Return the current web driver of the calling thread, waiting for it if it is still starting.
      * @return current {@code WebDriver} instance
+     * @throws FailureException if the driver could not be started, the session is removed.
      */
     public WebDriver getCurrent() {
-        if(sessionIdStack.isEmpty()) {
+        WebDriverTuple webDriverTuple = current();
+        if (webDriverTuple == null) {
             return null;
         }
-        WebDriverTuple webDriverTuple = sessionIdDriverMap.get(sessionIdStack.peek());
-        return webDriverTuple == null ? null : webDriverTuple.getWebDriver();
+        try {
+            return webDriverTuple.getWebDriver();
+        } catch (FailureException e) {
+            sessionIdDriverMap.remove(webDriverTuple.getSessionId(), webDriverTuple);
+            throw e;
+        }
+    }
+
+    /**
+     * Sets the time to wait for elements in the current session of the calling thread.
+     * @param timeoutMillis time to wait for an element
+     * @throws FailureException if there is no current session.
+     */
+    public void setElementTimeout(long timeoutMillis) {
+        WebDriverTuple webDriverTuple = current();
+        if (webDriverTuple == null) {
+            throw new FailureException("No browser is open");
+        }
+        webDriverTuple.setElementTimeoutMillis(Math.max(0, timeoutMillis));
     }
 
     /**
-     * return session id associated with current web driver.
+     * @return the time to wait for elements in the current session of the calling thread, the default one if there
+     * is no current session. See {@link Locators#DEFAULT_TIMEOUT_MILLIS}
+     */
+    public long getElementTimeout() {
+        WebDriverTuple webDriverTuple = current();
+        return webDriverTuple == null ? Locators.DEFAULT_TIMEOUT_MILLIS : webDriverTuple.getElementTimeoutMillis();
+    }
+
+    /**
+     * return session id associated with current web driver of the calling thread.
      * @return current session id
      */
     public String getCurrentSessionId() {
-        return sessionIdStack.isEmpty() ? null : sessionIdStack.peek().toString();
+        WebDriverTuple webDriverTuple = current();
+        return webDriverTuple == null ? null : webDriverTuple.getSessionId().toString();
     }
 
     /**
-     * Close the current webdriver instance and window
+     * Close the current webdriver instance and window of the calling thread
      */
     public void close() {
-        if(!sessionIdStack.isEmpty()) {
-            UUID sessionId = sessionIdStack.pop();
-            WebDriver webDriver = sessionIdDriverMap.get(sessionId).getWebDriver();
-            webDriver.quit();
-            sessionIdDriverMap.remove(sessionId);
+        Deque<UUID> stack = sessionIdStack.get();
+        while(!stack.isEmpty()) {
+            WebDriverTuple webDriverTuple = sessionIdDriverMap.remove(stack.pop());
+            if(webDriverTuple != null) {
+                release(webDriverTuple);
+                return;
+            }
         }
     }
 
@@ -97,36 +197,140 @@ public class WebDriverManager {
     public void close(String sessionIdOrAlias) {
         UUID sessionId = fromSessionIdOrAlias(sessionIdOrAlias);
         if(sessionId != null) {
-            WebDriver webDriver = sessionIdDriverMap.get(sessionId).getWebDriver();
-            webDriver.quit();
-            sessionIdDriverMap.remove(sessionId);
-            sessionIdStack.remove(sessionId);
+            sessionIdStack.get().remove(sessionId);
+            WebDriverTuple webDriverTuple = sessionIdDriverMap.remove(sessionId);
+            if(webDriverTuple != null) {
+                release(webDriverTuple);
+            }
+        }
+    }
+
+    /**
+     * Close all web driver instances, of all the threads, waiting for them up to the default close timeout
+     * (system property 'robot.browser.close.timeout', in seconds, 30 by default).
+     * @return the session ids or aliases of the browsers that had to be killed
+     * @see #closeAll(long)
+     */
+    public List<String> closeAll() {
+        return closeAll(DEFAULT_CLOSE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Close all web driver instances, of all the threads. The browsers are quit in parallel, the ones that did not
+     * quit within <b>timeoutMillis</b> are killed, see {@link BrowserProcesses}.
+     * @param timeoutMillis time to wait for all the browsers to quit
+     * @return the session ids or aliases of the browsers that had to be killed
+     */
+    public List<String> closeAll(long timeoutMillis) {
+        Map<WebDriverTuple, Future<?>> quits = new LinkedHashMap<>();
+        for (UUID sessionId : sessionIdDriverMap.keySet()) {
+            WebDriverTuple webDriverTuple = sessionIdDriverMap.remove(sessionId);
+            // null when closed meanwhile by another thread
+            if(webDriverTuple != null) {
+                quits.put(webDriverTuple, closeExecutor.submit(() -> release(webDriverTuple)));
+            }
+        }
+        sessionIdStack.get().clear();
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        List<String> killed = new ArrayList<>();
+        List<Future<?>> kills = new ArrayList<>();
+        for (Map.Entry<WebDriverTuple, Future<?>> quit : quits.entrySet()) {
+            WebDriverTuple webDriverTuple = quit.getKey();
+            try {
+                quit.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                quit.getValue().cancel(true);
+                WebDriver webDriver = webDriverTuple.getStartedWebDriver();
+                if (webDriver == null) {
+                    // still starting, closed once started
+                    closeExecutor.submit(() -> release(webDriverTuple));
+                    continue;
+                }
+                killed.add(webDriverTuple.describe());
+                kills.add(closeExecutor.submit(() -> BrowserProcesses.forceKill(webDriver)));
+            } catch (ExecutionException e) {
+                log.warn("Unable to quit browser {}", webDriverTuple.describe(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
         }
+        // the kills are bounded too, a driver service that does not stop is left to the shutdown of the JVM
+        long killDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(KILL_TIMEOUT_MILLIS);
+        for (Future<?> kill : kills) {
+            try {
+                kill.get(Math.max(0, killDeadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException | ExecutionException e) {
+                log.warn("Unable to kill a browser", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return killed;
     }
 
     /**
-     * Close all web driver instances
+     * Marks the current session of the calling thread as busy, e.g. while a keyword runs with it, until the returned
+     * action is run. The health checks skip the busy sessions, see {@link #evictDead(Predicate)}.
+     * @return marks the session as no longer busy
      */
-    public void closeAll() {
-        Iterator<Map.Entry<UUID, WebDriverTuple>> iterator = sessionIdDriverMap.entrySet().iterator();
+    public Runnable markBusy() {
+        WebDriverTuple webDriverTuple = current();
+        if (webDriverTuple == null) {
+            return () -> { };
+        }
+        webDriverTuple.getBusy().incrementAndGet();
+        return webDriverTuple.getBusy()::decrementAndGet;
+    }
 
-        while(iterator.hasNext()) {
-            Map.Entry<UUID, WebDriverTuple> entry = iterator.next();
-            entry.getValue().getWebDriver().quit();
-            iterator.remove();
+    /**
+     * Removes the sessions whose browser is dead, of all the threads, and kills what is left of their processes, see
+     * {@link BrowserProcesses}. The sessions still starting or busy (see {@link #markBusy()}) are not checked, so
+     * that the check never sends a command concurrently with a keyword.
+     * @param isAlive   checks the browser of a session, false if it is dead
+     * @return the session ids or aliases of the removed sessions
+     */
+    public List<String> evictDead(Predicate<WebDriver> isAlive) {
+        List<String> evicted = new ArrayList<>();
+        for (WebDriverTuple webDriverTuple : sessionIdDriverMap.values()) {
+            WebDriver webDriver = webDriverTuple.getStartedWebDriver();
+            if (webDriver != null && webDriverTuple.getBusy().get() == 0 && !isAlive.test(webDriver)
+                    && sessionIdDriverMap.remove(webDriverTuple.getSessionId(), webDriverTuple)) {
+                evicted.add(webDriverTuple.describe());
+                ElementCache.instance().invalidate(webDriver);
+                BrowserProcesses.forceKill(webDriver);
+                WebDriverPool.instance().discard(webDriver);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * @return the drivers of all the open sessions, of all the threads, except the ones still starting.
+     */
+    public List<WebDriver> drivers() {
+        List<WebDriver> drivers = new ArrayList<>();
+        for (WebDriverTuple webDriverTuple : sessionIdDriverMap.values()) {
+            WebDriver webDriver = webDriverTuple.getStartedWebDriver();
+            if (webDriver != null) {
+                drivers.add(webDriver);
+            }
         }
-        sessionIdStack.clear();
+        return drivers;
     }
 
     /**
-     * Make another driver as current. Accepts alias or sessionId as argument
+     * Make another driver as current for the calling thread. Accepts alias or sessionId as argument
      * @param sessionIdOrAlias switch another instance based on session id or alias
      */
     public void switchBrowser(String sessionIdOrAlias) {
         UUID sessionId = fromSessionIdOrAlias(sessionIdOrAlias);
         if(sessionId != null && sessionIdDriverMap.containsKey(sessionId)) {
-            sessionIdStack.remove(sessionId);
-            sessionIdStack.push(sessionId);
+            Deque<UUID> stack = sessionIdStack.get();
+            stack.remove(sessionId);
+            stack.push(sessionId);
         }
     }
 
@@ -143,8 +347,38 @@ public class WebDriverManager {
      */
     public void cleanup() {
         closeAll();
-        sessionIdStack.clear();
-        sessionIdDriverMap.clear();
+        sessionIdStack.remove();
+    }
+
+    /**
+     * The most recent session of the calling thread that is still open. Drops the sessions closed by other threads
+     * from the top of the stack on the way.
+     */
+    private WebDriverTuple current() {
+        Deque<UUID> stack = sessionIdStack.get();
+        UUID sessionId;
+        while((sessionId = stack.peek()) != null) {
+            WebDriverTuple webDriverTuple = sessionIdDriverMap.get(sessionId);
+            if(webDriverTuple != null) {
+                return webDriverTuple;
+            }
+            stack.pop();
+        }
+        return null;
+    }
+
+    /**
+     * Releases the driver of a removed session, once started. Nothing to release if it failed to start.
+     */
+    private void release(WebDriverTuple webDriverTuple) {
+        WebDriver webDriver;
+        try {
+            webDriver = webDriverTuple.getWebDriver();
+        } catch (FailureException e) {
+            return;
+        }
+        ElementCache.instance().invalidate(webDriver);
+        WebDriverPool.instance().release(webDriver);
     }
 
     private UUID newSessionId(String alias) {
@@ -165,15 +399,56 @@ public class WebDriverManager {
     }
 
     @Getter
-    @AllArgsConstructor
+    @RequiredArgsConstructor
     private static class WebDriverTuple {
 
         @NonNull
-        private UUID sessionId;
+        private final UUID sessionId;
 
         @NonNull
-        private WebDriver webDriver;
+        private final Future<WebDriver> webDriver;
+
+        private final String alias;
+
+        @Setter
+        private volatile long elementTimeoutMillis = Locators.DEFAULT_TIMEOUT_MILLIS;
+
+        // keywords running with the session
+        private final AtomicInteger busy = new AtomicInteger();
 
-        private String alias;
+        /**
+         * The driver, waiting for it if it is still starting.
+         */
+        private WebDriver getWebDriver() {
+            try {
+                return webDriver.get();
+            } catch (ExecutionException e) {
+                throw new FailureException(String.format("Unable to open browser %s. %s", describe(),
+                        e.getCause().getMessage()), e.getCause());
+            } catch (CancellationException e) {
+                throw new FailureException(String.format("Opening browser %s was cancelled", describe()), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new FailureException(String.format("Interrupted while opening browser %s", describe()), e);
+            }
+        }
+
+        /**
+         * The driver if it is started, null if it is still starting or failed to start.
+         */
+        private WebDriver getStartedWebDriver() {
+            if (!webDriver.isDone() || webDriver.isCancelled()) {
+                return null;
+            }
+            try {
+                return webDriver.get();
+            } catch (ExecutionException | InterruptedException e) {
+                return null;
+            }
+        }
+
+        private String describe() {
+            return alias != null && !alias.isEmpty() ? alias : sessionId.toString();
+        }
     }
 }
\ No newline at end of file
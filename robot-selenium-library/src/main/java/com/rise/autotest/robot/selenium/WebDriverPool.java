@@ -0,0 +1,408 @@
+package com.rise.autotest.robot.selenium;
+
+import com.rise.autotest.robot.selenium.util.WebDriverBuilder;
+import com.rise.autotest.robot.util.SessionNamespace;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Pool of browser sessions, reused across Open Browser / Close Browser.<br>
+ * <br>
+ * Disabled by default: every borrow builds a new driver and every release quits it. Once enabled with
+ * {@link #configure(int, long, int)}, a released session is reset (extra windows closed, cookies and storage of the
+ * current page cleared, about:blank loaded) and kept for the next borrow with the same browser type and capabilities.
+ * The reset cannot clear the cookies and storage of the other sites the session visited, so sessions are pooled per
+ * session namespace (see {@link SessionNamespace}): a session is never reused by another remote client.
+ * Sessions idle for longer than the max idle time, or used more than the max number of uses, are quit.
+ * {@link #prelaunch(BrowserType, String)} keeps sessions launched in the background for a browser type and
+ * capabilities, so that Open Browser does not wait for the browser startup.
+ */
+@Slf4j
+public class WebDriverPool {
+
+    private static final String CLEAR_STORAGE_SCRIPT = "try { window.localStorage.clear(); } catch (e) { } "
+            + "try { window.sessionStorage.clear(); } catch (e) { }";
+    private static final long EVICTION_PERIOD_MILLIS = 30_000L;
+
+    private static WebDriverPool webDriverPool;
+
+    private final BiFunction<BrowserType, String, WebDriver> driverFactory;
+    private final LongSupplier clock;
+    private final Map<PoolKey, Deque<PooledDriver>> idle = new ConcurrentHashMap<>();
+    private final Map<WebDriver, PooledDriver> leased = new ConcurrentHashMap<>();
+    private final Map<PoolKey, AtomicInteger> launching = new ConcurrentHashMap<>();
+    private final Set<PoolKey> prelaunched = ConcurrentHashMap.newKeySet();
+    private volatile ScheduledExecutorService executor;
+
+    private volatile int size = 0;
+    private volatile long maxIdleMillis = TimeUnit.MINUTES.toMillis(5);
+    private volatile int maxUses = 50;
+
+    /**
+     * Constructor.
+     * @param driverFactory builds a new driver for a browser type and capabilities json
+     * @param clock current time in millis
+     */
+    WebDriverPool(BiFunction<BrowserType, String, WebDriver> driverFactory, LongSupplier clock) {
+        this.driverFactory = driverFactory;
+        this.clock = clock;
+    }
+
+    /**
+     * initialize the instance of this class to be singleton. The pool is shared by all session namespaces, its
+     * sessions are not: they are only reused in the namespace that borrowed them first.
+     * @return this instance {@code WebDriverPool}
+     */
+    public static synchronized WebDriverPool instance() {
+        if (webDriverPool == null) {
+            webDriverPool = new WebDriverPool(WebDriverBuilder::buildDriver, System::currentTimeMillis);
+            Runtime.getRuntime().addShutdownHook(new Thread(webDriverPool::shutdown, "browser-pool-shutdown"));
+        }
+        return webDriverPool;
+    }
+
+    /**
+     * Configures the pool.
+     *
+     * @param size  maximum number of idle sessions kept per browser type and capabilities. 0 disables the pool and
+     *              quits the idle sessions.
+     * @param maxIdleSeconds    idle sessions are quit after this time.
+     * @param maxUses   sessions are quit after being used this many times.
+     */
+    public synchronized void configure(int size, long maxIdleSeconds, int maxUses) {
+        this.size = Math.max(0, size);
+        this.maxIdleMillis = TimeUnit.SECONDS.toMillis(maxIdleSeconds);
+        this.maxUses = Math.max(1, maxUses);
+        if (this.size == 0) {
+            prelaunched.clear();
+            quitIdle(pooled -> true);
+        } else {
+            scheduler();
+            evictIdle();
+        }
+    }
+
+    public boolean isEnabled() {
+        return size > 0;
+    }
+
+    /**
+     * Keeps up to the pool size sessions launched in the background for the given browser and capabilities.
+     * Returns immediately.
+     *
+     * @param browser   browser type
+     * @param capabilitiesJson  capabilities json, as for Open Browser. Optional.
+     */
+    public void prelaunch(BrowserType browser, String capabilitiesJson) {
+        if (!isEnabled()) {
+            return;
+        }
+        PoolKey key = new PoolKey(browser, capabilitiesJson);
+        prelaunched.add(key);
+        refill(key);
+    }
+
+    /**
+     * Quits the idle sessions of a namespace and stops launching sessions in the background for it.
+     *
+     * @param namespace the session namespace, see {@link SessionNamespace}
+     */
+    public void closeNamespace(String namespace) {
+        prelaunched.removeIf(key -> key.namespace.equals(namespace));
+        quitIdle(pooled -> pooled.key.namespace.equals(namespace));
+    }
+
+    /**
+     * Returns an idle session of the current namespace for the browser type and capabilities, or a new one if there
+     * is none.
+     *
+     * @param browser   browser type
+     * @param capabilitiesJson  capabilities json. Optional.
+     * @return  the driver
+     */
+    public WebDriver borrow(BrowserType browser, String capabilitiesJson) {
+        if (!isEnabled()) {
+            return driverFactory.apply(browser, capabilitiesJson);
+        }
+        PoolKey key = new PoolKey(browser, capabilitiesJson);
+        PooledDriver pooled = pollIdle(key);
+        if (pooled == null) {
+            pooled = new PooledDriver(key, driverFactory.apply(browser, capabilitiesJson));
+        }
+        pooled.uses++;
+        leased.put(pooled.driver, pooled);
+        if (prelaunched.contains(key)) {
+            refill(key);
+        }
+        return pooled.driver;
+    }
+
+    /**
+     * Returns the driver to the pool, after resetting it. Quits it instead if the pool is disabled or full, if the
+     * driver was not borrowed from the pool, if it reached the max number of uses or if it could not be reset.
+     *
+     * @param webDriver the driver to release
+     */
+    public void release(WebDriver webDriver) {
+        PooledDriver pooled = leased.remove(webDriver);
+        if (pooled == null || !isEnabled()) {
+            webDriver.quit();
+            return;
+        }
+        if (pooled.uses >= maxUses || !reset(webDriver)) {
+            quit(webDriver);
+            return;
+        }
+        Deque<PooledDriver> drivers = idle.computeIfAbsent(pooled.key, key -> new ConcurrentLinkedDeque<>());
+        pooled.idleSince = clock.getAsLong();
+        if (!offer(drivers, pooled, true)) {
+            quit(webDriver);
+        }
+    }
+
+    /**
+     * Forgets a driver whose browser is dead, borrowed or idle: it is neither reset nor quit, nor kept for reuse.
+     *
+     * @param webDriver the driver to forget
+     */
+    public void discard(WebDriver webDriver) {
+        leased.remove(webDriver);
+        for (Deque<PooledDriver> drivers : idle.values()) {
+            drivers.removeIf(pooled -> pooled.driver == webDriver);
+        }
+    }
+
+    /**
+     * Checks the idle sessions and quits the ones whose browser is dead. A session being checked is out of the pool,
+     * so it is not borrowed meanwhile.
+     *
+     * @param isAlive   checks the browser of a session, false if it is dead
+     * @return  the drivers of the dead sessions, for the caller to kill what is left of their processes
+     */
+    public List<WebDriver> evictDead(Predicate<WebDriver> isAlive) {
+        List<WebDriver> dead = new ArrayList<>();
+        for (Deque<PooledDriver> drivers : idle.values()) {
+            for (PooledDriver pooled : new ArrayList<>(drivers)) {
+                if (!drivers.removeFirstOccurrence(pooled)) {
+                    // borrowed meanwhile
+                    continue;
+                }
+                if (!isAlive.test(pooled.driver)) {
+                    dead.add(pooled.driver);
+                } else if (!offer(drivers, pooled, false)) {
+                    quit(pooled.driver);
+                }
+            }
+        }
+        return dead;
+    }
+
+    /**
+     * @return  the number of idle sessions in the pool.
+     */
+    public int idleCount() {
+        int count = 0;
+        for (Deque<PooledDriver> drivers : idle.values()) {
+            count += drivers.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return  the sessions of the pool, idle or borrowed.
+     */
+    public List<WebDriver> drivers() {
+        List<WebDriver> drivers = new ArrayList<>(leased.keySet());
+        for (Deque<PooledDriver> pooled : idle.values()) {
+            for (PooledDriver pooledDriver : pooled) {
+                drivers.add(pooledDriver.driver);
+            }
+        }
+        return drivers;
+    }
+
+    /**
+     * Quits the sessions idle for longer than the max idle time.
+     */
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        quitIdle(pooled -> now - pooled.idleSince >= maxIdleMillis);
+    }
+
+    /**
+     * Quits all the idle sessions and stops the background launches. Borrowed sessions are quit on release.
+     */
+    public synchronized void shutdown() {
+        size = 0;
+        prelaunched.clear();
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        quitIdle(pooled -> true);
+    }
+
+    private PooledDriver pollIdle(PoolKey key) {
+        Deque<PooledDriver> drivers = idle.get(key);
+        if (drivers == null) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        PooledDriver pooled;
+        // most recently used first, the least recently used ones are left to expire
+        while ((pooled = drivers.pollFirst()) != null) {
+            if (now - pooled.idleSince < maxIdleMillis) {
+                return pooled;
+            }
+            quit(pooled.driver);
+        }
+        return null;
+    }
+
+    private void refill(PoolKey key) {
+        AtomicInteger inFlight = launching.computeIfAbsent(key, k -> new AtomicInteger());
+        Deque<PooledDriver> drivers = idle.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>());
+        ScheduledExecutorService scheduler = scheduler();
+        while (drivers.size() + inFlight.get() < size) {
+            inFlight.incrementAndGet();
+            scheduler.execute(() -> {
+                try {
+                    WebDriver webDriver = driverFactory.apply(key.browser, key.capabilitiesJson);
+                    PooledDriver pooled = new PooledDriver(key, webDriver);
+                    pooled.idleSince = clock.getAsLong();
+                    if (!offer(drivers, pooled, false)) {
+                        quit(webDriver);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Unable to launch a {} browser for the pool", key.browser, e);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * Adds an idle session unless the pool is disabled or full. The size check and the add are atomic, so that
+     * concurrent releases never keep more than the pool size.
+     */
+    private boolean offer(Deque<PooledDriver> drivers, PooledDriver pooled, boolean mostRecent) {
+        synchronized (drivers) {
+            if (!isEnabled() || drivers.size() >= size) {
+                return false;
+            }
+            if (mostRecent) {
+                drivers.offerFirst(pooled);
+            } else {
+                drivers.offerLast(pooled);
+            }
+            return true;
+        }
+    }
+
+    private synchronized ScheduledExecutorService scheduler() {
+        if (executor == null) {
+            executor = Executors.newScheduledThreadPool(1, runnable -> {
+                Thread thread = new Thread(runnable, "browser-pool");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(this::evictIdle, EVICTION_PERIOD_MILLIS, EVICTION_PERIOD_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        }
+        return executor;
+    }
+
+    private void quitIdle(Predicate<PooledDriver> condition) {
+        for (Deque<PooledDriver> drivers : idle.values()) {
+            Iterator<PooledDriver> iterator = drivers.iterator();
+            while (iterator.hasNext()) {
+                PooledDriver pooled = iterator.next();
+                if (condition.test(pooled) && drivers.removeFirstOccurrence(pooled)) {
+                    quit(pooled.driver);
+                }
+            }
+        }
+    }
+
+    /**
+     * Brings the session back to a blank state: a single window on about:blank, without the cookies and storage of
+     * the page it was left on.
+     */
+    private boolean reset(WebDriver webDriver) {
+        try {
+            List<String> handles = new ArrayList<>(webDriver.getWindowHandles());
+            if (handles.size() > 1) {
+                for (String handle : handles.subList(1, handles.size())) {
+                    webDriver.switchTo().window(handle).close();
+                }
+                webDriver.switchTo().window(handles.get(0));
+            }
+            webDriver.manage().deleteAllCookies();
+            if (webDriver instanceof JavascriptExecutor) {
+                ((JavascriptExecutor) webDriver).executeScript(CLEAR_STORAGE_SCRIPT);
+            }
+            webDriver.get("about:blank");
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Unable to reset the browser, it is quit instead of being pooled", e);
+            return false;
+        }
+    }
+
+    private static void quit(WebDriver webDriver) {
+        try {
+            webDriver.quit();
+        } catch (RuntimeException e) {
+            log.warn("Unable to quit the browser", e);
+        }
+    }
+
+    /**
+     * Sessions are interchangeable when they have the same namespace, browser type and capabilities.
+     */
+    @EqualsAndHashCode(of = {"namespace", "browser", "fingerprint"})
+    private static class PoolKey {
+        private final String namespace;
+        private final BrowserType browser;
+        private final String capabilitiesJson;
+        private final String fingerprint;
+
+        PoolKey(BrowserType browser, String capabilitiesJson) {
+            this.namespace = SessionNamespace.current();
+            this.browser = browser;
+            this.capabilitiesJson = capabilitiesJson;
+            this.fingerprint = WebDriverBuilder.capabilitiesFingerprint(browser, capabilitiesJson);
+        }
+    }
+
+    private static class PooledDriver {
+        private final PoolKey key;
+        private final WebDriver driver;
+        private volatile int uses;
+        private volatile long idleSince;
+
+        PooledDriver(PoolKey key, WebDriver driver) {
+            this.key = key;
+            this.driver = driver;
+        }
+    }
+}
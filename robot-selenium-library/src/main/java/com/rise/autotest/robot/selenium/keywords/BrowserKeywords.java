@@ -1,14 +1,24 @@
 package com.rise.autotest.robot.selenium.keywords;
 
+import com.rise.autotest.robot.selenium.BrowserLauncher;
 import com.rise.autotest.robot.selenium.BrowserType;
+import com.rise.autotest.robot.selenium.BrowserWatchdog;
 import com.rise.autotest.robot.selenium.WebDriverManager;
-import com.rise.autotest.robot.selenium.util.WebDriverBuilder;
+import com.rise.autotest.robot.selenium.WebDriverPool;
+import com.rise.autotest.robot.selenium.util.FastProfile;
+import com.rise.autotest.robot.util.RobotLogger;
 import org.openqa.selenium.WebDriver;
 import org.robotframework.javalib.annotation.ArgumentNames;
 import org.robotframework.javalib.annotation.RobotKeyword;
 import org.robotframework.javalib.annotation.RobotKeywordOverload;
 import org.robotframework.javalib.annotation.RobotKeywords;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Robot Keywords to manage WebBrowser/Driver sessions
  */
@@ -67,19 +77,94 @@ public class BrowserKeywords extends SeleniumBase {
      * @param url   URL to navigate
      * @param browserName   name of the browser. {@link BrowserType}
      * @param alias An alias for the browser session
-     * @param capabilitiesJson Web Driver capabilities as json string
+     * @param capabilitiesJson Web Driver capabilities as json string, or the name of a capability profile.
+     *                         See {@link com.rise.autotest.robot.selenium.util.CapabilityProfiles}
      * @return  session id of the browser/driver instance.
      */
-    @RobotKeyword
-    @ArgumentNames({"url", "browserName=firefox", "alias=NONE", "capabilities=NONE" })
+    @RobotKeywordOverload
     public String openBrowser(String url, String browserName, String alias, String capabilitiesJson) {
+        return openBrowser(url, browserName, alias, capabilitiesJson, false);
+    }
+
+    /**
+     * Opens the browser specified by <b>browserName</b>, with the 'fast' capability profile if <b>fast</b>.
+     *
+     * @param url   URL to navigate
+     * @param browserName   name of the browser. {@link BrowserType}
+     * @param alias An alias for the browser session
+     * @param capabilitiesJson Web Driver capabilities as json string, or the name of a capability profile.
+     * @param fast  applies the 'fast' capability profile before the <b>capabilitiesJson</b>. See {@link FastProfile}
+     * @return  session id of the browser/driver instance.
+     */
+    @RobotKeywordOverload
+    public String openBrowser(String url, String browserName, String alias, String capabilitiesJson, boolean fast) {
+        return openBrowser(url, browserName, alias, capabilitiesJson, fast, false);
+    }
+
+    /**
+     * Opens the browser specified by <b>browserName</b> and assigns <b>alias</b> if provided.<br>
+     * Navigates to the given <b>url</b>.
+     * And registers the browser with {@link WebDriverManager}
+     * <br>
+     * Each browser window opened will have a session id and optionally an alias.
+     * Which later can be used to refer to that particular browser instance
+     *
+     * @param url   URL to navigate
+     * @param browserName   name of the browser. {@link BrowserType}
+     * @param alias An alias for the browser session
+     * @param capabilitiesJson Web Driver capabilities as json string, or the name of a capability profile.
+     *                         See {@link com.rise.autotest.robot.selenium.util.CapabilityProfiles}
+     * @param fast  applies the 'fast' capability profile before the <b>capabilitiesJson</b>. See {@link FastProfile}
+     * @param deferred  returns without waiting for the browser: it is opened in the background and the first keyword
+     *                  using it waits for it. See {@link WebDriverManager#registerDeferred(Future, String)}
+     * @return  session id of the browser/driver instance.
+     */
+    @RobotKeyword
+    @ArgumentNames({"url", "browserName=firefox", "alias=NONE", "capabilities=NONE", "fast=False", "deferred=False" })
+    public String openBrowser(String url, String browserName, String alias, String capabilitiesJson, boolean fast,
+                              boolean deferred) {
         BrowserType browser = BrowserType.fromName(browserName);
-        WebDriver webDriver = WebDriverBuilder.buildDriver(browser, capabilitiesJson);
+        if(fast) {
+            capabilitiesJson = capabilitiesJson == null ? FastProfile.NAME : FastProfile.NAME + " " + capabilitiesJson;
+        }
+        if(deferred) {
+            WebDriverPool pool = WebDriverPool.instance();
+            Future<WebDriver> webDriver = new BrowserLauncher(pool::borrow, pool::release).launchAsync(
+                    new BrowserLauncher.BrowserSpec(url, browser.browserName(), alias, capabilitiesJson));
+            return driverManager.registerDeferred(webDriver, alias);
+        }
+        WebDriver webDriver = WebDriverPool.instance().borrow(browser, capabilitiesJson);
 
         webDriver.get(url);
+        FastProfile.afterNavigation(webDriver);
         return driverManager.register(webDriver, alias);
     }
 
+    /**
+     * Opens several browsers concurrently and registers them with {@link WebDriverManager}, in the given order.
+     * The last one becomes the current browser.<br>
+     * <br>
+     * Each url starts a new browser, optionally followed by 'browser=&lt;name&gt;', 'alias=&lt;alias&gt;' and
+     * 'capabilities=&lt;json&gt;' for that browser. If a browser could not be opened, the others are closed again.
+     *
+     * @param browsers  urls, each optionally followed by the browser name, alias and capabilities
+     * @return  session ids of the browsers, in the given order.
+     * @see BrowserLauncher
+     */
+    @RobotKeyword
+    @ArgumentNames({"*browsers"})
+    public List<String> openBrowsers(String... browsers) {
+        WebDriverPool pool = WebDriverPool.instance();
+        List<BrowserLauncher.BrowserSpec> specs = BrowserLauncher.parse(browsers, DEFAULT_BROWSER_NAME);
+        List<WebDriver> webDrivers = new BrowserLauncher(pool::borrow, pool::release).launch(specs);
+
+        List<String> sessionIds = new ArrayList<>();
+        for (int i = 0; i < specs.size(); i++) {
+            sessionIds.add(driverManager.register(webDrivers.get(i), specs.get(i).getAlias()));
+        }
+        return sessionIds;
+    }
+
     /**
      * Close recently opened web driver/browser session.
      * @see WebDriverManager#close()
@@ -110,13 +195,118 @@ public class BrowserKeywords extends SeleniumBase {
     }
 
     /**
-     * Closes all web driver/browser sessions currently open.<br>
+     * Closes all web driver/browser sessions currently open, waiting for them up to the default close timeout.<br>
      *
      * @see WebDriverManager#closeAll()
      */
-    @RobotKeyword
+    @RobotKeywordOverload
     public void closeAllBrowsers() {
-        driverManager.closeAll();
+        reportKilled(driverManager.closeAll());
+    }
+
+    /**
+     * Closes all web driver/browser sessions currently open, in parallel.<br>
+     * The browsers that did not quit within <b>timeout</b> seconds are killed, and reported with a warning.
+     *
+     * @param timeout   seconds to wait for the browsers to quit
+     * @see WebDriverManager#closeAll(long)
+     */
+    @RobotKeyword
+    @ArgumentNames({"timeout=30"})
+    public void closeAllBrowsers(long timeout) {
+        reportKilled(driverManager.closeAll(TimeUnit.SECONDS.toMillis(timeout)));
+    }
+
+    /**
+     * Enables the browser pool with up to <b>size</b> idle sessions per browser type and capabilities, with the
+     * default max idle time (300 seconds) and max uses (50).
+     *
+     * @param size  maximum number of idle sessions. 0 disables the pool.
+     * @see WebDriverPool#configure(int, long, int)
+     */
+    @RobotKeywordOverload
+    public void configureBrowserPool(int size) {
+        configureBrowserPool(size, 300, 50);
+    }
+
+    /**
+     * Configures the browser pool. Once enabled, Close Browser resets the browser and keeps it for the next
+     * Open Browser with the same browser type and capabilities, instead of quitting it.
+     *
+     * @param size  maximum number of idle sessions per browser type and capabilities. 0 disables the pool.
+     * @param maxIdleSeconds    idle sessions are quit after this time.
+     * @param maxUses   sessions are quit after being used this many times.
+     * @see WebDriverPool#configure(int, long, int)
+     */
+    @RobotKeyword
+    @ArgumentNames({"size", "maxIdleSeconds=300", "maxUses=50"})
+    public void configureBrowserPool(int size, long maxIdleSeconds, int maxUses) {
+        WebDriverPool.instance().configure(size, maxIdleSeconds, maxUses);
+    }
+
+    /**
+     * Launches browsers in the background, up to the browser pool size.
+     *
+     * @param browserName   name of the browser. See {@link BrowserType}
+     */
+    @RobotKeywordOverload
+    public void prelaunchBrowsers(String browserName) {
+        prelaunchBrowsers(browserName, null);
+    }
+
+    /**
+     * Launches browsers specified by <b>browserName</b> and <b>capabilitiesJson</b> in the background, up to the
+     * browser pool size, so that Open Browser with the same arguments does not wait for the browser to start.<br>
+     * Returns immediately, does nothing if the pool is not enabled.
+     *
+     * @param browserName   name of the browser. See {@link BrowserType}
+     * @param capabilitiesJson Web Driver capabilities as json string
+     * @see WebDriverPool#prelaunch(BrowserType, String)
+     */
+    @RobotKeyword
+    @ArgumentNames({"browserName", "capabilities=NONE"})
+    public void prelaunchBrowsers(String browserName, String capabilitiesJson) {
+        WebDriverPool.instance().prelaunch(BrowserType.fromName(browserName), capabilitiesJson);
+    }
+
+    /**
+     * Starts the browser watchdog, checking every 60 seconds.
+     */
+    @RobotKeywordOverload
+    public void startBrowserWatchdog() {
+        startBrowserWatchdog(60);
+    }
+
+    /**
+     * Starts the browser watchdog: every <b>interval</b> seconds, the sessions of dead browsers are removed and the
+     * orphan driver and browser processes are killed.
+     *
+     * @param interval  seconds between two checks
+     * @see BrowserWatchdog
+     */
+    @RobotKeyword
+    @ArgumentNames({"interval=60"})
+    public void startBrowserWatchdog(long interval) {
+        BrowserWatchdog.instance().start(interval);
+    }
+
+    /**
+     * Stops the browser watchdog.
+     */
+    @RobotKeyword
+    public void stopBrowserWatchdog() {
+        BrowserWatchdog.instance().stop();
+    }
+
+    /**
+     * Returns the counts of the browser watchdog: checks, sessionsChecked, sessionsEvicted and processesKilled.
+     *
+     * @return  the counts by name
+     * @see BrowserWatchdog#statistics()
+     */
+    @RobotKeyword
+    public Map<String, Long> getBrowserWatchdogStatistics() {
+        return BrowserWatchdog.instance().statistics();
     }
 
     /**
@@ -129,4 +319,10 @@ public class BrowserKeywords extends SeleniumBase {
     public void switchBrowser(String sessionIdOrAlias) {
         driverManager.switchBrowser(sessionIdOrAlias);
     }
+
+    private void reportKilled(List<String> killed) {
+        if(!killed.isEmpty()) {
+            RobotLogger.warn(String.format("Browsers %s did not quit in time and were killed", killed));
+        }
+    }
 }
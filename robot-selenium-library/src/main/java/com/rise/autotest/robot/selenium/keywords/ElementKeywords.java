@@ -15,6 +15,23 @@ import java.util.List;
 @RobotKeywords
 public class ElementKeywords extends SeleniumBase {
 
+    /**
+     * Sets the time to wait for elements in the current browser session, and returns the previous one.<br>
+     * <br>
+     * Elements already in the page are found at once, the page is polled only while an element is missing. The checks
+     * that an element is not in the page wait a short time only, see {@link SeleniumBase#ABSENT_ELEMENT_TIMEOUT_MILLIS}.
+     *
+     * @param seconds   time to wait for an element
+     * @return  the previous time to wait, in seconds.
+     */
+    @RobotKeyword
+    @ArgumentNames({ "seconds" })
+    public double setElementTimeout(double seconds) {
+        long previous = driverManager.getElementTimeout();
+        driverManager.setElementTimeout((long) (seconds * 1000));
+        return previous / 1000d;
+    }
+
     /**
      * Assigns the <b>id</b> to the element located by <b>locator</b>. <br>
      * <br>
@@ -282,7 +299,7 @@ public class ElementKeywords extends SeleniumBase {
     @RobotKeyword
     @ArgumentNames({ "locator", "message=NONE" })
     public void elementShouldNotBeVisible(String locator, String message) {
-        boolean visible = isVisible(locator);
+        boolean visible = isVisible(locator, ABSENT_ELEMENT_TIMEOUT_MILLIS);
 
         if (visible) {
             if (message == null || message.equals("")) {
@@ -355,7 +372,7 @@ public class ElementKeywords extends SeleniumBase {
     @RobotKeyword
     @ArgumentNames({ "locator", "message=NONE" })
     public void elementShouldNotBeClickable(String locator, String message) {
-        boolean clickable = isClickable(locator);
+        boolean clickable = isClickable(locator, ABSENT_ELEMENT_TIMEOUT_MILLIS);
 
         if (clickable) {
             if (message == null || message.equals("")) {
@@ -454,7 +471,11 @@ public class ElementKeywords extends SeleniumBase {
     }
 
     private boolean isVisible(String locator) {
-        List<WebElement> elements = findElement(locator, true, false);
+        return isVisible(locator, driverManager.getElementTimeout());
+    }
+
+    private boolean isVisible(String locator, long timeoutMillis) {
+        List<WebElement> elements = findElement(locator, null, true, false, timeoutMillis);
         if (elements.isEmpty()) {
             return false;
         }
@@ -463,7 +484,11 @@ public class ElementKeywords extends SeleniumBase {
     }
 
     private boolean isClickable(String locator) {
-        List<WebElement> elements = findElement(locator, true, false);
+        return isClickable(locator, driverManager.getElementTimeout());
+    }
+
+    private boolean isClickable(String locator, long timeoutMillis) {
+        List<WebElement> elements = findElement(locator, null, true, false, timeoutMillis);
         if (elements.isEmpty()) {
             return false;
         }
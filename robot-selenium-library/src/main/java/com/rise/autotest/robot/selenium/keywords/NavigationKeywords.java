@@ -1,5 +1,6 @@
 package com.rise.autotest.robot.selenium.keywords;
 
+import com.rise.autotest.robot.selenium.util.FastProfile;
 import org.robotframework.javalib.annotation.ArgumentNames;
 import org.robotframework.javalib.annotation.RobotKeyword;
 import org.robotframework.javalib.annotation.RobotKeywords;
@@ -19,6 +20,7 @@ public class NavigationKeywords extends SeleniumBase {
     @ArgumentNames({ "url" })
     public void goTo(String url) {
         driverManager.getCurrent().get(url);
+        FastProfile.afterNavigation(driverManager.getCurrent());
     }
 
     /**
@@ -27,6 +29,7 @@ public class NavigationKeywords extends SeleniumBase {
     @RobotKeyword
     public void goBack() {
         driverManager.getCurrent().navigate().back();
+        FastProfile.afterNavigation(driverManager.getCurrent());
     }
 
     /**
@@ -35,6 +38,7 @@ public class NavigationKeywords extends SeleniumBase {
     @RobotKeyword
     public void goForward() {
         driverManager.getCurrent().navigate().forward();
+        FastProfile.afterNavigation(driverManager.getCurrent());
     }
 
     /**
@@ -43,6 +47,7 @@ public class NavigationKeywords extends SeleniumBase {
     @RobotKeyword
     public void refresh() {
         driverManager.getCurrent().navigate().refresh();
+        FastProfile.afterNavigation(driverManager.getCurrent());
     }
 
 }
@@ -3,7 +3,10 @@ package com.rise.autotest.robot.selenium.keywords;
 import com.rise.autotest.robot.FailureException;
 import com.rise.autotest.robot.selenium.locator.ElementTag;
 import com.rise.autotest.robot.selenium.locator.StdTags;
+import com.rise.autotest.robot.selenium.util.FastProfile;
+import com.rise.autotest.robot.selenium.util.PageReadiness;
 import com.rise.autotest.robot.selenium.util.Util;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.robotframework.javalib.annotation.ArgumentNames;
@@ -12,6 +15,7 @@ import org.robotframework.javalib.annotation.RobotKeywordOverload;
 import org.robotframework.javalib.annotation.RobotKeywords;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RobotKeywords
 public class PageKeywords extends SeleniumBase {
@@ -40,6 +44,34 @@ public class PageKeywords extends SeleniumBase {
     @RobotKeyword
     public void reloadPage() {
         driverManager.getCurrent().navigate().refresh();
+        FastProfile.afterNavigation(driverManager.getCurrent());
+    }
+
+    @RobotKeywordOverload
+    public void waitUntilPageIsReady() {
+        waitUntilPageIsReady(PageReadiness.DEFAULT_TIMEOUT_MILLIS / 1000);
+    }
+
+    @RobotKeywordOverload
+    public void waitUntilPageIsReady(long timeout) {
+        waitUntilPageIsReady(timeout, PageReadiness.DEFAULT_IDLE_MILLIS);
+    }
+
+    /**
+     * Waits for the current page to be loaded and its network to be idle: no XMLHttpRequest or fetch request in
+     * flight and no short timer pending for <b>idleTime</b> milliseconds. See {@link PageReadiness}. <br>
+     *
+     * @param timeout   seconds to wait for the page
+     * @param idleTime  milliseconds the network should be idle
+     */
+    @RobotKeyword
+    @ArgumentNames({"timeout=30", "idleTime=500"})
+    public void waitUntilPageIsReady(long timeout, long idleTime) {
+        try {
+            PageReadiness.waitUntilReady(driverManager.getCurrent(), TimeUnit.SECONDS.toMillis(timeout), idleTime);
+        } catch (TimeoutException e) {
+            throw new FailureException(e.getMessage().split("\n")[0]);
+        }
     }
 
     /**
@@ -108,7 +140,7 @@ public class PageKeywords extends SeleniumBase {
     @RobotKeyword
     @ArgumentNames({"text"})
     public void pageShouldContainText(String text) {
-        if(!isPageContainsText(text)) {
+        if(!isPageContainsText(text, driverManager.getElementTimeout())) {
             throw new FailureException(String.format("Page should have contained text '%s' but did not.", text));
         }
     }
@@ -121,7 +153,7 @@ public class PageKeywords extends SeleniumBase {
     @RobotKeyword
     @ArgumentNames({"text"})
     public void pageShouldNotContainText(String text) {
-        if(isPageContainsText(text)) {
+        if(isPageContainsText(text, ABSENT_ELEMENT_TIMEOUT_MILLIS)) {
             throw new FailureException(String.format("Page should not have contained text '%s' but did.", text));
         }
     }
@@ -168,7 +200,7 @@ public class PageKeywords extends SeleniumBase {
     @RobotKeyword
     @ArgumentNames({"locator", "tag=NONE", "message=NONE"})
     public void pageShouldNotContainElement(String locator, String tag, String message) {
-        if(isElementPresent(locator,null)) {
+        if(isElementPresent(locator, null, ABSENT_ELEMENT_TIMEOUT_MILLIS)) {
             if (message == null || message.equals("")) {
                 throw new FailureException(
                         String.format("Page should not have contained %s '%s' but did.", tag != null ? tag : "element", locator)
@@ -219,7 +251,7 @@ public class PageKeywords extends SeleniumBase {
     @RobotKeyword
     @ArgumentNames({ "locator", "message=NONE" })
     public void pageShouldNotContainLink(String locator, String message) {
-        if(isElementPresent(locator, StdTags.LINK.name())) {
+        if(isElementPresent(locator, StdTags.LINK.name(), ABSENT_ELEMENT_TIMEOUT_MILLIS)) {
             if (message == null || message.equals("")) {
                 throw new FailureException(
                         String.format("Page should not have contained link '%s' but did.", locator)
@@ -270,7 +302,7 @@ public class PageKeywords extends SeleniumBase {
     @RobotKeyword
     @ArgumentNames({ "locator", "message=NONE" })
     public void pageShouldNotContainImage(String locator, String message) {
-        if(isElementPresent(locator, StdTags.IMAGE.name())) {
+        if(isElementPresent(locator, StdTags.IMAGE.name(), ABSENT_ELEMENT_TIMEOUT_MILLIS)) {
             if (message == null || message.equals("")) {
                 throw new FailureException(
                         String.format("Page should not have contained image '%s' but did.", locator)
@@ -320,7 +352,7 @@ public class PageKeywords extends SeleniumBase {
     @RobotKeyword
     @ArgumentNames({ "locator", "message=NONE" })
     public void pageShouldNotContainCheckbox(String locator, String message) {
-        if(isElementPresent(locator, StdTags.CHECKBOX.name())) {
+        if(isElementPresent(locator, StdTags.CHECKBOX.name(), ABSENT_ELEMENT_TIMEOUT_MILLIS)) {
             if (message == null || message.equals("")) {
                 throw new FailureException(
                         String.format("Page should not have contained checkbox '%s' but did.", locator)
@@ -370,7 +402,7 @@ public class PageKeywords extends SeleniumBase {
     @RobotKeyword
     @ArgumentNames({ "locator", "message=NONE" })
     public void pageShouldNotContainRadioButton(String locator, String message) {
-        if(isElementPresent(locator, StdTags.RADIO.name())) {
+        if(isElementPresent(locator, StdTags.RADIO.name(), ABSENT_ELEMENT_TIMEOUT_MILLIS)) {
             if (message == null || message.equals("")) {
                 throw new FailureException(
                         String.format("Page should not have contained radio button '%s' but did.", locator)
@@ -418,7 +450,7 @@ public class PageKeywords extends SeleniumBase {
     @RobotKeyword
     @ArgumentNames({ "locator", "message=NONE" })
     public void pageShouldNotContainTextfield(String locator, String message) {
-        if(isElementPresent(locator, StdTags.TEXT.name())) {
+        if(isElementPresent(locator, StdTags.TEXT.name(), ABSENT_ELEMENT_TIMEOUT_MILLIS)) {
             if (message == null || message.equals("")) {
                 throw new FailureException(
                         String.format("Page should not have contained text field '%s' but did.", locator)
@@ -428,20 +460,20 @@ public class PageKeywords extends SeleniumBase {
         }
     }
 
-    private boolean isPageContainsText(String text) {
+    private boolean isPageContainsText(String text, long timeoutMillis) {
         WebDriver webDriver = driverManager.getCurrent();
         webDriver.switchTo().defaultContent();
 
-        if (isTextPresent(text)) {
+        if (isTextPresent(text, timeoutMillis)) {
             return true;
         }
 
-        //if not check the frame(s) content
-        List<WebElement> frameElements = findElement("tag=iframe", false, false);
+        //if not check the frame(s) content, the page is loaded by now
+        List<WebElement> frameElements = findElement("tag=iframe", null, false, false, 0);
         if(frameElements != null && !frameElements.isEmpty()) {
             for (int i = 0; i < frameElements.size(); i++) {
                 webDriver.switchTo().frame(i);
-                boolean found = isTextPresent(text);
+                boolean found = isTextPresent(text, 0);
                 webDriver.switchTo().defaultContent();
                 if (found) {
                     return true;
@@ -451,13 +483,17 @@ public class PageKeywords extends SeleniumBase {
         return false;
     }
 
-    private boolean isTextPresent(String text) {
+    private boolean isTextPresent(String text, long timeoutMillis) {
         String locator = String.format("xpath=//*[contains(., %s)]", Util.escapeXpathValue(text));
-        return isElementPresent(locator, null);
+        return isElementPresent(locator, null, timeoutMillis);
     }
 
     private boolean isElementPresent(String locator, String tagName) {
-        List<WebElement> elements = findElement(locator, tagName, true, false);
+        return isElementPresent(locator, tagName, driverManager.getElementTimeout());
+    }
+
+    private boolean isElementPresent(String locator, String tagName, long timeoutMillis) {
+        List<WebElement> elements = findElement(locator, tagName, true, false, timeoutMillis);
         return elements != null && !elements.isEmpty();
     }
 
@@ -1,13 +1,12 @@
 package com.rise.autotest.robot.selenium.keywords;
 
+import com.rise.autotest.robot.selenium.util.PageReadiness;
 import com.rise.autotest.robot.util.RobotLogger;
 import org.apache.commons.io.FileUtils;
-import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.support.ui.ExpectedCondition;
-import org.openqa.selenium.support.ui.WebDriverWait;
+import org.openqa.selenium.WebDriverException;
 import org.robotframework.javalib.annotation.ArgumentNames;
 import org.robotframework.javalib.annotation.RobotKeyword;
 import org.robotframework.javalib.annotation.RobotKeywordOverload;
@@ -29,6 +28,7 @@ public class ScreenShotKeywords extends SeleniumBase {
 
     /**
      * Take a screenshot of the current page and embed into the log. <br>
+     * Waits for the page to be ready first, see {@link PageReadiness}. <br>
      *
      * @param fileName  name to be used for the captured screenshot.
      *                  Not mandatory, a new filename will be generated, if not provided.
@@ -46,12 +46,12 @@ public class ScreenShotKeywords extends SeleniumBase {
         }
 
         try {
-            ExpectedCondition<Boolean> pageLoadCondition = driver -> ((JavascriptExecutor)driver)
-                    .executeScript("return document.readyState").equals("complete");
-           /* new WebDriverWait(webDriver,20)
-                    .until(ExpectedConditions.jsReturnsValue("return document.readyState")).equals("complete");*/
-           new WebDriverWait(webDriver, 30).until(pageLoadCondition);
+            PageReadiness.waitUntilReady(webDriver);
+        } catch (WebDriverException e) {
+            RobotLogger.warn(String.format("Capturing screenshot of a page not ready. %s", e.getMessage()));
+        }
 
+        try {
             File screenshot = ((TakesScreenshot) webDriver).getScreenshotAs(OutputType.FILE);
             FileUtils.copyFile(screenshot, destFile);
             RobotLogger.html(String.format(
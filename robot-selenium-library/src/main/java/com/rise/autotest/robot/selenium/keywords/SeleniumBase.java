@@ -1,10 +1,10 @@
 package com.rise.autotest.robot.selenium.keywords;
 
 import com.rise.autotest.robot.selenium.WebDriverManager;
+import com.rise.autotest.robot.selenium.locator.ElementCache;
 import com.rise.autotest.robot.selenium.locator.ElementTag;
-import com.rise.autotest.robot.selenium.locator.Locator;
-import com.rise.autotest.robot.selenium.locator.LocatorContext;
 import com.rise.autotest.robot.selenium.locator.LocatorFactory;
+import com.rise.autotest.robot.selenium.locator.ParsedLocator;
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebElement;
 
@@ -12,6 +12,13 @@ import java.util.Arrays;
 import java.util.List;
 
 abstract class SeleniumBase {
+
+    /**
+     * Time to wait for an element in the checks that it is not in the page, short as the element is not expected.
+     * System property 'robot.element.absent.timeout', in milliseconds, 1000 by default.
+     */
+    static final long ABSENT_ELEMENT_TIMEOUT_MILLIS = Long.getLong("robot.element.absent.timeout", 1000L);
+
     WebDriverManager driverManager = WebDriverManager.instance();
 
     List<WebElement> findElement(String locatorString, boolean firstOnly, boolean required) {
@@ -19,9 +26,12 @@ abstract class SeleniumBase {
     }
 
     List<WebElement> findElement(String locatorString, String tagName, boolean firstOnly, boolean required ) {
+        return findElement(locatorString, tagName, firstOnly, required, driverManager.getElementTimeout());
+    }
 
-
-        List<WebElement> webElements = find(locatorString, ElementTag.fromName(tagName), required);
+    List<WebElement> findElement(String locatorString, String tagName, boolean firstOnly, boolean required,
+                                 long timeoutMillis) {
+        List<WebElement> webElements = find(locatorString, ElementTag.fromName(tagName), required, timeoutMillis);
 
         if(firstOnly && webElements.size() > 1) {
             return Arrays.asList(webElements.get(0));
@@ -33,27 +43,8 @@ abstract class SeleniumBase {
         ((JavascriptExecutor) driverManager.getCurrent()).executeScript(script, objects);
     }
 
-    private List<WebElement> find(String locatorString, ElementTag tagName, boolean required) {
-        Locator locator = LocatorFactory.instance().parseLocator(locatorString);
-        LocatorContext context = buildContext(locatorString, tagName, required);
-        return locator.find(driverManager.getCurrent(), context);
-    }
-
-    private LocatorContext buildContext(String locatorString, ElementTag tagName, boolean required) {
-        LocatorContext context = new LocatorContext();
-        context.setRequired(required);
-
-        String criteria = locatorString;
-        String[] locatorParts = locatorString.split("=", 2);
-        if (locatorParts.length == 2) {
-            criteria = locatorParts[1];
-        }
-        context.setCriteria(criteria);
-
-        if(tagName != null) {
-            context.setTag(tagName);
-        }
-
-        return context;
+    private List<WebElement> find(String locatorString, ElementTag tagName, boolean required, long timeoutMillis) {
+        ParsedLocator locator = LocatorFactory.instance().parse(locatorString, tagName);
+        return ElementCache.instance().find(driverManager.getCurrent(), locator, required, timeoutMillis);
     }
 }
\ No newline at end of file
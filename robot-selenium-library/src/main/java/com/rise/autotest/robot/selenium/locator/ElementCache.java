@@ -0,0 +1,290 @@
+package com.rise.autotest.robot.selenium.locator;
+
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.WrapsElement;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Remembers the elements found by each locator, per session, while the DOM they were found in does not change.<br>
+ * <br>
+ * A script installs a MutationObserver in each document, which counts the changes of the DOM, and tags the document
+ * with a random id. The id and count, read with one script call, identify both the document, i.e. the window, the frame
+ * and the page after a navigation, and its version: a lookup by a locator already found in the same document and
+ * version returns the same elements without looking them up or waiting for them again. The cached elements re-resolve
+ * themselves, once, if they turn stale anyway.<br>
+ * <br>
+ * Up to {@value #MAX_CACHED_LOCATORS} locators are cached per session. Disabled with the system property
+ * 'robot.element.cache' set to false, and for the drivers that do not run scripts.<br>
+ * <br>
+ * The observer sees the attributes and the content of the DOM, not the properties or the state of the elements: the
+ * value typed, checked, selected, focus, hover, visibility. The CSS locators using a state pseudo-class, e.g.
+ * {@code input:checked} or {@code a:hover}, and the jQuery (Sizzle) locators, e.g. {@code :visible}, are therefore
+ * always looked up.<br>
+ * <br>
+ * Each cached lookup costs a script call for the version. On a page that changes all the time, e.g. a single page
+ * application with polling or animations, the cached elements are mostly outdated: after
+ * {@value #MAX_STALE_IN_A_ROW} outdated lookups in a row, the next {@value #BYPASSED_LOOKUPS} lookups of the session go
+ * straight to the browser, without reading the version.
+ */
+@Slf4j
+public final class ElementCache {
+
+    private static final int MAX_CACHED_LOCATORS = 256;
+    private static final int MAX_STALE_IN_A_ROW = 8;
+    private static final int BYPASSED_LOOKUPS = 32;
+    private static final Pattern STATE_PSEUDO_CLASS = Pattern.compile(":(checked|selected|enabled|disabled|focus"
+            + "|focus-within|focus-visible|hover|active|target|visited|link|any-link|valid|invalid|in-range"
+            + "|out-of-range|required|optional|read-only|read-write|placeholder-shown|indeterminate|default)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    static final String VERSION_SCRIPT = "var d = document, v = d.__robotDom;"
+            + "if (!v && window.MutationObserver) {"
+            + " v = d.__robotDom = {id: Math.random().toString(36).slice(2), version: 0};"
+            + " new MutationObserver(function () { v.version++; }).observe(d,"
+            + "  {childList: true, subtree: true, attributes: true, characterData: true}); }"
+            + "return v ? v.id + ':' + v.version : null;";
+
+    private static final ElementCache elementCache =
+            new ElementCache(Boolean.parseBoolean(System.getProperty("robot.element.cache", "true")));
+
+    private final boolean enabled;
+    // the elements hold their driver: the entries of a driver are removed when its session is closed
+    private final Map<WebDriver, SessionEntries> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     * @param enabled   false to always look the elements up
+     */
+    ElementCache(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return  the element cache of the library.
+     */
+    public static ElementCache instance() {
+        return elementCache;
+    }
+
+    /**
+     * Finds the elements, from the cache if the locator was found in the current document and it did not change since.
+     *
+     * @param webDriver current webdriver instance
+     * @param locator   the parsed locator
+     * @param required  true to fail if no element is found
+     * @param timeoutMillis time to wait for the elements
+     * @return  the elements found, empty if none found and not required
+     */
+    public List<WebElement> find(WebDriver webDriver, ParsedLocator locator, boolean required, long timeoutMillis) {
+        if (!enabled || !isCacheable(locator)) {
+            return locator.find(webDriver, required, timeoutMillis);
+        }
+        SessionEntries entries = sessions.computeIfAbsent(webDriver, driver -> new SessionEntries());
+        if (entries.bypass()) {
+            return locator.find(webDriver, required, timeoutMillis);
+        }
+        String version = domVersion(webDriver);
+        if (version == null) {
+            return locator.find(webDriver, required, timeoutMillis);
+        }
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(locator);
+        }
+        if (entry != null && entry.version.equals(version)) {
+            entries.hit();
+            log.debug("Located {} elements by '{}' from the cache", entry.elements.size(),
+                    locator.getContext().getCriteria());
+            return entry.elements;
+        }
+        if (entry != null) {
+            entries.stale();
+        }
+
+        List<WebElement> elements = locator.find(webDriver, required, timeoutMillis);
+        if (elements.isEmpty()) {
+            return elements;
+        }
+        List<WebElement> resolving = new ArrayList<>(elements.size());
+        for (int i = 0; i < elements.size(); i++) {
+            resolving.add(resolving(webDriver, locator, timeoutMillis, elements.get(i), i));
+        }
+        resolving = Collections.unmodifiableList(resolving);
+        synchronized (entries) {
+            entries.put(locator, new Entry(version, resolving));
+        }
+        return resolving;
+    }
+
+    /**
+     * Forgets the elements found with the driver, when its session is closed.
+     *
+     * @param webDriver the driver
+     */
+    public void invalidate(WebDriver webDriver) {
+        sessions.remove(webDriver);
+    }
+
+    /**
+     * @param locator   the parsed locator
+     * @return  false if the elements it finds depend on a state the DOM version does not follow
+     */
+    static boolean isCacheable(ParsedLocator locator) {
+        Locator strategy = locator.getLocator();
+        if (strategy instanceof Locators.SizzleLocator) {
+            return false;
+        }
+        return !(strategy instanceof Locators.CssLocator)
+                || !STATE_PSEUDO_CLASS.matcher(locator.getContext().getCriteria()).find();
+    }
+
+    // the id and version of the current document, null if not known
+    private static String domVersion(WebDriver webDriver) {
+        if (!(webDriver instanceof JavascriptExecutor)) {
+            return null;
+        }
+        try {
+            Object version = ((JavascriptExecutor) webDriver).executeScript(VERSION_SCRIPT);
+            return version instanceof String ? (String) version : null;
+        } catch (WebDriverException e) {
+            // e.g. an alert is open: the lookup itself reports it
+            log.debug("Unable to read the DOM version", e);
+            return null;
+        }
+    }
+
+    private static WebElement resolving(WebDriver webDriver, ParsedLocator locator, long timeoutMillis,
+                                        WebElement element, int index) {
+        // the Selenium interfaces of the element, e.g. Locatable for the actions
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        interfaces.add(WebElement.class);
+        for (Class<?> type = element.getClass(); type != null; type = type.getSuperclass()) {
+            for (Class<?> implemented : type.getInterfaces()) {
+                if (implemented.getName().startsWith("org.openqa.selenium.")) {
+                    interfaces.add(implemented);
+                }
+            }
+        }
+        interfaces.add(WrapsElement.class);
+        return (WebElement) Proxy.newProxyInstance(ElementCache.class.getClassLoader(),
+                interfaces.toArray(new Class<?>[0]),
+                new ResolvingElement(webDriver, locator, timeoutMillis, element, index));
+    }
+
+    private static class Entry {
+        private final String version;
+        private final List<WebElement> elements;
+
+        Entry(String version, List<WebElement> elements) {
+            this.version = version;
+            this.elements = elements;
+        }
+    }
+
+    /**
+     * The cached locators of a session, least recently used first, and how many of them were outdated in a row.
+     */
+    private static class SessionEntries extends LinkedHashMap<ParsedLocator, Entry> {
+        private int staleInARow;
+        private int bypassed;
+
+        SessionEntries() {
+            super(16, 0.75f, true);
+        }
+
+        synchronized boolean bypass() {
+            if (bypassed == 0) {
+                return false;
+            }
+            bypassed--;
+            return true;
+        }
+
+        synchronized void hit() {
+            staleInARow = 0;
+        }
+
+        synchronized void stale() {
+            if (++staleInARow >= MAX_STALE_IN_A_ROW) {
+                staleInARow = 0;
+                bypassed = BYPASSED_LOOKUPS;
+            }
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ParsedLocator, Entry> eldest) {
+            return size() > MAX_CACHED_LOCATORS;
+        }
+    }
+
+    /**
+     * Calls the element found, and finds it again by its locator and position if it is stale.
+     */
+    private static class ResolvingElement implements InvocationHandler {
+        private final WebDriver webDriver;
+        private final ParsedLocator locator;
+        private final long timeoutMillis;
+        private final int index;
+        private volatile WebElement element;
+
+        ResolvingElement(WebDriver webDriver, ParsedLocator locator, long timeoutMillis, WebElement element,
+                         int index) {
+            this.webDriver = webDriver;
+            this.locator = locator;
+            this.timeoutMillis = timeoutMillis;
+            this.element = element;
+            this.index = index;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == WrapsElement.class) {
+                return element;
+            }
+            if (method.getDeclaringClass() == Object.class) {
+                if (method.getName().equals("equals")) {
+                    Object other = args[0] instanceof WrapsElement ? ((WrapsElement) args[0]).getWrappedElement()
+                            : args[0];
+                    return element.equals(other);
+                }
+                return method.invoke(element, args);
+            }
+            try {
+                return method.invoke(element, args);
+            } catch (InvocationTargetException e) {
+                if (!(e.getCause() instanceof StaleElementReferenceException)) {
+                    throw e.getCause();
+                }
+                List<WebElement> found = locator.find(webDriver, false, timeoutMillis);
+                if (found.size() <= index) {
+                    throw e.getCause();
+                }
+                log.debug("Located the stale element {} by '{}' again", index, locator.getContext().getCriteria());
+                element = found.get(index);
+            }
+            try {
+                return method.invoke(element, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
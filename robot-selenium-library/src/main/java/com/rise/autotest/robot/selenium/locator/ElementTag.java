@@ -1,52 +1,79 @@
 package com.rise.autotest.robot.selenium.locator;
 
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * The tag, and attributes, that located elements must have. Immutable: the tags of {@link StdTags} are shared.
+ */
 @Getter
-public class ElementTag {
-    private final String tagName;
-    private final Map<String, String> attributes = new HashMap<>();
+@EqualsAndHashCode
+public final class ElementTag {
 
-    private ElementTag(String tagName) {
-        this.tagName = tagName;
+    private static final Map<String, ElementTag> STANDARD_TAGS = new HashMap<>();
+
+    static {
+        for (StdTags tag : StdTags.values()) {
+            STANDARD_TAGS.put(tag.name(), new ElementTag(tag.getTagName(), tag.getType() == null
+                    ? Collections.emptyMap() : Collections.singletonMap("type", tag.getType())));
+        }
     }
 
-    private ElementTag(String tagName, String attrName, String attrVal) {
+    private final String tagName;
+    private final Map<String, String> attributes;
+
+    private ElementTag(String tagName, Map<String, String> attributes) {
         this.tagName = tagName;
-        if(attrName != null && attrVal != null) {
-            this.attributes.put(attrName, attrVal);
-        }
+        this.attributes = attributes;
     }
 
+    /**
+     * @param tagName   a name of {@link StdTags}, in any case, or an html tag name
+     * @return  the tag, null if no name.
+     */
     public static ElementTag fromName(String tagName) {
         if(tagName == null || tagName.isEmpty()) {
             return  null;
         }
-        try {
-            StdTags tag =  StdTags.valueOf(tagName.toUpperCase());
-            return new ElementTag(tag.getTagName(), "type", tag.getType());
-        } catch (IllegalArgumentException ex) {
-            //ignore
+        ElementTag tag = STANDARD_TAGS.get(tagName);
+        if (tag == null) {
+            tag = STANDARD_TAGS.get(tagName.toUpperCase());
         }
-        return new ElementTag(tagName);
+        return tag != null ? tag : new ElementTag(tagName, Collections.emptyMap());
     }
 
-    public void addAttribute(String attrName, String attrVal) {
-        this.attributes.put(attrName, attrVal);
+    /**
+     * @return  a copy of this tag with the attribute.
+     */
+    public ElementTag withAttribute(String attrName, String attrVal) {
+        return withAttributes(Collections.singletonMap(attrName, attrVal));
     }
 
-    public void addAttributes(Map<String, String> attributes) {
-        if(attributes != null && !attributes.isEmpty()) {
-            this.attributes.putAll(attributes);
+    /**
+     * @return  a copy of this tag with the attributes.
+     */
+    public ElementTag withAttributes(Map<String, String> attributes) {
+        if(attributes == null || attributes.isEmpty()) {
+            return this;
         }
+        Map<String, String> allAttributes = new HashMap<>(this.attributes);
+        allAttributes.putAll(attributes);
+        return new ElementTag(tagName, Collections.unmodifiableMap(allAttributes));
     }
 
-    public void removeAttribute(String attrName) {
-        this.attributes.remove(attrName);
+    /**
+     * @return  a copy of this tag without the attribute.
+     */
+    public ElementTag withoutAttribute(String attrName) {
+        if (!attributes.containsKey(attrName)) {
+            return this;
+        }
+        Map<String, String> allAttributes = new HashMap<>(attributes);
+        allAttributes.remove(attrName);
+        return new ElementTag(tagName, Collections.unmodifiableMap(allAttributes));
     }
-
-
 }
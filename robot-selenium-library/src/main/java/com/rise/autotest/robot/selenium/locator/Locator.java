@@ -12,7 +12,7 @@ public interface Locator {
      * Locate an element using the <b>webDriver</b> instance.
      * Implementations of this interface will provide different strategies to locate an element in a page.
      * <br>
-     * Uses implicit waits to wait for element availability. See{@link org.openqa.selenium.support.ui.WebDriverWait}
+     * Waits for the element availability up to the timeout of the <b>context</b>.
      *
      * @param webDriver  the web driver session to use.
      * @param context   the context provides the criteria to locate the element. {@link LocatorContext}
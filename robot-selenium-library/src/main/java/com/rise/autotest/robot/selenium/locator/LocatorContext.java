@@ -1,12 +1,49 @@
 package com.rise.autotest.robot.selenium.locator;
 
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.Setter;
+import org.openqa.selenium.By;
 
+/**
+ * What a lookup looks for: the criteria of the locator, the tag of the elements, the query the locator built from
+ * them, and how long to wait. Immutable, the lookups by the same locator share it, see {@link LocatorFactory}.
+ */
 @Getter
-@Setter
-public class LocatorContext {
-    private String criteria;
-    private ElementTag tag;
-    private boolean required;
+public final class LocatorContext {
+    private final String criteria;
+    private final ElementTag tag;
+    private final boolean required;
+    private final long timeoutMillis;
+    // the query built by the locator, null if it runs several
+    @Getter(AccessLevel.PACKAGE)
+    private final By by;
+    // what the query does not match of the tag, to filter the found elements by
+    @Getter(AccessLevel.PACKAGE)
+    private final ElementTag filter;
+
+    LocatorContext(String criteria, ElementTag tag, By by, ElementTag filter) {
+        this(criteria, tag, by, filter, false, Locators.DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    private LocatorContext(String criteria, ElementTag tag, By by, ElementTag filter, boolean required,
+                           long timeoutMillis) {
+        this.criteria = criteria;
+        this.tag = tag;
+        this.by = by;
+        this.filter = filter;
+        this.required = required;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @param required  true to fail if no element is found
+     * @param timeoutMillis time to wait for the elements
+     * @return  this context, or a copy if it waits differently.
+     */
+    public LocatorContext withWait(boolean required, long timeoutMillis) {
+        if (required == this.required && timeoutMillis == this.timeoutMillis) {
+            return this;
+        }
+        return new LocatorContext(criteria, tag, by, filter, required, timeoutMillis);
+    }
 }
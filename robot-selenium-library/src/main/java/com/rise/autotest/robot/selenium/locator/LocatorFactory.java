@@ -1,9 +1,25 @@
 package com.rise.autotest.robot.selenium.locator;
 
+import lombok.EqualsAndHashCode;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parses the locator strings: 'strategy=criteria', or an XPath starting with '//', or an id.<br>
+ * <br>
+ * The parsed locators are cached by locator string and tag, up to {@value #MAX_CACHED_LOCATORS} of them (system
+ * property 'robot.locator.cache'): the lookups by a locator already used do not parse it or build its query again.
+ */
 public class LocatorFactory {
 
+    private static final int MAX_CACHED_LOCATORS = 4096;
+
     private static LocatorFactory locatorFactory;
 
+    private final int maxCachedLocators = Integer.getInteger("robot.locator.cache", MAX_CACHED_LOCATORS);
+    private final Map<CacheKey, ParsedLocator> parsed = new ConcurrentHashMap<>();
+
     //TODO: should be singletons??
     private Locators.IdLocator idLocator = new Locators.IdLocator();
     private Locators.NameLocator nameLocator = new Locators.NameLocator();
@@ -33,18 +49,48 @@ public class LocatorFactory {
     }
 
     public Locator parseLocator(String locator) {
+        return parse(locator, null).getLocator();
+    }
+
+    /**
+     * Parses a locator string for a tag, or gets it from the cache.
+     *
+     * @param locator   the locator string
+     * @param tag   the tag of the elements to find, optional
+     * @return  the parsed locator, ready to find the elements
+     * @throws IllegalArgumentException if the locator strategy is unknown.
+     */
+    public ParsedLocator parse(String locator, ElementTag tag) {
+        CacheKey key = new CacheKey(locator, tag);
+        ParsedLocator parsedLocator = parsed.get(key);
+        if (parsedLocator == null) {
+            parsedLocator = newParsedLocator(locator, tag);
+            // past the limit, e.g. locators built with changing values, they are parsed on every lookup
+            if (parsed.size() < maxCachedLocators) {
+                parsed.putIfAbsent(key, parsedLocator);
+            }
+        }
+        return parsedLocator;
+    }
+
+    private ParsedLocator newParsedLocator(String locator, ElementTag tag) {
         LocatorType locatorType = LocatorType.DEFAULT;
+        String criteria = locator;
 
         if(locator.startsWith("//")) {
             locatorType = LocatorType.XPATH;
         } else if(locator.indexOf('=') != -1) {
             String[] locatorParts = locator.split("=", 2);
-            if (locatorParts.length == 2) {
-                String type = locatorParts[0].trim().toUpperCase();
-                locatorType = LocatorType.valueOf(type);
-            }
+            String type = locatorParts[0].trim().toUpperCase();
+            locatorType = LocatorType.valueOf(type);
+            criteria = locatorParts[1];
         }
 
+        Locators strategy = locatorOf(locatorType);
+        return new ParsedLocator(strategy, strategy.context(criteria, tag));
+    }
+
+    private Locators locatorOf(LocatorType locatorType) {
         switch (locatorType) {
             case ID:
                 return idLocator;
@@ -69,4 +115,15 @@ public class LocatorFactory {
                 return idLocator;
         }
     }
+
+    @EqualsAndHashCode
+    private static class CacheKey {
+        private final String locator;
+        private final ElementTag tag;
+
+        CacheKey(String locator, ElementTag tag) {
+            this.locator = locator;
+            this.tag = tag;
+        }
+    }
 }
@@ -1,116 +1,169 @@
 package com.rise.autotest.robot.selenium.locator;
 
-import org.apache.commons.collections.CollectionUtils;
+import lombok.extern.slf4j.Slf4j;
 import org.openqa.selenium.By;
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The locator strategies.<br>
+ * <br>
+ * A lookup first tries to find the elements at once, and only polls the page when nothing was found: the elements
+ * already in the page cost a single WebDriver command. See {@link #poll(WebDriver, LocatorContext, Function)}.<br>
+ * <br>
+ * The id, name, XPath and CSS locators put the tag of the context in their query when they can, see
+ * {@link TagQueries}: the browser then only returns the matching elements.
+ */
+@Slf4j
 public abstract class Locators implements Locator {
 
-    private static final long DEFAULT_WAIT_SLEEP_MILLIS = 100L;
-    private static final int DEFAULT_WAIT_SECS = 20;
+    /**
+     * Time to wait for an element, unless set for the session or the lookup. System property 'robot.element.timeout',
+     * in seconds, 20 by default.
+     */
+    public static final long DEFAULT_TIMEOUT_MILLIS =
+            TimeUnit.SECONDS.toMillis(Long.getLong("robot.element.timeout", 20L));
+
+    private static final long INITIAL_BACKOFF_MILLIS = 50L;
+    private static final long MAX_BACKOFF_MILLIS = 1000L;
+
+    // like WebElement.getAttribute: the property if there is one, e.g. 'type' is 'text' for an input without type
+    private static final String FILTER_SCRIPT = "var elements = arguments[0], tag = arguments[1].toLowerCase(),"
+            + " attributes = arguments[2], result = [];"
+            + "function value(element, name) {"
+            + " var property = element[name];"
+            + " if (property !== undefined && property !== null && typeof property !== 'object'"
+            + "   && typeof property !== 'function') { return String(property); }"
+            + " return element.getAttribute(name); }"
+            + "outer: for (var i = 0; i < elements.length; i++) {"
+            + " var element = elements[i];"
+            + " if (!element.tagName || element.tagName.toLowerCase() !== tag) { continue; }"
+            + " for (var name in attributes) {"
+            + "  if (attributes.hasOwnProperty(name) && value(element, name) !== attributes[name]) { continue outer; }"
+            + " }"
+            + " result.push(element); }"
+            + "return result;";
 
     /**
      * Filter elements based on tag name and additional element attributes.
-     * Retrieves the list of attributes to filter from the LocatorContext
+     * Retrieves the list of attributes to filter from the LocatorContext, those its query does not match<br>
+     * <br>
+     * The elements are filtered in the browser, with a single script call whatever the number of elements, or one by
+     * one if the driver does not run scripts.
+     * @param webDriver  current webdriver instance
      * @param context {@code LocatorContext}
      * @param elements  web elements to filter
+     * @return  the elements matching the tag, in the same order
      */
-    void filter(LocatorContext context, List<WebElement> elements) {
-        if( elements == null || elements.isEmpty() || context == null || context.getTag() == null) {
-            return;
+    List<WebElement> filter(WebDriver webDriver, LocatorContext context, List<WebElement> elements) {
+        if( elements == null || elements.isEmpty() || context == null || context.getFilter() == null) {
+            return elements;
         }
-        //List<WebElement> result = new ArrayList<>();
-        Map<String, String> attributes = context.getTag().getAttributes();
-
-        Iterator<WebElement> itr = elements.iterator();
-        while(itr.hasNext()) {
-            WebElement element = itr.next();
-            if (!element.getTagName().equalsIgnoreCase(context.getTag().getTagName())) {
-                itr.remove();
-                continue;
+        ElementTag tag = context.getFilter();
+        if (webDriver instanceof JavascriptExecutor) {
+            Object matching = ((JavascriptExecutor) webDriver).executeScript(FILTER_SCRIPT, elements,
+                    tag.getTagName(), tag.getAttributes());
+            return matching instanceof List ? (List<WebElement>) matching : Collections.emptyList();
+        }
+
+        List<WebElement> result = new ArrayList<>();
+        for (WebElement element : elements) {
+            if (element.getTagName().equalsIgnoreCase(tag.getTagName()) && hasAttributes(element, tag)) {
+                result.add(element);
             }
-            if(!attributes.isEmpty()) {
-                for (Map.Entry<String, String> entry : attributes.entrySet()) {
-                    if (!element.getAttribute(entry.getKey()).equals(attributes.get(entry.getKey()))) {
-                        itr.remove();
-                        break;
-                    }
-                }
+        }
+        return result;
+    }
+
+    private static boolean hasAttributes(WebElement element, ElementTag tag) {
+        for (Map.Entry<String, String> entry : tag.getAttributes().entrySet()) {
+            if (!entry.getValue().equals(element.getAttribute(entry.getKey()))) {
+                return false;
             }
         }
+        return true;
+    }
 
-        /*result = elements.stream().filter(element -> {
-            if (!element.getTagName().toLowerCase().equals(context.getTag().getTagName())) {
-                return true;
+    /**
+     * Finds the elements with <b>lookup</b>: one immediate attempt, then, while nothing is found, attempts with an
+     * exponential backoff from {@value #INITIAL_BACKOFF_MILLIS} ms up to {@value #MAX_BACKOFF_MILLIS} ms until the
+     * timeout of the <b>context</b>. The elements are filtered once found, see
+     * {@link #filter(WebDriver, LocatorContext, List)}.
+     * @param webDriver  current webdriver instance
+     * @param context   the timeout and filters
+     * @param lookup    finds the elements, with one or more WebDriver commands
+     * @return  the elements, empty if none found and not required
+     * @throws TimeoutException if the element is required and was not found within the timeout.
+     */
+    List<WebElement> poll(WebDriver webDriver, LocatorContext context, Function<WebDriver, List<WebElement>> lookup) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(Math.max(0, context.getTimeoutMillis()));
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        int attempts = 0;
+        List<WebElement> elements;
+        while (true) {
+            attempts++;
+            elements = lookup.apply(webDriver);
+            long remaining = deadline - System.nanoTime();
+            if (!elements.isEmpty() || remaining <= 0) {
+                break;
             }
-            if(!attributes.isEmpty()) {
-                for (String name : attributes.keySet()) {
-                    if (!element.getAttribute(name).equals(attributes.get(name))) {
-                       return true;
-                    }
-                }
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.min(TimeUnit.MILLISECONDS.toNanos(backoff), remaining));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
             }
-            return false;
-        }).collect(Collectors.toList());*/
-
-        /*for(WebElement element : elements) {
-            if (element.getTagName().toLowerCase().equals(context.getTag().getTagName())) {
-                if(context.getTag().getAttributes().isEmpty()) {
-                    result.add(element);
-                } else {
-                    for (String name : attributes.keySet()) {
-                        if (element.getAttribute(name).equals(attributes.get(name))) {
-                            result.add(element);
-                        }
-                    }
-                }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+        log.debug("Located {} elements by '{}' in {} attempts and {} ms", elements.size(), context.getCriteria(),
+                attempts, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        if (elements.isEmpty()) {
+            if (context.isRequired()) {
+                throw new TimeoutException(String.format("Element '%s' not found after %d ms",
+                        context.getCriteria(), context.getTimeoutMillis()));
             }
+            return Collections.emptyList();
         }
-        return result;*/
-        //return result;
+        return filter(webDriver, context, elements);
     }
 
     /**
-     * Explicit WebDriver wait, to wait for an element availability or clickability etc.. in the current instance.
-     * By default waits for 10 secs with 100millis delay between each attempts.
-     * @param webDriver  current webdriver instance
-     * @return {@link WebDriverWait} with default wait and delay value
+     * Builds the context of the lookups by <b>criteria</b> for <b>tag</b>, once for all the lookups. The locators
+     * with a single query build it here, matching the tag in it when they can, see {@link TagQueries}.
+     * @param criteria  the locator, without its prefix
+     * @param tag   the tag of the elements, optional
+     * @return  the context, to pass to {@link #find(WebDriver, LocatorContext)} with its wait set
      */
-    WebDriverWait wait(WebDriver webDriver) {
-        return wait(webDriver, DEFAULT_WAIT_SECS, DEFAULT_WAIT_SLEEP_MILLIS);
+    LocatorContext context(String criteria, ElementTag tag) {
+        return new LocatorContext(criteria, tag, null, tag);
     }
 
     /**
-     * Explicit WebDriver wait, to wait for an element availability or clickability etc.. in the current instance.
-     * By default waits for 10 secs with 100millis delay between each attempts.
-     * @param webDriver  current webdriver instance
-     * @param timeout timeout in secs
-     * @return {@link WebDriverWait} with default wait and delay value
+     * @return  the context with the query: <b>tagQuery</b>, which matches the tag, or else <b>by</b> and a filter.
      */
-    WebDriverWait wait(WebDriver webDriver, int timeout) {
-        return wait(webDriver, timeout, DEFAULT_WAIT_SLEEP_MILLIS);
+    static LocatorContext context(String criteria, ElementTag tag, By by, By tagQuery) {
+        return tagQuery == null ? new LocatorContext(criteria, tag, by, tag)
+                : new LocatorContext(criteria, tag, tagQuery, null);
     }
 
     /**
-     * Explicit WebDriver wait, to wait for an element availability or clickability etc.. in the current instance.
-     * @param webDriver  current webdriver instance
-     * @param timeout   timeout in secs
-     * @param sleep sleep delay in millis
-     * @return {@link WebDriverWait} with default wait and delay value
+     * Finds the elements by the query of the context.
      */
-    WebDriverWait wait(WebDriver webDriver, int timeout, long sleep) {
-        return new WebDriverWait(webDriver,timeout, sleep);
+    List<WebElement> findByQuery(WebDriver webDriver, LocatorContext context) {
+        return poll(webDriver, context, driver -> driver.findElements(context.getBy()));
     }
 
     /**
@@ -119,18 +172,13 @@ public abstract class Locators implements Locator {
      */
     public static class XPathLocator extends Locators {
 
+        @Override LocatorContext context(String criteria, ElementTag tag) {
+            String query = TagQueries.xpath(criteria, tag);
+            return context(criteria, tag, By.xpath(criteria), query == null ? null : By.xpath(query));
+        }
+
         @Override public List<WebElement> find(WebDriver webDriver, LocatorContext context) {
-            List<WebElement> elements = null;
-            try {
-                elements = wait(webDriver).until(
-                        ExpectedConditions.presenceOfAllElementsLocatedBy(By.xpath(context.getCriteria())));
-                filter(context, elements);
-            } catch (TimeoutException ex) {
-                if(context.isRequired()) {
-                    throw  ex;
-                }
-            }
-            return elements == null? Collections.emptyList() : elements;
+            return findByQuery(webDriver, context);
         }
     }
 
@@ -139,20 +187,13 @@ public abstract class Locators implements Locator {
      * Gets the 'name' value from {@code LocatorContext}
      */
     public static class NameLocator extends Locators {
-        @Override public List<WebElement> find(WebDriver webDriver, LocatorContext context) {
+        @Override LocatorContext context(String criteria, ElementTag tag) {
+            String query = TagQueries.xpathByAttribute("name", criteria, tag);
+            return context(criteria, tag, By.name(criteria), query == null ? null : By.xpath(query));
+        }
 
-            List<WebElement> elements = null;
-            try {
-                elements = wait(webDriver).until(
-                        ExpectedConditions.presenceOfAllElementsLocatedBy(By.name(context.getCriteria()))
-                );
-                filter(context, elements);
-            } catch (TimeoutException ex) {
-                if(context.isRequired()) {
-                    throw  ex;
-                }
-            }
-            return elements == null? Collections.emptyList() : elements;
+        @Override public List<WebElement> find(WebDriver webDriver, LocatorContext context) {
+            return findByQuery(webDriver, context);
         }
     }
 
@@ -162,123 +203,118 @@ public abstract class Locators implements Locator {
      */
     public static class IdLocator extends Locators {
 
+        @Override LocatorContext context(String criteria, ElementTag tag) {
+            String query = TagQueries.xpathByAttribute("id", criteria, tag);
+            return context(criteria, tag, By.id(criteria), query == null ? null : By.xpath(query));
+        }
+
         @Override public List<WebElement> find(WebDriver webDriver, LocatorContext context) {
-            List<WebElement> elements = null;
-            try {
-                elements = wait(webDriver)
-                        .until(ExpectedConditions.presenceOfAllElementsLocatedBy(By.id(context.getCriteria())));
-                filter(context, elements);
-            } catch (TimeoutException ex) {
-                if(context.isRequired()) {
-                    throw  ex;
-                }
-            }
-            return elements == null? Collections.emptyList() : elements;
+            return findByQuery(webDriver, context);
         }
     }
 
     /**
-     * Locator to find elements by its 'id' or 'name' attribute. Uses Selenium {@code By.id} and {@code By.name}
+     * Locator to find elements by its 'id' or 'name' attribute: the element with the id first, then the elements with
+     * the name. They are found with a single script call, or with {@code By.id} then {@code By.name} if the driver
+     * does not run scripts.
      * Gets the 'id' or 'name' value from {@code LocatorContext}
      */
     public static class IdOrNameLocator extends Locators {
 
-        @Override public List<WebElement> find(WebDriver webDriver, LocatorContext context) {
-            List<WebElement> elementsById = null;
-            List<WebElement> elementsByName = null;
-            List<WebElement> elements = null;
-            try {
-                elementsById = wait(webDriver)
-                        .until(ExpectedConditions.presenceOfAllElementsLocatedBy(By.id(context.getCriteria())));
+        private static final String ID_OR_NAME_SCRIPT = "var value = arguments[0],"
+                + " element = document.getElementById(value), result = element ? [element] : [],"
+                + " named = document.getElementsByName(value);"
+                + "for (var i = 0; i < named.length; i++) {"
+                + " if (named[i] !== element) { result.push(named[i]); } }"
+                + "return result;";
 
-                elementsByName = wait(webDriver)
-                        .until(ExpectedConditions.presenceOfAllElementsLocatedBy(By.name(context.getCriteria())));
-
-                elements = (List<WebElement>)CollectionUtils.union(elementsById, elementsByName);
-                filter(context, elements);
-            } catch (TimeoutException ex) {
-                if(context.isRequired()) {
-                    throw  ex;
-                }
+        @Override public List<WebElement> find(WebDriver webDriver, LocatorContext context) {
+            if (webDriver instanceof JavascriptExecutor) {
+                return poll(webDriver, context, driver -> {
+                    Object elements = ((JavascriptExecutor) driver).executeScript(ID_OR_NAME_SCRIPT,
+                            context.getCriteria());
+                    return elements instanceof List ? (List<WebElement>) elements : Collections.emptyList();
+                });
             }
-            return elements == null? Collections.emptyList() : elements;
+            return poll(webDriver, context, driver -> {
+                Set<WebElement> elements = new LinkedHashSet<>(driver.findElements(By.id(context.getCriteria())));
+                elements.addAll(driver.findElements(By.name(context.getCriteria())));
+                return new ArrayList<>(elements);
+            });
         }
     }
 
-
+    /**
+     * Locator to find links by their text, or by part of their text if none has the exact text. The links are found
+     * with a single script call, or with {@code By.linkText} then {@code By.partialLinkText} if the driver does not
+     * run scripts.
+     */
     public static class LinkTextLocator extends Locators {
 
+        // the rendered text, trimmed and with non-breaking spaces as spaces, like WebElement.getText
+        private static final String LINK_TEXT_SCRIPT = "var text = arguments[0],"
+                + " links = document.getElementsByTagName('a'), exact = [], partial = [];"
+                + "for (var i = 0; i < links.length; i++) {"
+                + " var link = links[i], linkText = link.innerText !== undefined ? link.innerText : link.textContent;"
+                + " linkText = (linkText || '').replace(/\\u00a0/g, ' ').replace(/^\\s+|\\s+$/g, '');"
+                + " if (linkText === text) { exact.push(link); }"
+                + " else if (linkText.indexOf(text) >= 0) { partial.push(link); } }"
+                + "return exact.length ? exact : partial;";
+
         @Override public List<WebElement> find(WebDriver webDriver, LocatorContext context) {
-            List<WebElement> elements = null;
-            try {
+            if (webDriver instanceof JavascriptExecutor) {
+                return poll(webDriver, context, driver -> {
+                    Object links = ((JavascriptExecutor) driver).executeScript(LINK_TEXT_SCRIPT, context.getCriteria());
+                    return links instanceof List ? (List<WebElement>) links : Collections.emptyList();
+                });
+            }
+            return poll(webDriver, context, driver -> {
                 //check for link text
-                elements = wait(webDriver)
-                        .until(ExpectedConditions.presenceOfAllElementsLocatedBy(By.linkText(context.getCriteria())));
-
+                List<WebElement> elements = driver.findElements(By.linkText(context.getCriteria()));
                 //check for partial link text
-                if(elements == null || elements.isEmpty()) {
-                    elements = wait(webDriver).until(
-                            ExpectedConditions.presenceOfAllElementsLocatedBy(By.partialLinkText(context.getCriteria())));
-                }
-                filter(context, elements);
-            } catch (TimeoutException ex) {
-                if(context.isRequired()) {
-                    throw  ex;
+                if (elements.isEmpty()) {
+                    elements = driver.findElements(By.partialLinkText(context.getCriteria()));
                 }
-            }
-            return elements == null? Collections.emptyList() : elements;
+                return elements;
+            });
         }
     }
 
     public static class CssLocator extends Locators {
 
-        @Override public List<WebElement> find(WebDriver webDriver, LocatorContext context) {
-            List<WebElement> elements = null;
-            try {
-                elements = wait(webDriver)
-                        .until(ExpectedConditions.presenceOfAllElementsLocatedBy(By.cssSelector(context.getCriteria())));
-                filter(context, elements);
-            } catch (TimeoutException ex) {
-                if(context.isRequired()) {
-                    throw  ex;
-                }
+        @Override LocatorContext context(String criteria, ElementTag tag) {
+            String query = TagQueries.css(criteria, tag);
+            if (query == null) {
+                return new LocatorContext(criteria, tag, By.cssSelector(criteria), tag);
             }
-            return elements == null? Collections.emptyList() : elements;
+            // the attributes of the tag are not in the selector
+            return new LocatorContext(criteria, tag, By.cssSelector(query), tag.getAttributes().isEmpty() ? null : tag);
+        }
+
+        @Override public List<WebElement> find(WebDriver webDriver, LocatorContext context) {
+            return findByQuery(webDriver, context);
         }
     }
 
     public static class ClassNameLocator extends Locators {
 
+        @Override LocatorContext context(String criteria, ElementTag tag) {
+            return new LocatorContext(criteria, tag, By.className(criteria), tag);
+        }
+
         @Override public List<WebElement> find(WebDriver webDriver, LocatorContext context) {
-            List<WebElement> elements = null;
-            try {
-                elements = wait(webDriver)
-                        .until(ExpectedConditions.presenceOfAllElementsLocatedBy(By.className(context.getCriteria())));
-                filter(context, elements);
-            } catch (TimeoutException ex) {
-                if(context.isRequired()) {
-                    throw  ex;
-                }
-            }
-            return elements == null? Collections.emptyList() : elements;
+            return findByQuery(webDriver, context);
         }
     }
 
     public static class TagNameLocator extends Locators {
 
-        @Override public List<WebElement> find(WebDriver webDriver, LocatorContext context) {
+        @Override LocatorContext context(String criteria, ElementTag tag) {
+            return new LocatorContext(criteria, tag, By.tagName(criteria), tag);
+        }
 
-            List<WebElement> elements = null;
-            try {
-                elements = wait(webDriver)
-                        .until(ExpectedConditions.presenceOfAllElementsLocatedBy(By.tagName(context.getCriteria())));
-                filter(context, elements);
-            } catch (TimeoutException ex) {
-                if(context.isRequired()) {
-                    throw  ex;
-                }
-            }
-            return elements == null? Collections.emptyList() : elements;
+        @Override public List<WebElement> find(WebDriver webDriver, LocatorContext context) {
+            return findByQuery(webDriver, context);
         }
     }
 
@@ -296,8 +332,7 @@ public abstract class Locators implements Locator {
                     elements.add((WebElement) data);
                 }
             }
-            filter(context, elements);
-            return elements;
+            return filter(webDriver, context, elements);
         }
     }
 
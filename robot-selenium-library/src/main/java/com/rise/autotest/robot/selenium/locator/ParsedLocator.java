@@ -0,0 +1,34 @@
+package com.rise.autotest.robot.selenium.locator;
+
+import lombok.Getter;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.List;
+
+/**
+ * A locator string parsed for a tag: its locator strategy and its context, with the query already built. Immutable,
+ * see {@link LocatorFactory#parse(String, ElementTag)}.
+ */
+@Getter
+public final class ParsedLocator {
+    private final Locator locator;
+    private final LocatorContext context;
+
+    ParsedLocator(Locator locator, LocatorContext context) {
+        this.locator = locator;
+        this.context = context;
+    }
+
+    /**
+     * Finds the elements.
+     *
+     * @param webDriver current webdriver instance
+     * @param required  true to fail if no element is found
+     * @param timeoutMillis time to wait for the elements
+     * @return  the elements found, empty if none found and not required
+     */
+    public List<WebElement> find(WebDriver webDriver, boolean required, long timeoutMillis) {
+        return locator.find(webDriver, context.withWait(required, timeoutMillis));
+    }
+}
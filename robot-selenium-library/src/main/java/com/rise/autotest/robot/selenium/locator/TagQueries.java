@@ -0,0 +1,185 @@
+package com.rise.autotest.robot.selenium.locator;
+
+import com.rise.autotest.robot.selenium.util.Util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites a locator query so that the browser only returns the elements of an {@link ElementTag}, instead of
+ * returning all the elements for them to be filtered afterwards.<br>
+ * <br>
+ * XPath expresses the tag name and the 'type' attribute, compared ignoring case and with a missing 'type' being
+ * 'text' like the property of an input. The id and name locators are rewritten to XPath, e.g.
+ * {@code //input[@name='q'][not(@type) or translate(@type, ...)='text']}. CSS only gets the tag name, e.g.
+ * {@code div > a.item}: its attribute selectors are case sensitive in the browsers supported, so the 'type' is still
+ * filtered afterwards.<br>
+ * <br>
+ * A query that cannot be rewritten gives null, it is then run as is and filtered.
+ */
+final class TagQueries {
+
+    private static final Pattern TAG_NAME = Pattern.compile("[A-Za-z][A-Za-z0-9-]*");
+    private static final String TYPE = "type";
+    private static final String DEFAULT_TYPE = "text";
+
+    private TagQueries() {
+
+    }
+
+    /**
+     * @param attribute the attribute located by, 'id' or 'name'
+     * @param value     its value
+     * @param tag       the tag to match
+     * @return  the XPath of the elements of the tag with the attribute, null if it cannot be expressed.
+     */
+    static String xpathByAttribute(String attribute, String value, ElementTag tag) {
+        if (!isCompilable(tag)) {
+            return null;
+        }
+        return String.format("//%s[@%s=%s]%s", tag.getTagName().toLowerCase(), attribute,
+                Util.escapeXpathValue(value), xpathPredicates(tag));
+    }
+
+    /**
+     * @param xpath the XPath of the locator
+     * @param tag   the tag to match
+     * @return  the XPath of the elements it finds that match the tag, null if it cannot be expressed.
+     */
+    static String xpath(String xpath, ElementTag tag) {
+        if (!isCompilable(tag)) {
+            return null;
+        }
+        return String.format("(%s)[self::%s]%s", xpath, tag.getTagName().toLowerCase(), xpathPredicates(tag));
+    }
+
+    /**
+     * Puts the tag name in the last compound selector of every selector of the list. The attributes of the tag are
+     * left to filter.
+     *
+     * @param css   the CSS selector of the locator
+     * @param tag   the tag to match
+     * @return  the CSS selector of the elements it finds with the name of the tag, null if it cannot be expressed:
+     *          escapes, namespaces, pseudo-elements or another type selector.
+     */
+    static String css(String css, ElementTag tag) {
+        if (tag == null || !TAG_NAME.matcher(tag.getTagName()).matches() || css.indexOf('\\') >= 0
+                || css.indexOf('|') >= 0 || css.contains("::")) {
+            return null;
+        }
+        List<String> selectors = splitSelectors(css);
+        if (selectors == null) {
+            return null;
+        }
+        String tagName = tag.getTagName().toLowerCase();
+        StringBuilder query = new StringBuilder();
+        for (String selector : selectors) {
+            String trimmed = selector.trim();
+            int start = lastCompoundStart(trimmed);
+            if (trimmed.isEmpty() || start == trimmed.length()) {
+                return null;
+            }
+            String compound = trimmed.substring(start);
+            String rewritten;
+            if (compound.startsWith("*")) {
+                rewritten = tagName + compound.substring(1);
+            } else if (Character.isLetter(compound.charAt(0))) {
+                if (!compound.toLowerCase().startsWith(tagName)
+                        || typeSelectorEnd(compound) != tagName.length()) {
+                    return null;
+                }
+                rewritten = compound;
+            } else {
+                rewritten = tagName + compound;
+            }
+            if (query.length() > 0) {
+                query.append(", ");
+            }
+            query.append(trimmed, 0, start).append(rewritten);
+        }
+        return query.toString();
+    }
+
+    private static boolean isCompilable(ElementTag tag) {
+        if (tag == null || !TAG_NAME.matcher(tag.getTagName()).matches()) {
+            return false;
+        }
+        for (Map.Entry<String, String> entry : tag.getAttributes().entrySet()) {
+            if (!TYPE.equals(entry.getKey()) || entry.getValue() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String xpathPredicates(ElementTag tag) {
+        String type = tag.getAttributes().get(TYPE);
+        if (type == null) {
+            return "";
+        }
+        String predicate = String.format("translate(@type, 'ABCDEFGHIJKLMNOPQRSTUVWXYZ',"
+                + " 'abcdefghijklmnopqrstuvwxyz')=%s", Util.escapeXpathValue(type.toLowerCase()));
+        return DEFAULT_TYPE.equalsIgnoreCase(type) ? "[not(@type) or " + predicate + "]" : "[" + predicate + "]";
+    }
+
+    // the selectors of a list, split on the commas outside of strings, brackets and parentheses
+    private static List<String> splitSelectors(String css) {
+        List<String> selectors = new ArrayList<>();
+        int depth = 0;
+        char quote = 0;
+        int from = 0;
+        for (int i = 0; i < css.length(); i++) {
+            char c = css.charAt(i);
+            if (quote != 0) {
+                quote = c == quote ? 0 : quote;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '[' || c == '(') {
+                depth++;
+            } else if (c == ']' || c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                selectors.add(css.substring(from, i));
+                from = i + 1;
+            }
+        }
+        if (quote != 0 || depth != 0) {
+            return null;
+        }
+        selectors.add(css.substring(from));
+        return selectors;
+    }
+
+    // the index after the last combinator outside of strings, brackets and parentheses
+    private static int lastCompoundStart(String selector) {
+        int depth = 0;
+        char quote = 0;
+        int start = 0;
+        for (int i = 0; i < selector.length(); i++) {
+            char c = selector.charAt(i);
+            if (quote != 0) {
+                quote = c == quote ? 0 : quote;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '[' || c == '(') {
+                depth++;
+            } else if (c == ']' || c == ')') {
+                depth--;
+            } else if (depth == 0 && (Character.isWhitespace(c) || c == '>' || c == '+' || c == '~')) {
+                start = i + 1;
+            }
+        }
+        return start;
+    }
+
+    private static int typeSelectorEnd(String compound) {
+        int end = 0;
+        while (end < compound.length()
+                && (Character.isLetterOrDigit(compound.charAt(end)) || compound.charAt(end) == '-')) {
+            end++;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,92 @@
+package com.rise.autotest.robot.selenium.util;
+
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.opera.OperaOptions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Browser options built from capabilities.<br>
+ * <br>
+ * {@code ChromeOptions.merge} (Selenium 3.7) keeps 'goog:chromeOptions' as a raw capability, which its own, empty,
+ * arguments and extensions then replace: the arguments, extensions, binary and other options given in the capabilities,
+ * e.g. by a capability profile, are copied into the options here.
+ */
+public final class BrowserOptions {
+
+    private static final String ARGS = "args";
+    private static final String EXTENSIONS = "extensions";
+    private static final String BINARY = "binary";
+
+    private BrowserOptions() {
+
+    }
+
+    /**
+     * @param capabilities  the capabilities, with 'goog:chromeOptions'
+     * @return  the Chrome options
+     */
+    public static ChromeOptions chrome(Capabilities capabilities) {
+        ChromeOptions chromeOptions = new ChromeOptions();
+        chromeOptions.merge(capabilities);
+        copy(optionsOf(capabilities, ChromeOptions.CAPABILITY), chromeOptions::addArguments,
+                chromeOptions::addEncodedExtensions, chromeOptions::setBinary, chromeOptions::setExperimentalOption);
+        return chromeOptions;
+    }
+
+    /**
+     * Opera is driven like Chrome: the 'goog:chromeOptions' of the capabilities, e.g. of the 'fast' profile, apply too,
+     * before the 'operaOptions'.
+     *
+     * @param capabilities  the capabilities, with 'operaOptions' or 'goog:chromeOptions'
+     * @return  the Opera options
+     */
+    public static OperaOptions opera(Capabilities capabilities) {
+        OperaOptions operaOptions = new OperaOptions();
+        operaOptions.merge(capabilities);
+        for (String capability : new String[] {ChromeOptions.CAPABILITY, OperaOptions.CAPABILITY}) {
+            copy(optionsOf(capabilities, capability), operaOptions::addArguments, operaOptions::addEncodedExtensions,
+                    operaOptions::setBinary, operaOptions::setExperimentalOption);
+        }
+        return operaOptions;
+    }
+
+    private static Map<?, ?> optionsOf(Capabilities capabilities, String capability) {
+        Object options = capabilities.getCapability(capability);
+        return options instanceof Map ? (Map<?, ?>) options : Collections.emptyMap();
+    }
+
+    private static void copy(Map<?, ?> options, Consumer<List<String>> arguments, Consumer<List<String>> extensions,
+                             Consumer<String> binary, BiConsumer<String, Object> experimental) {
+        for (Map.Entry<?, ?> option : options.entrySet()) {
+            String name = String.valueOf(option.getKey());
+            Object value = option.getValue();
+            if (ARGS.equals(name)) {
+                arguments.accept(strings(value));
+            } else if (EXTENSIONS.equals(name)) {
+                extensions.accept(strings(value));
+            } else if (BINARY.equals(name)) {
+                binary.accept(String.valueOf(value));
+            } else {
+                // prefs, mobileEmulation, ...
+                experimental.accept(name, value);
+            }
+        }
+    }
+
+    private static List<String> strings(Object value) {
+        List<String> strings = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                strings.add(String.valueOf(item));
+            }
+        }
+        return strings;
+    }
+}
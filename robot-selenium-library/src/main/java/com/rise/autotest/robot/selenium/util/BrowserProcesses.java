@@ -0,0 +1,338 @@
+package com.rise.autotest.robot.selenium.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.service.DriverCommandExecutor;
+import org.openqa.selenium.remote.service.DriverService;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Kills the processes of a browser session that does not quit: the browser process tree and the driver service
+ * (chromedriver, geckodriver...).<br>
+ * <br>
+ * The browser processes are found from the session capabilities: 'moz:processID' for Firefox, the profile directory
+ * ('chrome.userDataDir') for Chrome, matched exactly against the command line of the processes. Otherwise the process
+ * tree of the driver service is killed, if the service is not shared with other sessions (Linux only). The driver
+ * service is the one the driver was built with, if it was built locally, and it is stopped unless it is shared with
+ * other sessions (see {@link DriverServices}).<br>
+ * <br>
+ * On Linux, the driver processes started by this JVM are found in /proc: a driver process that serves no open
+ * session (by its '--port' argument) is an orphan, left by a session that crashed or was not closed.
+ */
+@Slf4j
+public final class BrowserProcesses {
+
+    private static final boolean WINDOWS = System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+    private static final long COMMAND_TIMEOUT_SECONDS = 5;
+    private static final Path PROC = Paths.get("/proc");
+    private static final List<String> DRIVER_EXECUTABLES = Arrays.asList("chromedriver", "geckodriver", "operadriver");
+    private static final String PORT_ARGUMENT = "--port";
+    private static final String USER_DATA_DIR_ARGUMENT = "--user-data-dir=";
+    private static final Pattern EXTENDED_REGEX_SPECIAL = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+
+    private BrowserProcesses() {
+
+    }
+
+    /**
+     * Kills the browser processes and stops the driver service of the <b>webDriver</b>. Best effort, failures are
+     * logged only.
+     *
+     * @param webDriver the driver to kill
+     */
+    public static void forceKill(WebDriver webDriver) {
+        if (!(webDriver instanceof RemoteWebDriver)) {
+            return;
+        }
+        RemoteWebDriver remoteWebDriver = (RemoteWebDriver) webDriver;
+        DriverService driverService = driverService(remoteWebDriver.getCommandExecutor());
+        try {
+            if (!killBrowser(remoteWebDriver.getCapabilities()) && driverService != null
+                    && !DriverServices.isShared(driverService)) {
+                killDriverTree(driverService.getUrl().getPort());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to kill the browser processes", e);
+        }
+        try {
+            if (driverService != null) {
+                DriverServices.discard(driverService);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to stop the driver service", e);
+        }
+    }
+
+    /**
+     * @param webDriver the driver
+     * @return  the port of the driver service the <b>webDriver</b> talks to, -1 if unknown.
+     */
+    public static int driverPort(WebDriver webDriver) {
+        if (webDriver instanceof RemoteWebDriver) {
+            CommandExecutor commandExecutor = ((RemoteWebDriver) webDriver).getCommandExecutor();
+            if (commandExecutor instanceof HttpCommandExecutor) {
+                return ((HttpCommandExecutor) commandExecutor).getAddressOfRemoteServer().getPort();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the driver processes started by this JVM that serve none of the <b>livePorts</b>. Linux only, none is
+     * found elsewhere.
+     *
+     * @param livePorts the ports of the driver services in use
+     * @return  the process ids of the orphan drivers.
+     */
+    public static Set<Integer> orphanDrivers(Set<Integer> livePorts) {
+        if (!Files.isDirectory(PROC)) {
+            return Collections.emptySet();
+        }
+        return orphanDrivers(PROC, currentPid(), livePorts);
+    }
+
+    /**
+     * Kills the process and all its descendants, the browser processes of a driver.
+     *
+     * @param pid   the process id
+     * @return  the number of processes killed.
+     */
+    public static int killTree(int pid) {
+        Map<Integer, Integer> parents = parents(PROC);
+        List<Integer> tree = new ArrayList<>();
+        tree.add(pid);
+        // parents before children in the list, the children are killed first
+        for (int i = 0; i < tree.size(); i++) {
+            for (Map.Entry<Integer, Integer> process : parents.entrySet()) {
+                if (process.getValue().equals(tree.get(i))) {
+                    tree.add(process.getKey());
+                }
+            }
+        }
+        for (int i = tree.size() - 1; i >= 0; i--) {
+            run("kill", "-KILL", String.valueOf(tree.get(i)));
+        }
+        return tree.size();
+    }
+
+    static Set<Integer> orphanDrivers(Path procRoot, int parentPid, Set<Integer> livePorts) {
+        Set<Integer> orphans = new HashSet<>();
+        for (Map.Entry<Integer, Integer> process : parents(procRoot).entrySet()) {
+            if (process.getValue() != parentPid) {
+                continue;
+            }
+            List<String> commandLine = commandLine(procRoot.resolve(String.valueOf(process.getKey())));
+            if (!commandLine.isEmpty() && isDriver(commandLine.get(0))
+                    && !livePorts.contains(port(commandLine))) {
+                orphans.add(process.getKey());
+            }
+        }
+        return orphans;
+    }
+
+    /**
+     * @return  the processes having exactly the <b>argument</b> on their command line.
+     */
+    static Set<Integer> processesWithArgument(Path procRoot, String argument) {
+        Set<Integer> processes = new HashSet<>();
+        for (Integer pid : parents(procRoot).keySet()) {
+            List<String> commandLine = commandLine(procRoot.resolve(String.valueOf(pid)));
+            if (commandLine.size() > 1 && commandLine.subList(1, commandLine.size()).contains(argument)) {
+                processes.add(pid);
+            }
+        }
+        return processes;
+    }
+
+    /**
+     * @return  the driver process started by <b>parentPid</b> serving the <b>port</b>, -1 if none.
+     */
+    static int driverProcess(Path procRoot, int parentPid, int port) {
+        for (Map.Entry<Integer, Integer> process : parents(procRoot).entrySet()) {
+            if (process.getValue() != parentPid) {
+                continue;
+            }
+            List<String> commandLine = commandLine(procRoot.resolve(String.valueOf(process.getKey())));
+            if (!commandLine.isEmpty() && isDriver(commandLine.get(0)) && port(commandLine) == port) {
+                return process.getKey();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Escapes the extended regular expression characters of <b>text</b>, for pgrep/pkill.
+     */
+    static String quoteExtendedRegex(String text) {
+        return EXTENDED_REGEX_SPECIAL.matcher(text).replaceAll("\\\\$0");
+    }
+
+    /**
+     * Parent process id by process id, from /proc/&lt;pid&gt;/stat.
+     */
+    private static Map<Integer, Integer> parents(Path procRoot) {
+        Map<Integer, Integer> parents = new HashMap<>();
+        try (DirectoryStream<Path> processes = Files.newDirectoryStream(procRoot, "[0-9]*")) {
+            for (Path process : processes) {
+                try {
+                    String stat = new String(Files.readAllBytes(process.resolve("stat")), StandardCharsets.UTF_8);
+                    // pid (comm) state ppid ..., the command name may contain spaces and parentheses
+                    String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+                    parents.put(Integer.valueOf(process.getFileName().toString()), Integer.valueOf(fields[1]));
+                } catch (IOException | RuntimeException e) {
+                    // the process exited meanwhile
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Unable to list the processes in {}", procRoot, e);
+        }
+        return parents;
+    }
+
+    private static List<String> commandLine(Path process) {
+        try {
+            String commandLine = new String(Files.readAllBytes(process.resolve("cmdline")), StandardCharsets.UTF_8);
+            return commandLine.isEmpty() ? Collections.emptyList() : Arrays.asList(commandLine.split("\0"));
+        } catch (IOException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    private static boolean isDriver(String executable) {
+        String name = Paths.get(executable).getFileName().toString().toLowerCase();
+        for (String driver : DRIVER_EXECUTABLES) {
+            if (name.startsWith(driver)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int port(List<String> commandLine) {
+        for (int i = 1; i < commandLine.size(); i++) {
+            String argument = commandLine.get(i);
+            try {
+                if (argument.startsWith(PORT_ARGUMENT + "=")) {
+                    return Integer.parseInt(argument.substring(PORT_ARGUMENT.length() + 1));
+                }
+                if (argument.equals(PORT_ARGUMENT) && i + 1 < commandLine.size()) {
+                    return Integer.parseInt(commandLine.get(i + 1));
+                }
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static int currentPid() {
+        // pid@host
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        return Integer.parseInt(name.substring(0, name.indexOf('@')));
+    }
+
+    /**
+     * @return  false if the capabilities do not tell the browser processes.
+     */
+    private static boolean killBrowser(Capabilities capabilities) {
+        if (capabilities == null) {
+            return false;
+        }
+        Object processId = capabilities.getCapability("moz:processID");
+        if (processId != null) {
+            String pid = String.valueOf(processId);
+            if (WINDOWS) {
+                run("taskkill", "/F", "/T", "/PID", pid);
+            } else {
+                run("pkill", "-KILL", "-P", pid);
+                run("kill", "-KILL", pid);
+            }
+            return true;
+        }
+        Object chrome = capabilities.getCapability("chrome");
+        if (chrome instanceof Map && !WINDOWS) {
+            Object userDataDir = ((Map<?, ?>) chrome).get("userDataDir");
+            if (userDataDir != null && !String.valueOf(userDataDir).isEmpty()) {
+                // every process of the browser has the profile directory on its command line
+                killUserDataDir(USER_DATA_DIR_ARGUMENT + userDataDir);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void killUserDataDir(String argument) {
+        if (Files.isDirectory(PROC)) {
+            List<String> command = new ArrayList<>(Arrays.asList("kill", "-KILL"));
+            for (Integer pid : processesWithArgument(PROC, argument)) {
+                command.add(String.valueOf(pid));
+            }
+            if (command.size() > 2) {
+                run(command.toArray(new String[command.size()]));
+            }
+        } else {
+            // the whole argument, not a prefix of another profile directory
+            run("pkill", "-KILL", "-f", "--", quoteExtendedRegex(argument) + "( |$)");
+        }
+    }
+
+    private static void killDriverTree(int port) {
+        if (!Files.isDirectory(PROC)) {
+            return;
+        }
+        int pid = driverProcess(PROC, currentPid(), port);
+        if (pid != -1) {
+            log.info("Killing the driver process {} serving port {} and its browser processes", pid, port);
+            killTree(pid);
+        }
+    }
+
+    private static DriverService driverService(CommandExecutor commandExecutor) {
+        if (!(commandExecutor instanceof DriverCommandExecutor)) {
+            return null;
+        }
+        try {
+            Field service = DriverCommandExecutor.class.getDeclaredField("service");
+            service.setAccessible(true);
+            return (DriverService) service.get(commandExecutor);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            log.warn("Unable to find the driver service", e);
+            return null;
+        }
+    }
+
+    private static void run(String... command) {
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            if (!process.waitFor(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (IOException e) {
+            log.warn("Unable to run {}", Arrays.toString(command), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
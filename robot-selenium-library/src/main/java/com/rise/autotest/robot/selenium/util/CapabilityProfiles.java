@@ -0,0 +1,293 @@
+package com.rise.autotest.robot.selenium.util;
+
+import com.rise.autotest.robot.FatalException;
+import com.rise.autotest.robot.selenium.BrowserType;
+import lombok.EqualsAndHashCode;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.openqa.selenium.MutableCapabilities;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Browser capabilities for Open Browser, given as a capabilities json or as the name of a capability profile.<br>
+ * <br>
+ * The profiles are loaded once, from the file given by the system property 'robot.capability.profiles', or else from
+ * the classpath resource 'capability-profiles.json'. Each profile is in the same form as the capabilities json of
+ * Open Browser:
+ * <pre>
+ * {
+ *     "headless-chrome": {"capabilities": {"goog:chromeOptions": {"args": ["--headless"]}}},
+ *     "trace-firefox": {"capabilities": {"moz:firefoxOptions": {"log": {"level": "trace"}}}}
+ * }
+ * </pre>
+ * The browser options, e.g. 'goog:chromeOptions', reach the driver through {@link BrowserOptions}.<br>
+ * Several profiles can be combined, and followed by a json, separated by spaces: 'fast headless-chrome' or
+ * 'fast {"capabilities": {...}}'. They are merged in order: nested objects are merged, lists are appended. The
+ * built-in profile 'fast' ({@link FastProfile}) is always available.<br>
+ * <br>
+ * The capabilities are merged with the browser defaults once per browser and profiles (or json), and every caller
+ * gets its own copy.
+ */
+public final class CapabilityProfiles {
+
+    public static final String PROFILES_PROPERTY = "robot.capability.profiles";
+    public static final String PROFILES_RESOURCE = "capability-profiles.json";
+
+    // raw jsons are cached too, as long as a suite does not use an unbounded number of them
+    private static final int MAX_CACHED_JSONS = 64;
+
+    private final Map<String, Map<String, Object>> profiles;
+    private final Map<CacheKey, DesiredCapabilities> merged = new ConcurrentHashMap<>();
+    private final Set<CacheKey> cachedJsons = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructor.
+     * @param profiles  the capabilities of each profile, by profile name
+     */
+    CapabilityProfiles(Map<String, Map<String, Object>> profiles) {
+        Map<String, Map<String, Object>> allProfiles = new LinkedHashMap<>();
+        allProfiles.put(FastProfile.NAME, capabilitiesOf(parse(FastProfile.CAPABILITIES_JSON)));
+        allProfiles.putAll(profiles);
+        this.profiles = Collections.unmodifiableMap(allProfiles);
+    }
+
+    /**
+     * @return  the profiles loaded from the profiles file or resource, see {@link CapabilityProfiles}.
+     */
+    public static CapabilityProfiles instance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Parses profiles from a json.
+     *
+     * @param profilesJson  the profiles, by name
+     * @return  the profiles
+     */
+    public static CapabilityProfiles fromJson(String profilesJson) {
+        Map<String, Map<String, Object>> profiles = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> profile : parse(profilesJson).entrySet()) {
+            if (!(profile.getValue() instanceof Map)) {
+                throw new FatalException(String.format("Capability profile '%s' should be a json object",
+                        profile.getKey()));
+            }
+            profiles.put(String.valueOf(profile.getKey()), capabilitiesOf((Map<?, ?>) profile.getValue()));
+        }
+        return new CapabilityProfiles(profiles);
+    }
+
+    /**
+     * @return  the names of the profiles.
+     */
+    public Set<String> names() {
+        return profiles.keySet();
+    }
+
+    /**
+     * Returns the capabilities for the browser: the browser default capabilities, merged with the capabilities of the
+     * profile or json.
+     *
+     * @param browser   the browser type
+     * @param capabilitiesOrProfile capabilities json, or profile names optionally followed by a json. Optional.
+     * @return  a copy of the capabilities, the caller may modify it.
+     */
+    public DesiredCapabilities capabilities(BrowserType browser, String capabilitiesOrProfile) {
+        if (capabilitiesOrProfile == null) {
+            return browser.capabilities();
+        }
+        CacheKey key = new CacheKey(browser, capabilitiesOrProfile);
+        DesiredCapabilities capabilities = merged.get(key);
+        if (capabilities == null) {
+            capabilities = merge(browser, capabilitiesOrProfile);
+            if (capabilitiesOrProfile.indexOf('{') < 0
+                    || (cachedJsons.size() < MAX_CACHED_JSONS && cachedJsons.add(key))) {
+                merged.putIfAbsent(key, capabilities);
+            }
+        }
+        return copy(capabilities);
+    }
+
+    /**
+     * Returns a canonical form of the capabilities: same for capabilities that differ only in key order or
+     * formatting, or that are given once as profile and once as json.
+     *
+     * @param browser   the browser type
+     * @param capabilitiesOrProfile capabilities json, or profile name. Optional.
+     * @return  the canonical form.
+     */
+    public String fingerprint(BrowserType browser, String capabilitiesOrProfile) {
+        return String.valueOf(canonical(capabilities(browser, capabilitiesOrProfile).asMap()));
+    }
+
+    private DesiredCapabilities merge(BrowserType browser, String capabilitiesOrProfile) {
+        int json = capabilitiesOrProfile.indexOf('{');
+        String names = json < 0 ? capabilitiesOrProfile.trim() : capabilitiesOrProfile.substring(0, json).trim();
+        Map<String, Object> capabilities = new HashMap<>();
+        if (!names.isEmpty()) {
+            for (String name : names.split("\\s+")) {
+                Map<String, Object> profile = profiles.get(name);
+                if (profile == null) {
+                    throw new FatalException(String.format("No capability profile '%s', profiles are %s",
+                            name, profiles.keySet()));
+                }
+                merge(capabilities, profile);
+            }
+        }
+        if (json >= 0) {
+            merge(capabilities, capabilitiesOf(parse(capabilitiesOrProfile.substring(json))));
+        }
+        return new DesiredCapabilities(browser.capabilities(), new MutableCapabilities(capabilities));
+    }
+
+    /**
+     * Deep merge of <b>source</b> into <b>target</b>: nested maps are merged, lists are appended.
+     */
+    @SuppressWarnings("unchecked")
+    private static void merge(Map<String, Object> target, Map<?, ?> source) {
+        for (Map.Entry<?, ?> entry : source.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            Object current = target.get(key);
+            Object value = copyValue(entry.getValue());
+            if (current instanceof Map && value instanceof Map) {
+                merge((Map<String, Object>) current, (Map<?, ?>) value);
+            } else if (current instanceof List && value instanceof List) {
+                for (Object item : (List<?>) value) {
+                    if (!((List<Object>) current).contains(item)) {
+                        ((List<Object>) current).add(item);
+                    }
+                }
+            } else {
+                target.put(key, value);
+            }
+        }
+    }
+
+    private static Map<String, Object> capabilitiesOf(Map<?, ?> json) {
+        Object capabilities = json.get("capabilities");
+        if (capabilities != null && !(capabilities instanceof Map)) {
+            throw new FatalException("Unable to parse the capabilities json");
+        }
+        return capabilities == null ? Collections.emptyMap() : copy((Map<?, ?>) capabilities);
+    }
+
+    private static Map<?, ?> parse(String json) {
+        try {
+            Object parsed = new JSONParser().parse(json);
+            if (!(parsed instanceof JSONObject)) {
+                throw new FatalException("Unable to parse the capabilities json");
+            }
+            return (Map<?, ?>) parsed;
+        } catch (ParseException e) {
+            throw new FatalException("Unable to parse the capabilities json");
+        }
+    }
+
+    /**
+     * Deep copy: the nested maps and lists (e.g. 'goog:chromeOptions') are not shared with the cached capabilities.
+     */
+    private static DesiredCapabilities copy(DesiredCapabilities capabilities) {
+        return new DesiredCapabilities(copy(capabilities.asMap()));
+    }
+
+    private static Map<String, Object> copy(Map<?, ?> map) {
+        Map<String, Object> copy = new HashMap<>();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            copy.put(String.valueOf(entry.getKey()), copyValue(entry.getValue()));
+        }
+        return copy;
+    }
+
+    private static Object copyValue(Object value) {
+        if (value instanceof Map) {
+            return copy((Map<?, ?>) value);
+        }
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>();
+            for (Object item : (List<?>) value) {
+                copy.add(copyValue(item));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    private static Object canonical(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                sorted.put(String.valueOf(entry.getKey()), canonical(entry.getValue()));
+            }
+            return sorted;
+        }
+        if (value instanceof List) {
+            List<Object> list = new ArrayList<>();
+            for (Object item : (List<?>) value) {
+                list.add(canonical(item));
+            }
+            return list;
+        }
+        return value;
+    }
+
+    private static CapabilityProfiles load() {
+        String path = System.getProperty(PROFILES_PROPERTY);
+        if (path != null && !path.isEmpty()) {
+            try {
+                return fromJson(new String(Files.readAllBytes(new File(path).toPath()), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new FatalException(String.format("Unable to read the capability profiles '%s'", path), e);
+            }
+        }
+        InputStream resource = CapabilityProfiles.class.getClassLoader().getResourceAsStream(PROFILES_RESOURCE);
+        if (resource == null) {
+            return new CapabilityProfiles(Collections.emptyMap());
+        }
+        try (Reader reader = new InputStreamReader(resource, StandardCharsets.UTF_8)) {
+            StringBuilder json = new StringBuilder();
+            char[] buffer = new char[4096];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                json.append(buffer, 0, read);
+            }
+            return fromJson(json.toString());
+        } catch (IOException e) {
+            throw new FatalException("Unable to read the capability profiles " + PROFILES_RESOURCE, e);
+        }
+    }
+
+    /**
+     * Loads the profiles on first use.
+     */
+    private static class Holder {
+        private static final CapabilityProfiles INSTANCE = load();
+    }
+
+    @EqualsAndHashCode
+    private static class CacheKey {
+        private final BrowserType browser;
+        private final String capabilitiesOrProfile;
+
+        CacheKey(BrowserType browser, String capabilitiesOrProfile) {
+            this.browser = browser;
+            this.capabilitiesOrProfile = capabilitiesOrProfile;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.rise.autotest.robot.selenium.util;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeDriverService;
+import org.openqa.selenium.firefox.GeckoDriverService;
+import org.openqa.selenium.remote.service.DriverService;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.function.Supplier;
+
+/**
+ * Driver services (chromedriver, geckodriver) shared by the browser sessions, so that a session does not start a new
+ * driver process.<br>
+ * <br>
+ * chromedriver serves any number of sessions: a single one is started and used by all the Chrome sessions.
+ * geckodriver serves one session at a time: a service is leased by a Firefox session and kept for the next session
+ * when the browser quits. The services are checked to be running before they are reused, and stopped when the JVM
+ * exits. Disabled with the system property 'robot.driver.service.shared=false', each session then starts its own
+ * driver process.
+ */
+@Slf4j
+public final class DriverServices {
+
+    private static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("robot.driver.service.shared", "true"));
+    private static final int MAX_IDLE_GECKO_SERVICES = 4;
+
+    private static final Set<DriverService> services = ConcurrentHashMap.newKeySet();
+    private static final Deque<SharedGeckoDriverService> idleGeckoServices = new ConcurrentLinkedDeque<>();
+    private static SharedChromeDriverService chromeService;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(DriverServices::shutdown, "driver-services-shutdown"));
+    }
+
+    private DriverServices() {
+
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Returns the shared chromedriver service, started. Starts a new one if there is none or if it died.
+     *
+     * @return  the service to build ChromeDriver with.
+     */
+    public static synchronized ChromeDriverService chrome() {
+        if (chromeService == null || !chromeService.isRunning()) {
+            if (chromeService != null) {
+                log.warn("chromedriver at {} is not running anymore, starting a new one", chromeService.getUrl());
+                chromeService.shutdown();
+            }
+            chromeService = (SharedChromeDriverService) start(new ChromeDriverService.Builder() {
+                @Override
+                protected ChromeDriverService createDriverService(File exe, int port, ImmutableList<String> args,
+                                                                  ImmutableMap<String, String> environment) {
+                    try {
+                        return new SharedChromeDriverService(exe, port, args, environment);
+                    } catch (IOException e) {
+                        throw new WebDriverException(e);
+                    }
+                }
+            }.usingAnyFreePort().build());
+        }
+        return chromeService;
+    }
+
+    /**
+     * Leases an idle geckodriver service, or starts a new one. The service is returned when the session quits.
+     *
+     * @return  the service to build FirefoxDriver with.
+     */
+    public static GeckoDriverService gecko() {
+        return gecko(() -> start(new GeckoDriverService.Builder() {
+            @Override
+            protected GeckoDriverService createDriverService(File exe, int port, ImmutableList<String> args,
+                                                             ImmutableMap<String, String> environment) {
+                try {
+                    return new SharedGeckoDriverService(exe, port, args, environment);
+                } catch (IOException e) {
+                    throw new WebDriverException(e);
+                }
+            }
+        }.usingAnyFreePort().build()));
+    }
+
+    /**
+     * Leases an idle geckodriver service that is still running, or else the one given by <b>newService</b>.
+     *
+     * @param newService    starts a new service
+     * @return  the service to build FirefoxDriver with.
+     */
+    static GeckoDriverService gecko(Supplier<GeckoDriverService> newService) {
+        SharedGeckoDriverService service;
+        while ((service = idleGeckoServices.pollFirst()) != null) {
+            if (service.isRunning()) {
+                return service;
+            }
+            service.shutdown();
+        }
+        return newService.get();
+    }
+
+    /**
+     * @return  the ports of the services started here and not stopped, including the idle ones.
+     */
+    public static Set<Integer> ports() {
+        Set<Integer> ports = new HashSet<>();
+        for (DriverService service : services) {
+            ports.add(service.getUrl().getPort());
+        }
+        return ports;
+    }
+
+    /**
+     * Stops the service used by a session that had to be killed. The shared chromedriver is kept for the other
+     * sessions, a leased geckodriver is stopped.
+     *
+     * @param service   the service of the session
+     */
+    public static void discard(DriverService service) {
+        if (service instanceof SharedGeckoDriverService) {
+            ((SharedGeckoDriverService) service).shutdown();
+        } else if (!(service instanceof SharedChromeDriverService)) {
+            service.stop();
+        }
+    }
+
+    /**
+     * @param service   the service of a session
+     * @return  true if the service serves other sessions at the same time, the shared chromedriver.
+     */
+    static boolean isShared(DriverService service) {
+        return service instanceof SharedChromeDriverService;
+    }
+
+    /**
+     * Stops all the services.
+     */
+    public static synchronized void shutdown() {
+        for (DriverService service : services) {
+            try {
+                shutdown(service);
+            } catch (RuntimeException e) {
+                log.warn("Unable to stop the driver service at {}", service.getUrl(), e);
+            }
+        }
+        idleGeckoServices.clear();
+        chromeService = null;
+    }
+
+    private static <T extends DriverService> T start(T service) {
+        try {
+            service.start();
+        } catch (IOException e) {
+            throw new WebDriverException("Unable to start the driver service", e);
+        }
+        services.add(service);
+        return service;
+    }
+
+    private static void shutdown(DriverService service) {
+        services.remove(service);
+        if (service instanceof SharedChromeDriverService) {
+            ((SharedChromeDriverService) service).shutdown();
+        } else if (service instanceof SharedGeckoDriverService) {
+            ((SharedGeckoDriverService) service).shutdown();
+        } else {
+            service.stop();
+        }
+    }
+
+    private static void release(SharedGeckoDriverService service) {
+        if (idleGeckoServices.size() < MAX_IDLE_GECKO_SERVICES && service.isRunning()) {
+            idleGeckoServices.offerFirst(service);
+        } else {
+            shutdown(service);
+        }
+    }
+
+    /**
+     * chromedriver shared by all the sessions: a session quitting does not stop it.
+     */
+    private static class SharedChromeDriverService extends ChromeDriverService {
+
+        SharedChromeDriverService(File executable, int port, ImmutableList<String> args,
+                                  ImmutableMap<String, String> environment) throws IOException {
+            super(executable, port, args, environment);
+        }
+
+        @Override
+        public void stop() {
+            // called when a session quits, the service keeps serving the other sessions
+        }
+
+        void shutdown() {
+            services.remove(this);
+            super.stop();
+        }
+    }
+
+    /**
+     * geckodriver leased by one session at a time: a session quitting returns it for the next session.
+     */
+    static class SharedGeckoDriverService extends GeckoDriverService {
+
+        SharedGeckoDriverService(File executable, int port, ImmutableList<String> args,
+                                 ImmutableMap<String, String> environment) throws IOException {
+            super(executable, port, args, environment);
+        }
+
+        @Override
+        public void stop() {
+            // called when the session quits
+            release(this);
+        }
+
+        void shutdown() {
+            services.remove(this);
+            super.stop();
+        }
+    }
+}
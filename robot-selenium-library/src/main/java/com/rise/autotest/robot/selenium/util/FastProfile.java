@@ -0,0 +1,97 @@
+package com.rise.autotest.robot.selenium.util;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * The built-in 'fast' capability profile: trades what a test rarely checks for page load time.<br>
+ * <br>
+ * Headless browser, no images and no web fonts, no extensions, no background networking, 'eager' page load strategy
+ * (the page is ready when the DOM is, without waiting for the sub resources) and no window maximize. CSS animations,
+ * transitions and smooth scrolling are disabled by a stylesheet, injected after every navigation done by the
+ * library.<br>
+ * <br>
+ * Used with Open Browser as capability profile 'fast', alone or before other profile names or a json, e.g.
+ * 'fast {"capabilities": {...}}'. A 'fast' profile in the capability profiles file replaces this one.
+ */
+public final class FastProfile {
+
+    public static final String NAME = "fast";
+
+    /**
+     * Marks the capabilities of the profile, removed before the capabilities are sent to the driver.
+     */
+    public static final String CAPABILITY = "robot:fast";
+
+    static final String CAPABILITIES_JSON = "{\"capabilities\": {"
+            + "\"" + CAPABILITY + "\": true,"
+            + "\"pageLoadStrategy\": \"eager\","
+            + "\"goog:chromeOptions\": {"
+            + "  \"args\": [\"--headless\", \"--disable-gpu\", \"--disable-extensions\","
+            + "    \"--disable-background-networking\", \"--disable-component-update\", \"--disable-sync\","
+            + "    \"--disable-default-apps\", \"--no-first-run\", \"--blink-settings=imagesEnabled=false\","
+            + "    \"--disable-remote-fonts\", \"--disable-smooth-scrolling\", \"--force-prefers-reduced-motion\"],"
+            + "  \"prefs\": {\"profile.managed_default_content_settings.images\": 2}"
+            + "},"
+            + "\"moz:firefoxOptions\": {"
+            + "  \"args\": [\"-headless\"],"
+            + "  \"prefs\": {\"permissions.default.image\": 2, \"gfx.downloadable_fonts.enabled\": false,"
+            + "    \"general.smoothScroll\": false, \"ui.prefersReducedMotion\": 1,"
+            + "    \"toolkit.cosmeticAnimations.enabled\": false, \"extensions.update.enabled\": false,"
+            + "    \"app.update.enabled\": false, \"network.prefetch-next\": false, \"network.dns.disablePrefetch\": true,"
+            + "    \"browser.safebrowsing.malware.enabled\": false, \"browser.safebrowsing.phishing.enabled\": false,"
+            + "    \"datareporting.policy.dataSubmissionEnabled\": false, \"browser.shell.checkDefaultBrowser\": false}"
+            + "}"
+            + "}}";
+
+    private static final String DISABLE_ANIMATIONS_SCRIPT = "if (document.head && !document.getElementById('robot-fast')) {"
+            + " var style = document.createElement('style'); style.id = 'robot-fast';"
+            + " style.textContent = '*, *::before, *::after { animation: none !important;"
+            + " transition: none !important; scroll-behavior: auto !important; caret-color: auto !important; }';"
+            + " document.head.appendChild(style); }";
+
+    private static final Set<WebDriver> fastDrivers = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private FastProfile() {
+
+    }
+
+    /**
+     * Marks the driver as built with the profile.
+     *
+     * @param webDriver the driver
+     */
+    static void register(WebDriver webDriver) {
+        fastDrivers.add(webDriver);
+    }
+
+    /**
+     * @param webDriver the driver
+     * @return  true if the driver was built with the profile.
+     */
+    public static boolean isFast(WebDriver webDriver) {
+        return webDriver != null && fastDrivers.contains(webDriver);
+    }
+
+    /**
+     * Disables the animations of the current page, if the driver was built with the profile. To call after a
+     * navigation.
+     *
+     * @param webDriver the driver
+     */
+    public static void afterNavigation(WebDriver webDriver) {
+        if (isFast(webDriver) && webDriver instanceof JavascriptExecutor) {
+            try {
+                ((JavascriptExecutor) webDriver).executeScript(DISABLE_ANIMATIONS_SCRIPT);
+            } catch (WebDriverException e) {
+                //ignore, the page is usable with its animations
+            }
+        }
+    }
+}
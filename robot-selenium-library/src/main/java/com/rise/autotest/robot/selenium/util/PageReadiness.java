@@ -0,0 +1,147 @@
+package com.rise.autotest.robot.selenium.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for the current page to be ready: loaded, and with its network idle.<br>
+ * <br>
+ * A script in the page counts the XMLHttpRequest and fetch requests in flight and the short timers (up to
+ * {@value #MAX_TRACKED_TIMER_MILLIS} ms) still pending. The page is ready when its document is complete and nothing
+ * was pending for the idle window. The whole wait is one asynchronous script call, the page is not polled from
+ * here.<br>
+ * <br>
+ * The counters are installed by the first wait on a page: the requests started before are not counted, but the end of
+ * the page load and of the last sub resource, read from the Performance API of the page, count as activity. A page
+ * already idle for the idle window is ready at once, a page without Performance API waits a full window after the
+ * first wait. The idle window defaults to the system property 'robot.page.idle' ({@value #IDLE_MILLIS} ms).<br>
+ * <br>
+ * The wait raises the script timeout of the driver while it runs, then restores the one set by
+ * {@link WebDriverBuilder} from the 'timeouts' capability, or the WebDriver default
+ * ({@value #DEFAULT_SCRIPT_TIMEOUT_MILLIS} ms).
+ */
+@Slf4j
+public final class PageReadiness {
+
+    private static final long IDLE_MILLIS = 500L;
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    public static final long DEFAULT_IDLE_MILLIS = Long.getLong("robot.page.idle", IDLE_MILLIS);
+
+    private static final long MAX_TRACKED_TIMER_MILLIS = 1000L;
+    // the script times out by itself, the driver only needs to wait a bit longer
+    private static final long SCRIPT_TIMEOUT_MARGIN_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    private static final long DEFAULT_SCRIPT_TIMEOUT_MILLIS = 30_000L;
+    // selenium has no getter for the timeouts, the ones set by the library are kept to be restored
+    private static final Map<WebDriver, Long> scriptTimeouts = Collections.synchronizedMap(new WeakHashMap<>());
+
+    static final String WAIT_SCRIPT = "var idle = arguments[0], timeout = arguments[1],"
+            + " done = arguments[arguments.length - 1], w = window, r = w.__robotReady;"
+            // end of the page load and of the last sub resource, in epoch millis, 0 if unknown
+            + "var activity = function () {"
+            + " var p = w.performance, last = 0, origin, entries, i;"
+            + " if (!p || !p.timing) { return 0; }"
+            + " origin = p.timeOrigin || p.timing.navigationStart;"
+            + " last = p.timing.loadEventEnd;"
+            + " entries = p.getEntriesByType ? p.getEntriesByType('resource') : [];"
+            + " for (i = 0; i < entries.length; i++) { last = Math.max(last, origin + entries[i].responseEnd); }"
+            + " return Math.min(last, Date.now()); };"
+            + "if (!r) {"
+            + " r = w.__robotReady = {pending: 0, last: activity() || Date.now(), timers: {},"
+            + "  setTimeout: w.setTimeout, clearTimeout: w.clearTimeout};"
+            + " var start = function () { r.pending++; r.last = Date.now(); };"
+            + " var end = function () { r.pending = Math.max(0, r.pending - 1); r.last = Date.now(); };"
+            + " var send = XMLHttpRequest.prototype.send;"
+            + " XMLHttpRequest.prototype.send = function () {"
+            + "  start(); this.addEventListener('loadend', end);"
+            + "  try { return send.apply(this, arguments); } catch (e) { end(); throw e; } };"
+            + " if (w.fetch) { var fetch = w.fetch; w.fetch = function () {"
+            + "  start(); return fetch.apply(this, arguments).then("
+            + "   function (response) { end(); return response; }, function (e) { end(); throw e; }); }; }"
+            + " w.setTimeout = function (fn, delay) {"
+            + "  if (typeof fn !== 'function' || delay > " + MAX_TRACKED_TIMER_MILLIS + ") {"
+            + "   return r.setTimeout.apply(w, arguments); }"
+            + "  var args = Array.prototype.slice.call(arguments, 2), id;"
+            + "  start();"
+            + "  id = r.setTimeout.call(w, function () {"
+            + "   if (r.timers[id]) { delete r.timers[id]; end(); } return fn.apply(this, args); }, delay);"
+            + "  r.timers[id] = true; return id; };"
+            + " w.clearTimeout = function (id) {"
+            + "  if (r.timers[id]) { delete r.timers[id]; end(); } return r.clearTimeout.call(w, id); };"
+            + "}"
+            + "var deadline = Date.now() + timeout;"
+            + "(function check() {"
+            + " var now = Date.now();"
+            + " if (document.readyState === 'complete' && r.pending === 0"
+            + "  && now - Math.max(r.last, activity()) >= idle) {"
+            + "  done(null); return; }"
+            + " if (now >= deadline) {"
+            + "  done('document is ' + document.readyState + ', ' + r.pending + ' requests or timers pending');"
+            + "  return; }"
+            + " r.setTimeout.call(w, check, 50);"
+            + "})();";
+
+    private PageReadiness() {
+
+    }
+
+    /**
+     * Waits for the page to be ready, with the default timeout and idle window.
+     *
+     * @param webDriver the driver
+     * @throws TimeoutException if the page is not ready within the timeout.
+     */
+    public static void waitUntilReady(WebDriver webDriver) {
+        waitUntilReady(webDriver, DEFAULT_TIMEOUT_MILLIS, DEFAULT_IDLE_MILLIS);
+    }
+
+    /**
+     * Waits for the page to be ready. Sets the script timeout of the driver to a bit more than <b>timeoutMillis</b>
+     * during the wait. Nothing to wait for when the driver does not run scripts.
+     *
+     * @param webDriver the driver
+     * @param timeoutMillis maximum time to wait
+     * @param idleMillis    time without requests or timers for the network to be idle
+     * @throws TimeoutException if the page is not ready within the timeout.
+     */
+    public static void waitUntilReady(WebDriver webDriver, long timeoutMillis, long idleMillis) {
+        if (!(webDriver instanceof JavascriptExecutor)) {
+            return;
+        }
+        Long scriptTimeout = scriptTimeouts.get(webDriver);
+        webDriver.manage().timeouts()
+                .setScriptTimeout(timeoutMillis + SCRIPT_TIMEOUT_MARGIN_MILLIS, TimeUnit.MILLISECONDS);
+        Object notReady;
+        try {
+            notReady = ((JavascriptExecutor) webDriver).executeAsyncScript(WAIT_SCRIPT, idleMillis, timeoutMillis);
+        } finally {
+            try {
+                webDriver.manage().timeouts().setScriptTimeout(
+                        scriptTimeout != null ? scriptTimeout : DEFAULT_SCRIPT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                log.debug("Unable to restore the script timeout", e);
+            }
+        }
+        if (notReady != null) {
+            throw new TimeoutException(String.format("Page was not ready after %d ms: %s", timeoutMillis, notReady));
+        }
+    }
+
+    /**
+     * Sets the script timeout of the driver, the one restored after a wait.
+     *
+     * @param webDriver the driver
+     * @param timeoutMillis the script timeout
+     */
+    static void setScriptTimeout(WebDriver webDriver, long timeoutMillis) {
+        webDriver.manage().timeouts().setScriptTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        scriptTimeouts.put(webDriver, timeoutMillis);
+    }
+}
@@ -3,15 +3,12 @@ package com.rise.autotest.robot.selenium.util;
 import com.rise.autotest.robot.FatalException;
 import com.rise.autotest.robot.selenium.BrowserType;
 import lombok.extern.slf4j.Slf4j;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
-import org.openqa.selenium.MutableCapabilities;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.firefox.GeckoDriverService;
 import org.openqa.selenium.ie.InternetExplorerDriver;
 import org.openqa.selenium.ie.InternetExplorerOptions;
 import org.openqa.selenium.opera.OperaDriver;
@@ -20,6 +17,7 @@ import org.openqa.selenium.remote.DesiredCapabilities;
 import org.openqa.selenium.safari.SafariDriver;
 import org.openqa.selenium.safari.SafariOptions;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -34,23 +32,27 @@ public class WebDriverBuilder {
      * By default builds Firefox driver
      *
      * @param browser   the browser type. {@link BrowserType}
-     * @param capabilitiesJson  browser capabilities JSON.
+     * @param capabilitiesJson  browser capabilities JSON, or the name of a capability profile, e.g. 'fast'.
+     *                          See {@link CapabilityProfiles} and {@link FastProfile}
      * @return  {@code WebDriver} instance
      */
     public static WebDriver buildDriver(BrowserType browser, String capabilitiesJson) {
 
         WebDriver webDriver;
-        DesiredCapabilities capabilities = parseCapabilities(browser, capabilitiesJson);
+        DesiredCapabilities capabilities = CapabilityProfiles.instance().capabilities(browser, capabilitiesJson);
+        boolean fast = Boolean.TRUE.equals(capabilities.getCapability(FastProfile.CAPABILITY));
+        capabilities = driverCapabilities(capabilities);
 
         switch (browser) {
             case CHROME:
-                ChromeOptions chromeOptions = new ChromeOptions();
-                chromeOptions.merge(capabilities);
-                webDriver = new ChromeDriver(chromeOptions);
+                ChromeOptions chromeOptions = BrowserOptions.chrome(capabilities);
+                webDriver = DriverServices.isEnabled()
+                        ? new ChromeDriver(DriverServices.chrome(), chromeOptions) : new ChromeDriver(chromeOptions);
                 break;
             case FIREFOX:
                 FirefoxOptions firefoxOptions = new FirefoxOptions(capabilities);
-                webDriver = new FirefoxDriver(firefoxOptions);
+                webDriver = DriverServices.isEnabled() && !firefoxOptions.isLegacy()
+                        ? buildFirefoxDriver(firefoxOptions) : new FirefoxDriver(firefoxOptions);
                 break;
             case SAFARI:
                 SafariOptions safariOptions = new SafariOptions(capabilities);
@@ -61,8 +63,7 @@ public class WebDriverBuilder {
                 webDriver = new InternetExplorerDriver(internetExplorerOptions);
                 break;
             case OPERA:
-                OperaOptions operaOptions = new OperaOptions();
-                operaOptions.merge(capabilities);
+                OperaOptions operaOptions = BrowserOptions.opera(capabilities);
                 webDriver = new OperaDriver(operaOptions);
                 break;
             default:
@@ -70,10 +71,40 @@ public class WebDriverBuilder {
 
         }
         setTimeouts(webDriver, capabilities);
-        webDriver.manage().window().maximize();
+        if(fast) {
+            // headless, the window size does not matter
+            FastProfile.register(webDriver);
+        } else {
+            webDriver.manage().window().maximize();
+        }
         return webDriver;
     }
 
+    /**
+     * @param capabilities  the capabilities of the browser and profile
+     * @return  the capabilities to send to the driver, without the library capabilities, e.g.
+     *          {@link FastProfile#CAPABILITY}.
+     */
+    static DesiredCapabilities driverCapabilities(DesiredCapabilities capabilities) {
+        if (capabilities.getCapability(FastProfile.CAPABILITY) == null) {
+            return capabilities;
+        }
+        Map<String, Object> driverCapabilities = new HashMap<>(capabilities.asMap());
+        driverCapabilities.remove(FastProfile.CAPABILITY);
+        return new DesiredCapabilities(driverCapabilities);
+    }
+
+    private static WebDriver buildFirefoxDriver(FirefoxOptions firefoxOptions) {
+        GeckoDriverService driverService = DriverServices.gecko();
+        try {
+            return new FirefoxDriver(driverService, firefoxOptions);
+        } catch (RuntimeException e) {
+            // no session was created, the service is free for the next one
+            driverService.stop();
+            throw e;
+        }
+    }
+
     //TODO: understand the need for this. So far only Firefox supports, chrome does not support.
     /*Not all drivers support the Web Driver spec's "timeouts" settings. This is an effort to
         read the timeout properties and set them manually with driver.
@@ -93,8 +124,7 @@ public class WebDriverBuilder {
             }
 
             if (scriptTimeout != null && Long.valueOf(String.valueOf(scriptTimeout)) > 0) {
-                webDriver.manage().timeouts()
-                        .setScriptTimeout(Long.valueOf(String.valueOf(scriptTimeout)), TimeUnit.MILLISECONDS);
+                PageReadiness.setScriptTimeout(webDriver, Long.valueOf(String.valueOf(scriptTimeout)));
             }
 
             if (pageLoadTimeout != null && Long.valueOf(String.valueOf(pageLoadTimeout)) > 0) {
@@ -104,31 +134,17 @@ public class WebDriverBuilder {
         }
     }
 
-    private static DesiredCapabilities parseCapabilities(BrowserType browser, String capabilitiesJson) {
-        if(capabilitiesJson == null) {
-            return browser.capabilities();
-        }
-
-        Map<String, ?> capabilitiesMap = capabilitiesJsonAsMap(capabilitiesJson);
-        MutableCapabilities mutableCapabilities = new MutableCapabilities(capabilitiesMap);
-        return new DesiredCapabilities(browser.capabilities(), mutableCapabilities);
-    }
-
-    private static Map<String,Object> capabilitiesJsonAsMap(String capabilitiesJson) {
-        JSONParser jsonParser = new JSONParser();
-        Object json = null;
-        try {
-            json = jsonParser.parse(capabilitiesJson);
-
-            JSONObject jsonObject = (JSONObject)json;
-
-            JSONObject capabilitiesObject = (JSONObject) jsonObject.get("capabilities");
-
-            return (Map<String, Object>)capabilitiesObject;
-        } catch (ParseException e) {
-            throw new FatalException("Unable to parse the capabilities json");
-        }
-
+    /**
+     * Returns a canonical form of the capabilities: same for capabilities that differ only in key order or
+     * formatting.
+     *
+     * @param browser   the browser type. {@link BrowserType}
+     * @param capabilitiesJson  browser capabilities JSON or capability profile name. Optional.
+     * @return  the canonical form.
+     * @see CapabilityProfiles#fingerprint(BrowserType, String)
+     */
+    public static String capabilitiesFingerprint(BrowserType browser, String capabilitiesJson) {
+        return CapabilityProfiles.instance().fingerprint(browser, capabilitiesJson);
     }
 
 }
@@ -0,0 +1,46 @@
+package com.rise.autotest.robot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import com.rise.autotest.robot.processor.KeywordIndexProcessor;
+import org.junit.jupiter.api.Test;
+import org.robotframework.javalib.beans.annotation.AnnotationBasedKeywordFilter;
+import org.robotframework.javalib.beans.annotation.AnnotationKeywordExtractor;
+import org.robotframework.javalib.beans.annotation.KeywordBeanLoader;
+import org.robotframework.javalib.beans.common.IClassFilter;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The keyword index generated by the build must give the keywords of the class path scan, see
+ * {@link KeywordIndexBeanLoader}.
+ */
+class SeleniumKeywordIndexTest {
+
+    private static final String KEYWORDS_PATTERN = "com/rise/autotest/robot/selenium/keywords/**/*.class";
+
+    @Test
+    void testIndex_ShouldGiveTheKeywordsOfTheScan() throws Exception {
+        ClassLoader classLoader = getClass().getClassLoader();
+        IClassFilter classFilter = new AnnotationBasedKeywordFilter();
+
+        Map<?, ?> indexed = new KeywordIndexBeanLoader(KeywordIndexBeanLoader.indexedClasses(KEYWORDS_PATTERN,
+                classLoader, Collections.list(classLoader.getResources(KeywordIndexProcessor.INDEX_FILE))))
+                .loadBeanDefinitions(classFilter);
+        Map<?, ?> scanned = new KeywordBeanLoader(KEYWORDS_PATTERN, classLoader).loadBeanDefinitions(classFilter);
+
+        assertThat(indexed.keySet()).isNotEmpty().isEqualTo(scanned.keySet());
+        assertThat(keywordNames(indexed)).isEqualTo(keywordNames(scanned));
+    }
+
+    private static Set<String> keywordNames(Map<?, ?> beans) {
+        AnnotationKeywordExtractor extractor = new AnnotationKeywordExtractor();
+        Set<String> keywordNames = new TreeSet<>();
+        for (Object bean : beans.values()) {
+            keywordNames.addAll(extractor.extractKeywords(bean).keySet());
+        }
+        return keywordNames;
+    }
+}
@@ -0,0 +1,111 @@
+package com.rise.autotest.robot.selenium;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import com.rise.autotest.robot.FailureException;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class BrowserLauncherTest {
+
+    private final List<WebDriver> released = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    void testParse_WhenOptionsGiven_ShouldApplyToPrecedingUrl() {
+        List<BrowserLauncher.BrowserSpec> specs = BrowserLauncher.parse(new String[]{
+                "http://one", "browser=chrome", "alias=first", "http://two",
+                "capabilities={\"capabilities\": {\"a\": \"b=c\"}}"}, "FIREFOX");
+
+        assertThat(specs).hasSize(2);
+        assertThat(specs.get(0).getUrl()).isEqualTo("http://one");
+        assertThat(specs.get(0).getBrowserName()).isEqualTo("chrome");
+        assertThat(specs.get(0).getAlias()).isEqualTo("first");
+        assertThat(specs.get(0).getCapabilitiesJson()).isNull();
+        assertThat(specs.get(1).getBrowserName()).isEqualTo("FIREFOX");
+        assertThat(specs.get(1).getAlias()).isNull();
+        assertThat(specs.get(1).getCapabilitiesJson()).isEqualTo("{\"capabilities\": {\"a\": \"b=c\"}}");
+    }
+
+    @Test
+    void testParse_WhenOptionBeforeUrl_ShouldThrowException() {
+        assertThatExceptionOfType(FailureException.class)
+                .isThrownBy(() -> BrowserLauncher.parse(new String[]{"alias=first", "http://one"}, "FIREFOX"));
+        assertThatExceptionOfType(FailureException.class)
+                .isThrownBy(() -> BrowserLauncher.parse(new String[0], "FIREFOX"));
+    }
+
+    @Test
+    void testLaunch_WhenAllStart_ShouldOpenConcurrentlyInOrder() {
+        int count = 4;
+        CountDownLatch allStarted = new CountDownLatch(count);
+        BrowserLauncher launcher = new BrowserLauncher((browser, capabilities) -> {
+            // completes only if the drivers are built concurrently
+            allStarted.countDown();
+            try {
+                assertThat(allStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return mock(WebDriver.class);
+        }, released::add);
+
+        List<BrowserLauncher.BrowserSpec> specs = BrowserLauncher.parse(
+                new String[]{"http://0", "http://1", "http://2", "http://3"}, "FIREFOX");
+        List<WebDriver> webDrivers = launcher.launch(specs);
+
+        assertThat(webDrivers).hasSize(count).doesNotContainNull();
+        for (int i = 0; i < count; i++) {
+            verify(webDrivers.get(i)).get("http://" + i);
+        }
+        assertThat(released).isEmpty();
+    }
+
+    @Test
+    void testLaunch_WhenOneFails_ShouldReleaseStartedBrowsers() {
+        List<WebDriver> started = Collections.synchronizedList(new ArrayList<>());
+        BrowserLauncher launcher = new BrowserLauncher((browser, capabilities) -> {
+            if (browser == BrowserType.CHROME) {
+                throw new WebDriverException("chromedriver not found");
+            }
+            WebDriver webDriver = mock(WebDriver.class);
+            started.add(webDriver);
+            return webDriver;
+        }, released::add);
+
+        List<BrowserLauncher.BrowserSpec> specs = BrowserLauncher.parse(new String[]{
+                "http://one", "http://two", "browser=chrome", "alias=second", "http://three"}, "FIREFOX");
+
+        assertThatExceptionOfType(FailureException.class)
+                .isThrownBy(() -> launcher.launch(specs))
+                .withMessageStartingWith("Unable to open 1 of 3 browsers. second: chromedriver not found");
+        assertThat(started).hasSize(2);
+        assertThat(released).hasSameSizeAs(started).containsOnlyElementsOf(started);
+    }
+
+    @Test
+    void testLaunch_WhenNavigationFails_ShouldReleaseAllBrowsers() {
+        List<WebDriver> started = Collections.synchronizedList(new ArrayList<>());
+        BrowserLauncher launcher = new BrowserLauncher((browser, capabilities) -> {
+            WebDriver webDriver = mock(WebDriver.class);
+            doThrow(new WebDriverException("Malformed URL")).when(webDriver).get("bad");
+            started.add(webDriver);
+            return webDriver;
+        }, released::add);
+        List<BrowserLauncher.BrowserSpec> specs = BrowserLauncher.parse(new String[]{"http://one", "bad"}, "FIREFOX");
+
+        assertThatExceptionOfType(FailureException.class)
+                .isThrownBy(() -> launcher.launch(specs))
+                .withMessageStartingWith("Unable to open 1 of 2 browsers. FIREFOX bad: Malformed URL");
+        assertThat(released).hasSameSizeAs(started).containsOnlyElementsOf(started);
+    }
+}
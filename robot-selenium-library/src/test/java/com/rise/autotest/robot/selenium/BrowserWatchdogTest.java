@@ -0,0 +1,92 @@
+package com.rise.autotest.robot.selenium;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.NoSuchWindowException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.firefox.FirefoxDriver;
+
+import java.util.Collections;
+
+class BrowserWatchdogTest {
+
+    private final WebDriverManager webDriverManager = WebDriverManager.instance();
+    private final WebDriver dead = mock(FirefoxDriver.class);
+    private final BrowserWatchdog watchdog = new BrowserWatchdog(() -> Collections.singletonList(webDriverManager),
+            webDriver -> webDriver != dead);
+
+    @AfterEach
+    void clean() {
+        watchdog.stop();
+        webDriverManager.closeAll();
+    }
+
+    @Test
+    void testCheck_WhenBrowserDead_ShouldEvictSession() {
+        webDriverManager.register(mock(FirefoxDriver.class), "alive");
+        webDriverManager.register(dead, "dead");
+
+        watchdog.check();
+
+        assertThat(webDriverManager.size()).isEqualTo(1);
+        assertThat(webDriverManager.getCurrentSessionId()).isNotNull();
+        assertThat(watchdog.statistics()).containsEntry("checks", 1L).containsEntry("sessionsChecked", 2L)
+                .containsEntry("sessionsEvicted", 1L);
+    }
+
+    @Test
+    void testCheck_WhenSessionBusy_ShouldNotProbeIt() {
+        webDriverManager.register(dead, "dead");
+        Runnable idle = webDriverManager.markBusy();
+
+        watchdog.check();
+        assertThat(webDriverManager.size()).isEqualTo(1);
+        assertThat(watchdog.statistics()).containsEntry("sessionsChecked", 0L);
+
+        idle.run();
+        watchdog.check();
+        assertThat(webDriverManager.size()).isZero();
+    }
+
+    @Test
+    void testCheck_WhenBrowsersAlive_ShouldKeepSessions() {
+        webDriverManager.register(mock(FirefoxDriver.class), "alive");
+
+        watchdog.check();
+        watchdog.check();
+
+        assertThat(webDriverManager.size()).isEqualTo(1);
+        assertThat(watchdog.statistics()).containsEntry("checks", 2L).containsEntry("sessionsEvicted", 0L);
+    }
+
+    @Test
+    void testStart_ShouldRunUntilStopped() {
+        watchdog.start(60);
+        assertThat(watchdog.isRunning()).isTrue();
+
+        watchdog.stop();
+        assertThat(watchdog.isRunning()).isFalse();
+    }
+
+    @Test
+    void testIsAlive_ShouldTellDeadBrowsersFromClosedWindows() {
+        WebDriver webDriver = mock(FirefoxDriver.class);
+        assertThat(BrowserWatchdog.isAlive(webDriver)).isTrue();
+
+        when(webDriver.getWindowHandles()).thenThrow(new NoSuchWindowException("no such window"));
+        assertThat(BrowserWatchdog.isAlive(webDriver)).isTrue();
+
+        WebDriver crashed = mock(FirefoxDriver.class);
+        when(crashed.getWindowHandles()).thenThrow(new WebDriverException("chrome not reachable"));
+        assertThat(BrowserWatchdog.isAlive(crashed)).isFalse();
+
+        WebDriver quit = mock(FirefoxDriver.class);
+        when(quit.getWindowHandles()).thenThrow(new NoSuchSessionException("Session ID is null"));
+        assertThat(BrowserWatchdog.isAlive(quit)).isFalse();
+    }
+}
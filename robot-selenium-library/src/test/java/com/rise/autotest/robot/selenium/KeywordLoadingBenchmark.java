@@ -0,0 +1,42 @@
+package com.rise.autotest.robot.selenium;
+
+import com.rise.autotest.robot.util.AlternatingBenchmark;
+
+/**
+ * Measures the import of {@link SeleniumLibrary} by robot, i.e. the construction and the keyword names, with the keyword
+ * index and with the class path scan (system property 'robot.keyword.index' false). Runs as described in
+ * {@link AlternatingBenchmark}, with the argument [rounds]. The index is only used from the library jar, put it in place
+ * of target/classes.
+ */
+public final class KeywordLoadingBenchmark {
+
+    private KeywordLoadingBenchmark() {
+
+    }
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        System.setProperty("robot.keyword.statistics", "false");
+        // keeps the logger open, so the rounds do not start and stop its interpreters
+        SeleniumLibrary library = new SeleniumLibrary();
+        try {
+            new AlternatingBenchmark(20, rounds, 1)
+                    .variant("index", () -> importLibrary(true))
+                    .variant("scan", () -> importLibrary(false))
+                    .runAndPrint(System.out);
+        } finally {
+            System.clearProperty("robot.keyword.index");
+            library.close();
+        }
+    }
+
+    private static void importLibrary(boolean index) {
+        System.setProperty("robot.keyword.index", String.valueOf(index));
+        SeleniumLibrary library = new SeleniumLibrary();
+        int keywords = library.getKeywordNames().length;
+        library.close();
+        if (keywords == 0) {
+            throw new IllegalStateException("No keyword found");
+        }
+    }
+}
@@ -2,16 +2,27 @@ package com.rise.autotest.robot.selenium;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
+import com.rise.autotest.robot.FailureException;
+import com.rise.autotest.robot.util.SessionNamespace;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.firefox.FirefoxDriver;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 class WebDriverManagerTest {
 
@@ -188,4 +199,213 @@ class WebDriverManagerTest {
         assertThat(webDriverManager.size()).isEqualTo(1);
     }
 
-}
\ No newline at end of file
+    @Test
+    void testInstance_WhenOtherNamespace_ShouldReturnSeparateManager() {
+        WebDriver webDriver = mock(FirefoxDriver.class);
+        webDriverManager.register(webDriver, ALIAS);
+
+        SessionNamespace.set("client-1");
+        try {
+            WebDriverManager namespaceManager = WebDriverManager.instance();
+            assertThat(namespaceManager).isNotSameAs(webDriverManager).isSameAs(WebDriverManager.instance());
+            assertThat(namespaceManager.size()).isEqualTo(0);
+        } finally {
+            SessionNamespace.set(null);
+        }
+        assertThat(WebDriverManager.instance()).isSameAs(webDriverManager);
+    }
+
+    @Test
+    void testCloseNamespace_ShouldQuitItsDriversAndForgetTheManager() {
+        WebDriver webDriver = mock(FirefoxDriver.class);
+
+        SessionNamespace.set("client-1");
+        try {
+            WebDriverManager namespaceManager = WebDriverManager.instance();
+            namespaceManager.register(webDriver, ALIAS);
+
+            WebDriverManager.closeNamespace();
+
+            assertThat(namespaceManager.size()).isEqualTo(0);
+            assertThat(WebDriverManager.instance()).isNotSameAs(namespaceManager);
+            assertThat(WebDriverManager.instances()).doesNotContain(namespaceManager);
+        } finally {
+            WebDriverManager.closeNamespace();
+            SessionNamespace.set(null);
+        }
+        verify(webDriver).quit();
+        assertThat(WebDriverManager.instance()).isSameAs(webDriverManager);
+    }
+
+    @Test
+    void testGetCurrent_WhenRegisteredByAnotherThread_ShouldReturnOwnDriver() throws Exception {
+        WebDriver webDriver = mock(FirefoxDriver.class);
+        String sessionId = webDriverManager.register(webDriver, ALIAS);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            WebDriver anotherWebDriver = mock(FirefoxDriver.class);
+            executor.submit(() -> {
+                assertThat(webDriverManager.getCurrent()).isNull();
+                webDriverManager.register(anotherWebDriver, ANOTHER_ALIAS);
+                assertThat(webDriverManager.getCurrent()).isSameAs(anotherWebDriver);
+            }).get();
+
+            assertThat(webDriverManager.getCurrent()).isSameAs(webDriver);
+            assertThat(webDriverManager.size()).isEqualTo(2);
+
+            // closed by this thread, the other thread has no current browser anymore
+            webDriverManager.close(ANOTHER_ALIAS);
+            executor.submit(() -> assertThat(webDriverManager.getCurrent()).isNull()).get();
+            assertThat(webDriverManager.getCurrentSessionId()).isEqualTo(sessionId);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testConcurrentSessions_WhenManyThreads_ShouldKeepCurrentSessionPerThread() throws Exception {
+        int threads = 16;
+        int sessionsPerThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int quits = 0;
+                    for (int i = 0; i < sessionsPerThread; i++) {
+                        WebDriver first = mock(WebDriver.class);
+                        WebDriver second = mock(WebDriver.class);
+                        String firstId = webDriverManager.register(first, null);
+                        String secondId = webDriverManager.register(second, null);
+                        assertThat(webDriverManager.getCurrent()).isSameAs(second);
+
+                        webDriverManager.switchBrowser(firstId);
+                        assertThat(webDriverManager.getCurrentSessionId()).isEqualTo(firstId);
+
+                        webDriverManager.close();
+                        assertThat(webDriverManager.getCurrentSessionId()).isEqualTo(secondId);
+                        webDriverManager.close(secondId);
+                        assertThat(webDriverManager.getCurrent()).isNull();
+                        verify(first).quit();
+                        verify(second).quit();
+                        quits += 2;
+                    }
+                    return quits;
+                }));
+            }
+            start.countDown();
+            int quits = 0;
+            for (Future<Integer> result : results) {
+                quits += result.get(60, TimeUnit.SECONDS);
+            }
+            assertThat(quits).isEqualTo(threads * sessionsPerThread * 2);
+            assertThat(webDriverManager.size()).isEqualTo(0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCloseAll_WhenDriverHangs_ShouldReturnAfterTimeoutAndReportIt() throws Exception {
+        CountDownLatch hung = new CountDownLatch(1);
+        WebDriver hungWebDriver = mock(FirefoxDriver.class);
+        doAnswer(invocation -> {
+            hung.await();
+            return null;
+        }).when(hungWebDriver).quit();
+        webDriverManager.register(hungWebDriver, ALIAS);
+        WebDriver webDriver = mock(FirefoxDriver.class);
+        String sessionId = webDriverManager.register(webDriver, null);
+
+        long start = System.nanoTime();
+        try {
+            List<String> killed = webDriverManager.closeAll(200);
+
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5000);
+            assertThat(killed).containsExactly(ALIAS).doesNotContain(sessionId);
+            verify(webDriver).quit();
+            assertThat(webDriverManager.size()).isEqualTo(0);
+        } finally {
+            hung.countDown();
+        }
+    }
+
+    @Test
+    void testCloseAll_WhenManyDrivers_ShouldQuitInParallel() {
+        int count = 8;
+        CountDownLatch allQuitting = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            WebDriver webDriver = mock(FirefoxDriver.class);
+            // completes only if the drivers are quit concurrently
+            doAnswer(invocation -> {
+                allQuitting.countDown();
+                return allQuitting.await(5, TimeUnit.SECONDS);
+            }).when(webDriver).quit();
+            webDriverManager.register(webDriver, null);
+        }
+
+        long start = System.nanoTime();
+        assertThat(webDriverManager.closeAll(10_000)).isEmpty();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5000);
+    }
+
+    @Test
+    void testRegisterDeferred_ShouldReturnBeforeDriverStartsAndWaitOnFirstUse() {
+        CompletableFuture<WebDriver> starting = new CompletableFuture<>();
+        String sessionId = webDriverManager.registerDeferred(starting, ALIAS);
+
+        assertThat(webDriverManager.getCurrentSessionId()).isEqualTo(sessionId);
+        assertThat(webDriverManager.drivers()).isEmpty();
+
+        WebDriver webDriver = mock(FirefoxDriver.class);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> {
+                Thread.sleep(200);
+                return starting.complete(webDriver);
+            });
+            long start = System.nanoTime();
+            assertThat(webDriverManager.getCurrent()).isSameAs(webDriver);
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(150);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(webDriverManager.drivers()).containsExactly(webDriver);
+    }
+
+    @Test
+    void testRegisterDeferred_WhenDriverFailsToStart_ShouldFailAndRemoveSession() {
+        WebDriver webDriver = mock(FirefoxDriver.class);
+        webDriverManager.register(webDriver, ANOTHER_ALIAS);
+        CompletableFuture<WebDriver> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("no display"));
+        webDriverManager.registerDeferred(failed, ALIAS);
+
+        assertThatExceptionOfType(FailureException.class)
+                .isThrownBy(() -> webDriverManager.getCurrent())
+                .withMessage("Unable to open browser Test. no display");
+        assertThat(webDriverManager.size()).isEqualTo(1);
+        assertThat(webDriverManager.getCurrent()).isSameAs(webDriver);
+    }
+
+    @Test
+    void testCloseAll_WhenDriverStillStarting_ShouldQuitItOnceStarted() throws Exception {
+        CompletableFuture<WebDriver> starting = new CompletableFuture<>();
+        webDriverManager.registerDeferred(starting, ALIAS);
+
+        assertThat(webDriverManager.closeAll(100)).isEmpty();
+        assertThat(webDriverManager.size()).isEqualTo(0);
+
+        WebDriver webDriver = mock(FirefoxDriver.class);
+        CountDownLatch quit = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            quit.countDown();
+            return null;
+        }).when(webDriver).quit();
+        starting.complete(webDriver);
+        assertThat(quit.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
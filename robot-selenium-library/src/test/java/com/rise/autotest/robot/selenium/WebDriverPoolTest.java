@@ -0,0 +1,265 @@
+package com.rise.autotest.robot.selenium;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import com.rise.autotest.robot.util.SessionNamespace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.firefox.FirefoxDriver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class WebDriverPoolTest {
+
+    private static final String CAPABILITIES = "{\"capabilities\": {\"acceptInsecureCerts\": true, \"timeouts\": {\"script\": 10, \"implicit\": 0}}}";
+    private static final String SAME_CAPABILITIES = "{\"capabilities\": {\"timeouts\": {\"implicit\": 0, \"script\": 10}, \"acceptInsecureCerts\": true}}";
+
+    private final List<WebDriver> launched = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong clock = new AtomicLong();
+    private final WebDriverPool pool = new WebDriverPool((browser, capabilities) -> {
+        WebDriver webDriver = mock(FirefoxDriver.class, RETURNS_DEEP_STUBS);
+        when(webDriver.getWindowHandles()).thenReturn(Collections.singleton("main"));
+        launched.add(webDriver);
+        return webDriver;
+    }, clock::get);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void testBorrow_WhenDisabled_ShouldLaunchAndQuitOnRelease() {
+        WebDriver webDriver = pool.borrow(BrowserType.FIREFOX, null);
+        pool.release(webDriver);
+
+        verify(webDriver).quit();
+        assertThat(pool.idleCount()).isZero();
+    }
+
+    @Test
+    void testRelease_WhenEnabled_ShouldResetAndReuseDriver() {
+        pool.configure(2, 300, 50);
+        WebDriver webDriver = pool.borrow(BrowserType.FIREFOX, null);
+        pool.release(webDriver);
+
+        verify(webDriver, never()).quit();
+        verify(webDriver.manage()).deleteAllCookies();
+        verify(webDriver).get("about:blank");
+        assertThat(pool.idleCount()).isEqualTo(1);
+        assertThat(pool.borrow(BrowserType.FIREFOX, null)).isSameAs(webDriver);
+        assertThat(launched).hasSize(1);
+    }
+
+    @Test
+    void testRelease_WhenSeveralWindows_ShouldCloseExtraWindows() {
+        pool.configure(1, 300, 50);
+        WebDriver webDriver = pool.borrow(BrowserType.FIREFOX, null);
+        when(webDriver.getWindowHandles()).thenReturn(new LinkedHashSet<>(Arrays.asList("main", "popup")));
+        pool.release(webDriver);
+
+        verify(webDriver.switchTo()).window("popup");
+        verify(webDriver.switchTo()).window("main");
+        assertThat(pool.idleCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testBorrow_WhenDifferentBrowserOrCapabilities_ShouldNotReuseDriver() {
+        pool.configure(2, 300, 50);
+        WebDriver webDriver = pool.borrow(BrowserType.FIREFOX, CAPABILITIES);
+        pool.release(webDriver);
+
+        assertThat(pool.borrow(BrowserType.CHROME, CAPABILITIES)).isNotSameAs(webDriver);
+        assertThat(pool.borrow(BrowserType.FIREFOX, null)).isNotSameAs(webDriver);
+        assertThat(pool.borrow(BrowserType.FIREFOX, SAME_CAPABILITIES)).isSameAs(webDriver);
+    }
+
+    @Test
+    void testBorrow_WhenIdleTooLong_ShouldQuitAndLaunchNewDriver() {
+        pool.configure(2, 60, 50);
+        WebDriver webDriver = pool.borrow(BrowserType.FIREFOX, null);
+        pool.release(webDriver);
+        clock.addAndGet(TimeUnit.SECONDS.toMillis(61));
+
+        assertThat(pool.borrow(BrowserType.FIREFOX, null)).isNotSameAs(webDriver);
+        verify(webDriver).quit();
+    }
+
+    @Test
+    void testEvictIdle_WhenIdleTooLong_ShouldQuitDriver() {
+        pool.configure(2, 60, 50);
+        WebDriver webDriver = pool.borrow(BrowserType.FIREFOX, null);
+        pool.release(webDriver);
+
+        clock.addAndGet(TimeUnit.SECONDS.toMillis(30));
+        pool.evictIdle();
+        assertThat(pool.idleCount()).isEqualTo(1);
+
+        clock.addAndGet(TimeUnit.SECONDS.toMillis(30));
+        pool.evictIdle();
+        assertThat(pool.idleCount()).isZero();
+        verify(webDriver).quit();
+    }
+
+    @Test
+    void testRelease_WhenMaxUsesReached_ShouldQuitDriver() {
+        pool.configure(2, 300, 2);
+        WebDriver webDriver = pool.borrow(BrowserType.FIREFOX, null);
+        pool.release(webDriver);
+        assertThat(pool.borrow(BrowserType.FIREFOX, null)).isSameAs(webDriver);
+        pool.release(webDriver);
+
+        verify(webDriver).quit();
+        assertThat(pool.idleCount()).isZero();
+    }
+
+    @Test
+    void testRelease_WhenResetFails_ShouldQuitDriver() {
+        pool.configure(2, 300, 50);
+        WebDriver webDriver = pool.borrow(BrowserType.FIREFOX, null);
+        when(webDriver.getWindowHandles()).thenThrow(new IllegalStateException("browser crashed"));
+        pool.release(webDriver);
+
+        verify(webDriver).quit();
+        assertThat(pool.idleCount()).isZero();
+    }
+
+    @Test
+    void testRelease_WhenPoolFull_ShouldQuitDriver() {
+        pool.configure(1, 300, 50);
+        WebDriver first = pool.borrow(BrowserType.FIREFOX, null);
+        WebDriver second = pool.borrow(BrowserType.FIREFOX, null);
+        pool.release(first);
+        pool.release(second);
+
+        verify(first, never()).quit();
+        verify(second).quit();
+        assertThat(pool.idleCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testRelease_WhenConcurrent_ShouldNotExceedPoolSize() throws Exception {
+        pool.configure(1, 300, 50);
+        List<WebDriver> borrowed = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            borrowed.add(pool.borrow(BrowserType.FIREFOX, null));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> releases = new ArrayList<>();
+            for (WebDriver webDriver : borrowed) {
+                releases.add(executor.submit(() -> {
+                    start.await();
+                    pool.release(webDriver);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> release : releases) {
+                release.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(pool.idleCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testBorrow_WhenOtherNamespace_ShouldNotReuseDriver() {
+        pool.configure(2, 300, 50);
+        WebDriver webDriver = pool.borrow(BrowserType.FIREFOX, null);
+        pool.release(webDriver);
+
+        SessionNamespace.set("client-1");
+        try {
+            WebDriver namespaceDriver = pool.borrow(BrowserType.FIREFOX, null);
+            assertThat(namespaceDriver).isNotSameAs(webDriver);
+            pool.release(namespaceDriver);
+
+            pool.closeNamespace("client-1");
+            verify(namespaceDriver).quit();
+        } finally {
+            SessionNamespace.set(null);
+        }
+        verify(webDriver, never()).quit();
+        assertThat(pool.borrow(BrowserType.FIREFOX, null)).isSameAs(webDriver);
+    }
+
+    @Test
+    void testEvictDead_ShouldRemoveDeadIdleDrivers() {
+        pool.configure(2, 300, 50);
+        WebDriver alive = pool.borrow(BrowserType.FIREFOX, null);
+        WebDriver dead = pool.borrow(BrowserType.FIREFOX, null);
+        pool.release(alive);
+        pool.release(dead);
+
+        assertThat(pool.evictDead(webDriver -> webDriver != dead)).containsExactly(dead);
+
+        assertThat(pool.drivers()).containsExactly(alive);
+        verify(dead, never()).quit();
+    }
+
+    @Test
+    void testDiscard_ShouldForgetBorrowedDriver() {
+        pool.configure(2, 300, 50);
+        WebDriver webDriver = pool.borrow(BrowserType.FIREFOX, null);
+
+        pool.discard(webDriver);
+
+        assertThat(pool.drivers()).isEmpty();
+        pool.release(webDriver);
+        verify(webDriver).quit();
+        assertThat(pool.idleCount()).isZero();
+    }
+
+    @Test
+    void testPrelaunch_WhenEnabled_ShouldLaunchUpToPoolSize() throws InterruptedException {
+        pool.configure(2, 300, 50);
+        pool.prelaunch(BrowserType.FIREFOX, null);
+        awaitIdleCount(2);
+        assertThat(launched).hasSize(2);
+
+        WebDriver webDriver = pool.borrow(BrowserType.FIREFOX, null);
+        assertThat(launched).contains(webDriver);
+        // the borrowed browser is replaced in the background
+        awaitIdleCount(2);
+        assertThat(launched).hasSize(3);
+    }
+
+    @Test
+    void testConfigure_WhenSizeZero_ShouldQuitIdleDrivers() {
+        pool.configure(2, 300, 50);
+        WebDriver webDriver = pool.borrow(BrowserType.FIREFOX, null);
+        pool.release(webDriver);
+        pool.configure(0, 300, 50);
+
+        verify(webDriver).quit();
+        assertThat(pool.idleCount()).isZero();
+        assertThat(pool.isEnabled()).isFalse();
+    }
+
+    private void awaitIdleCount(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pool.idleCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(pool.idleCount()).isEqualTo(count);
+    }
+}
@@ -0,0 +1,135 @@
+package com.rise.autotest.robot.selenium.locator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.WrapsElement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+class ElementCacheTest {
+
+    private final WebDriver webDriver = mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class));
+    private final WebElement element = mock(WebElement.class);
+    private final ParsedLocator locator = LocatorFactory.instance().parse("id=q", null);
+    private final ElementCache elementCache = new ElementCache(true);
+
+    @Test
+    void testFind_WhenDomUnchanged_ShouldNotLookUpAgain() {
+        when(((JavascriptExecutor) webDriver).executeScript(ElementCache.VERSION_SCRIPT)).thenReturn("a:1");
+        when(webDriver.findElements(By.id("q"))).thenReturn(found(element));
+
+        List<WebElement> first = elementCache.find(webDriver, locator, true, 20_000);
+        List<WebElement> second = elementCache.find(webDriver, locator, true, 20_000);
+
+        assertThat(second).isSameAs(first);
+        assertThat(((WrapsElement) second.get(0)).getWrappedElement()).isSameAs(element);
+        verify(webDriver, times(1)).findElements(By.id("q"));
+    }
+
+    @Test
+    void testFind_WhenDomChangedOrOtherDocument_ShouldLookUpAgain() {
+        when(((JavascriptExecutor) webDriver).executeScript(ElementCache.VERSION_SCRIPT))
+                .thenReturn("a:1", "a:2", "b:2");
+        when(webDriver.findElements(By.id("q"))).thenReturn(found(element));
+
+        elementCache.find(webDriver, locator, true, 20_000);
+        elementCache.find(webDriver, locator, true, 20_000);
+        elementCache.find(webDriver, locator, true, 20_000);
+
+        verify(webDriver, times(3)).findElements(By.id("q"));
+    }
+
+    @Test
+    void testFind_WhenDisabledOrInvalidated_ShouldLookUpAgain() {
+        when(((JavascriptExecutor) webDriver).executeScript(ElementCache.VERSION_SCRIPT)).thenReturn("a:1");
+        when(webDriver.findElements(By.id("q"))).thenReturn(found(element));
+        ElementCache disabled = new ElementCache(false);
+
+        assertThat(disabled.find(webDriver, locator, true, 20_000)).containsExactly(element);
+        disabled.find(webDriver, locator, true, 20_000);
+        elementCache.find(webDriver, locator, true, 20_000);
+        elementCache.invalidate(webDriver);
+        elementCache.find(webDriver, locator, true, 20_000);
+
+        verify(webDriver, times(4)).findElements(By.id("q"));
+    }
+
+    @Test
+    void testFind_WhenCachedElementStale_ShouldLocateItAgain() {
+        WebElement rendered = mock(WebElement.class);
+        when(element.getText()).thenThrow(new StaleElementReferenceException("stale"));
+        when(rendered.getText()).thenReturn("hello");
+        when(((JavascriptExecutor) webDriver).executeScript(ElementCache.VERSION_SCRIPT)).thenReturn("a:1");
+        when(webDriver.findElements(By.id("q"))).thenReturn(found(element), found(rendered));
+
+        WebElement cached = elementCache.find(webDriver, locator, true, 20_000).get(0);
+
+        assertThat(cached.getText()).isEqualTo("hello");
+        assertThat(((WrapsElement) cached).getWrappedElement()).isSameAs(rendered);
+        assertThat(cached).isEqualTo(cached);
+    }
+
+    @Test
+    void testFind_WhenStateSelector_ShouldAlwaysLookUp() {
+        ParsedLocator checked = LocatorFactory.instance().parse("css=input:not(:checked)", null);
+        when(((JavascriptExecutor) webDriver).executeScript(ElementCache.VERSION_SCRIPT)).thenReturn("a:1");
+        when(webDriver.findElements(By.cssSelector("input:not(:checked)"))).thenReturn(found(element));
+
+        elementCache.find(webDriver, checked, true, 20_000);
+        elementCache.find(webDriver, checked, true, 20_000);
+
+        verify(webDriver, times(2)).findElements(By.cssSelector("input:not(:checked)"));
+        verify((JavascriptExecutor) webDriver, never()).executeScript(ElementCache.VERSION_SCRIPT);
+    }
+
+    @Test
+    void testIsCacheable_ShouldExcludeStateSelectorsAndJQuery() {
+        assertThat(ElementCache.isCacheable(locator)).isTrue();
+        assertThat(ElementCache.isCacheable(LocatorFactory.instance().parse("css=#menu > li.item", null))).isTrue();
+        assertThat(ElementCache.isCacheable(LocatorFactory.instance().parse("css=a:HOVER", null))).isFalse();
+        assertThat(ElementCache.isCacheable(LocatorFactory.instance().parse("css=input:focus-within", null)))
+                .isFalse();
+        assertThat(ElementCache.isCacheable(LocatorFactory.instance().parse("jquery=div.item", null))).isFalse();
+    }
+
+    @Test
+    void testFind_WhenDomKeepsChanging_ShouldSkipTheVersionForAWhile() {
+        when(((JavascriptExecutor) webDriver).executeScript(ElementCache.VERSION_SCRIPT))
+                .thenAnswer(new Answer<String>() {
+                    private int version;
+
+                    @Override
+                    public String answer(InvocationOnMock invocation) {
+                        return "a:" + version++;
+                    }
+                });
+        when(webDriver.findElements(By.id("q"))).thenReturn(found(element));
+
+        for (int lookup = 0; lookup < 9; lookup++) {
+            elementCache.find(webDriver, locator, true, 20_000);
+        }
+        elementCache.find(webDriver, locator, true, 20_000);
+
+        verify((JavascriptExecutor) webDriver, times(9)).executeScript(ElementCache.VERSION_SCRIPT);
+        verify(webDriver, times(10)).findElements(By.id("q"));
+    }
+
+    private static List<WebElement> found(WebElement element) {
+        return new ArrayList<>(Collections.singletonList(element));
+    }
+}
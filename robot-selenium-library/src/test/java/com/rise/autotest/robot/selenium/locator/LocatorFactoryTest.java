@@ -0,0 +1,61 @@
+package com.rise.autotest.robot.selenium.locator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.By;
+
+class LocatorFactoryTest {
+
+    private final LocatorFactory locatorFactory = LocatorFactory.instance();
+
+    @Test
+    void testParse_WhenSameLocatorAndTag_ShouldReuseTheParsedLocator() {
+        ParsedLocator parsed = locatorFactory.parse("css=form .agree", ElementTag.fromName("checkbox"));
+
+        assertThat(locatorFactory.parse("css=form .agree", ElementTag.fromName("CHECKBOX"))).isSameAs(parsed);
+        assertThat(locatorFactory.parse("css=form .agree", null)).isNotSameAs(parsed);
+        assertThat(parsed.getLocator()).isInstanceOf(Locators.CssLocator.class);
+        assertThat(parsed.getContext().getCriteria()).isEqualTo("form .agree");
+        assertThat(parsed.getContext().getBy()).isEqualTo(By.cssSelector("form input.agree"));
+    }
+
+    @Test
+    void testParse_WhenXPath_ShouldKeepTheWholeExpression() {
+        ParsedLocator parsed = locatorFactory.parse("//a[@href='/home']", null);
+        ParsedLocator prefixed = locatorFactory.parse("xpath=//a[@href='/home']", null);
+
+        assertThat(parsed.getLocator()).isInstanceOf(Locators.XPathLocator.class);
+        assertThat(parsed.getContext().getCriteria()).isEqualTo("//a[@href='/home']");
+        assertThat(prefixed.getContext().getBy()).isEqualTo(parsed.getContext().getBy());
+        assertThat(locatorFactory.parse("q", null).getContext().getBy()).isEqualTo(By.id("q"));
+    }
+
+    @Test
+    void testParse_WhenUnknownStrategy_ShouldFail() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> locatorFactory.parse("unknown=q", null));
+    }
+
+    @Test
+    void testWithWait_ShouldOnlyCopyWhenTheWaitChanges() {
+        LocatorContext context = locatorFactory.parse("name=q", null).getContext();
+
+        assertThat(context.withWait(context.isRequired(), context.getTimeoutMillis())).isSameAs(context);
+        LocatorContext required = context.withWait(true, 100);
+        assertThat(required.isRequired()).isTrue();
+        assertThat(required.getTimeoutMillis()).isEqualTo(100);
+        assertThat(required.getBy()).isSameAs(context.getBy());
+        assertThat(context.isRequired()).isFalse();
+    }
+
+    @Test
+    void testFromName_ShouldShareTheStandardTags() {
+        ElementTag checkbox = ElementTag.fromName("checkbox");
+
+        assertThat(ElementTag.fromName("CHECKBOX")).isSameAs(checkbox);
+        assertThat(checkbox.withAttribute("value", "on").getAttributes()).hasSize(2);
+        assertThat(checkbox.getAttributes()).hasSize(1);
+        assertThat(ElementTag.fromName("div")).isEqualTo(ElementTag.fromName("div"));
+    }
+}
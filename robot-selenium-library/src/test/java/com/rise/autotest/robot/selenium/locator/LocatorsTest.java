@@ -0,0 +1,245 @@
+package com.rise.autotest.robot.selenium.locator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class LocatorsTest {
+
+    private final WebDriver webDriver = mock(WebDriver.class);
+    private final WebElement element = mock(WebElement.class);
+
+    @Test
+    void testFind_WhenElementPresent_ShouldFindInOneRoundTrip() {
+        when(webDriver.findElements(By.id("q"))).thenReturn(new ArrayList<>(Collections.singletonList(element)));
+
+        long start = System.nanoTime();
+        List<WebElement> elements = find(new Locators.IdLocator(), webDriver, "q", null, true, 20_000);
+
+        assertThat(elements).containsExactly(element);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        verify(webDriver, times(1)).findElements(By.id("q"));
+    }
+
+    @Test
+    void testFind_WhenElementAppearsLater_ShouldPollUntilFound() {
+        when(webDriver.findElements(By.cssSelector("#q")))
+                .thenReturn(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(Collections.singletonList(element)));
+
+        List<WebElement> elements = find(new Locators.CssLocator(), webDriver, "#q", null, true, 20_000);
+
+        assertThat(elements).containsExactly(element);
+        verify(webDriver, times(3)).findElements(By.cssSelector("#q"));
+    }
+
+    @Test
+    void testFind_WhenElementMissingAndNotRequired_ShouldBackOffUntilTimeout() {
+        when(webDriver.findElements(By.name("q"))).thenReturn(new ArrayList<>());
+
+        long start = System.nanoTime();
+        List<WebElement> elements = find(new Locators.NameLocator(), webDriver, "q", null, false, 500);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(elements).isEmpty();
+        assertThat(elapsed).isBetween(450L, 2000L);
+        // 0, 50, 150, 350 ms then the deadline, instead of one attempt every 100 ms
+        verify(webDriver, atMost(6)).findElements(By.name("q"));
+    }
+
+    @Test
+    void testFind_WhenElementMissingAndRequired_ShouldThrowTimeout() {
+        when(webDriver.findElements(By.xpath("//a"))).thenReturn(new ArrayList<>());
+
+        assertThatExceptionOfType(TimeoutException.class)
+                .isThrownBy(() -> find(new Locators.XPathLocator(), webDriver, "//a", null, true, 100))
+                .withMessageStartingWith("Element '//a' not found after 100 ms");
+    }
+
+    @Test
+    void testFind_WhenNoTimeout_ShouldTryOnce() {
+        when(webDriver.findElements(By.tagName("iframe"))).thenReturn(new ArrayList<>());
+
+        assertThat(find(new Locators.TagNameLocator(), webDriver, "iframe", null, false, 0)).isEmpty();
+        verify(webDriver, times(1)).findElements(By.tagName("iframe"));
+    }
+
+    @Test
+    void testFind_WhenIdOrName_ShouldFindByEitherInOneScript() {
+        WebDriver scriptDriver = mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class));
+        WebElement named = mock(WebElement.class);
+        when(((JavascriptExecutor) scriptDriver).executeScript(anyString(), eq("q")))
+                .thenReturn(new ArrayList<>(Arrays.asList(element, named)));
+
+        assertThat(find(new Locators.IdOrNameLocator(), scriptDriver, "q", null, true, 20_000))
+                .containsExactly(element, named);
+        verify(scriptDriver, never()).findElements(any(By.class));
+        verify((JavascriptExecutor) scriptDriver, times(1)).executeScript(anyString(), anyVararg());
+    }
+
+    @Test
+    void testFind_WhenIdOrNameWithoutScripts_ShouldFindIdFirstThenName() {
+        WebElement named = mock(WebElement.class);
+        when(webDriver.findElements(By.id("q"))).thenReturn(new ArrayList<>(Collections.singletonList(element)));
+        when(webDriver.findElements(By.name("q"))).thenReturn(new ArrayList<>(Arrays.asList(named, element)));
+
+        assertThat(find(new Locators.IdOrNameLocator(), webDriver, "q", null, true, 20_000))
+                .containsExactly(element, named);
+    }
+
+    @Test
+    void testFind_WhenIdOrNameAndTag_ShouldFilterFoundElements() {
+        WebElement textarea = mock(WebElement.class);
+        when(textarea.getTagName()).thenReturn("textarea");
+        when(element.getTagName()).thenReturn("div");
+        when(webDriver.findElements(By.id("o'brien"))).thenReturn(new ArrayList<>(Collections.singletonList(element)));
+        when(webDriver.findElements(By.name("o'brien")))
+                .thenReturn(new ArrayList<>(Collections.singletonList(textarea)));
+
+        assertThat(find(new Locators.IdOrNameLocator(), webDriver, "o'brien", ElementTag.fromName("textarea"), true,
+                20_000)).containsExactly(textarea);
+    }
+
+    @Test
+    void testFind_WhenLinkText_ShouldFindExactOrPartialInOneScript() {
+        WebDriver scriptDriver = mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class));
+        when(((JavascriptExecutor) scriptDriver).executeScript(anyString(), eq("Home")))
+                .thenReturn(new ArrayList<>(Collections.singletonList(element)));
+
+        assertThat(find(new Locators.LinkTextLocator(), scriptDriver, "Home", null, true, 20_000))
+                .containsExactly(element);
+        verify(scriptDriver, never()).findElements(any(By.class));
+        verify((JavascriptExecutor) scriptDriver, times(1)).executeScript(anyString(), anyVararg());
+    }
+
+    @Test
+    void testFind_WhenLinkTextWithoutScripts_ShouldFallBackToPartialLinkText() {
+        when(webDriver.findElements(By.linkText("Home"))).thenReturn(new ArrayList<>());
+        when(webDriver.findElements(By.partialLinkText("Home")))
+                .thenReturn(new ArrayList<>(Collections.singletonList(element)));
+
+        assertThat(find(new Locators.LinkTextLocator(), webDriver, "Home", null, true, 20_000))
+                .containsExactly(element);
+    }
+
+    @Test
+    void testFind_WhenTag_ShouldFilterFoundElements() {
+        WebElement link = mock(WebElement.class);
+        when(link.getTagName()).thenReturn("a");
+        when(element.getTagName()).thenReturn("div");
+        when(webDriver.findElements(By.className("item"))).thenReturn(new ArrayList<>(Arrays.asList(element, link)));
+
+        assertThat(find(new Locators.ClassNameLocator(), webDriver, "item", ElementTag.fromName("a"), false, 20_000))
+                .containsExactly(link);
+    }
+
+    @Test
+    void testFind_WhenTagAndJavascript_ShouldFilterInOneCommand() {
+        AtomicInteger commands = new AtomicInteger();
+        Answer<Object> recording = invocation -> {
+            commands.incrementAndGet();
+            return null;
+        };
+        List<WebElement> inputs = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            inputs.add(mock(WebElement.class, recording));
+        }
+        List<WebElement> checkboxes = inputs.subList(0, 2);
+        WebDriver recordingDriver = mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class)
+                .defaultAnswer(invocation -> {
+                    commands.incrementAndGet();
+                    String method = invocation.getMethod().getName();
+                    return method.equals("findElements") ? inputs : method.equals("executeScript") ? checkboxes : null;
+                }));
+
+        assertThat(find(new Locators.TagNameLocator(), recordingDriver, "input", ElementTag.fromName("checkbox"), true,
+                20_000)).isEqualTo(checkboxes);
+        // findElements and executeScript, not a getTagName and getAttribute per element
+        assertThat(commands.get()).isEqualTo(2);
+        verify((JavascriptExecutor) recordingDriver).executeScript(anyString(), eq(inputs), eq("input"),
+                eq(Collections.singletonMap("type", "checkbox")));
+    }
+
+    @Test
+    void testFind_WhenIdAndTag_ShouldMatchTheTagInTheQuery() {
+        WebDriver scriptDriver = mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class));
+        By query = By.xpath("//input[@id='foo'][translate(@type, 'ABCDEFGHIJKLMNOPQRSTUVWXYZ',"
+                + " 'abcdefghijklmnopqrstuvwxyz')='checkbox']");
+        when(scriptDriver.findElements(query)).thenReturn(new ArrayList<>(Collections.singletonList(element)));
+
+        assertThat(find(new Locators.IdLocator(), scriptDriver, "foo", ElementTag.fromName("checkbox"), true, 20_000))
+                .containsExactly(element);
+        verify(scriptDriver, never()).findElements(By.id("foo"));
+        verify((JavascriptExecutor) scriptDriver, never()).executeScript(anyString(), anyVararg());
+    }
+
+    @Test
+    void testFind_WhenXPathAndTag_ShouldMatchTheTagInTheQuery() {
+        By query = By.xpath("(//form//input)[self::input][not(@type) or translate(@type,"
+                + " 'ABCDEFGHIJKLMNOPQRSTUVWXYZ', 'abcdefghijklmnopqrstuvwxyz')='text']");
+        when(webDriver.findElements(query)).thenReturn(new ArrayList<>(Collections.singletonList(element)));
+
+        assertThat(find(new Locators.XPathLocator(), webDriver, "//form//input", ElementTag.fromName("text"), true,
+                20_000)).containsExactly(element);
+        verify(element, never()).getTagName();
+    }
+
+    @Test
+    void testFind_WhenCssAndTag_ShouldMatchTheTagNameInTheQuery() {
+        when(webDriver.findElements(By.cssSelector("div > a.item, a[href]")))
+                .thenReturn(new ArrayList<>(Collections.singletonList(element)));
+
+        assertThat(find(new Locators.CssLocator(), webDriver, "div > .item, *[href]", ElementTag.fromName("link"), true,
+                20_000)).containsExactly(element);
+        verify(element, never()).getTagName();
+    }
+
+    @Test
+    void testFind_WhenTagNotExpressible_ShouldFilterFoundElements() {
+        when(element.getTagName()).thenReturn("input");
+        when(element.getAttribute("type")).thenReturn("checkbox");
+        when(webDriver.findElements(By.cssSelector("input.agree")))
+                .thenReturn(new ArrayList<>(Collections.singletonList(element)));
+        when(webDriver.findElements(By.name("q"))).thenReturn(new ArrayList<>(Collections.singletonList(element)));
+        when(element.getAttribute("value")).thenReturn("off");
+
+        // the type is left out of the selector, the value property out of the XPath
+        assertThat(find(new Locators.CssLocator(), webDriver, ".agree", ElementTag.fromName("checkbox"), true, 20_000))
+                .containsExactly(element);
+        assertThat(find(new Locators.NameLocator(), webDriver, "q",
+                ElementTag.fromName("checkbox").withAttribute("value", "on"), true, 20_000)).isEmpty();
+    }
+
+    private static List<WebElement> find(Locators locator, WebDriver webDriver, String criteria, ElementTag tag,
+                                         boolean required, long timeoutMillis) {
+        return locator.find(webDriver, context(locator, criteria, tag, required, timeoutMillis));
+    }
+
+    private static LocatorContext context(Locators locator, String criteria, ElementTag tag, boolean required,
+                                          long timeoutMillis) {
+        return locator.context(criteria, tag).withWait(required, timeoutMillis);
+    }
+}
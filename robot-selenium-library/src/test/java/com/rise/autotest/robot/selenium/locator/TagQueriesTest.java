@@ -0,0 +1,77 @@
+package com.rise.autotest.robot.selenium.locator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+class TagQueriesTest {
+
+    private static final String PAGE = "<form>"
+            + "<input id='q' name='q'/>"
+            + "<input id='agree' name='agree' type='CheckBox'/>"
+            + "<input id='o&apos;brien' name='pwd' type='password'/>"
+            + "<textarea id='notes' name='q'/>"
+            + "</form>";
+
+    @Test
+    void testXpathByAttribute_ShouldMatchTypeIgnoringCaseAndMissingTypeAsText() throws Exception {
+        assertThat(ids(TagQueries.xpathByAttribute("name", "q", ElementTag.fromName("text")))).containsExactly("q");
+        assertThat(ids(TagQueries.xpathByAttribute("id", "agree", ElementTag.fromName("checkbox"))))
+                .containsExactly("agree");
+        assertThat(ids(TagQueries.xpathByAttribute("id", "agree", ElementTag.fromName("text")))).isEmpty();
+        assertThat(ids(TagQueries.xpathByAttribute("id", "o'brien", ElementTag.fromName("password"))))
+                .containsExactly("o'brien");
+        assertThat(ids(TagQueries.xpathByAttribute("name", "q", ElementTag.fromName("textarea"))))
+                .containsExactly("notes");
+    }
+
+    @Test
+    void testXpath_ShouldKeepTheElementsOfTheTag() throws Exception {
+        assertThat(ids(TagQueries.xpath("//form/*", ElementTag.fromName("text")))).containsExactly("q");
+        assertThat(ids(TagQueries.xpath("//*[@name='q'] | //*[@id='agree']", ElementTag.fromName("input"))))
+                .containsExactly("q", "agree");
+    }
+
+    @Test
+    void testXpath_WhenOtherAttributes_ShouldNotRewrite() {
+        ElementTag tag = ElementTag.fromName("checkbox").withAttribute("value", "on");
+
+        assertThat(TagQueries.xpath("//input", tag)).isNull();
+        assertThat(TagQueries.xpath("//input", null)).isNull();
+    }
+
+    @Test
+    void testCss_ShouldPutTheTagNameInTheLastCompounds() {
+        ElementTag link = ElementTag.fromName("link");
+
+        assertThat(TagQueries.css(".menu a", link)).isEqualTo(".menu a");
+        assertThat(TagQueries.css("ul > li + .item:not(.x y)", link)).isEqualTo("ul > li + a.item:not(.x y)");
+        assertThat(TagQueries.css("[title='a, b'], #main *", link)).isEqualTo("a[title='a, b'], #main a");
+        assertThat(TagQueries.css("div.item", link)).isNull();
+        assertThat(TagQueries.css("abbr", link)).isNull();
+        assertThat(TagQueries.css("p::first-line", link)).isNull();
+        assertThat(TagQueries.css("#a\\:b", link)).isNull();
+        assertThat(TagQueries.css("div >", link)).isNull();
+    }
+
+    private static List<String> ids(String xpath) throws Exception {
+        Document page = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new InputSource(new StringReader(PAGE)));
+        NodeList nodes = (NodeList) XPathFactory.newInstance().newXPath().evaluate(xpath, page, XPathConstants.NODESET);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            ids.add(((Element) nodes.item(i)).getAttribute("id"));
+        }
+        return ids;
+    }
+}
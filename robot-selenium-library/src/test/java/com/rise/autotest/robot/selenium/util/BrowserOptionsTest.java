@@ -0,0 +1,55 @@
+package com.rise.autotest.robot.selenium.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import com.rise.autotest.robot.selenium.BrowserType;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.opera.OperaOptions;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+import java.util.List;
+import java.util.Map;
+
+class BrowserOptionsTest {
+
+    private final CapabilityProfiles profiles = CapabilityProfiles.fromJson("{\"headless-chrome\": {\"capabilities\":"
+            + " {\"goog:chromeOptions\": {\"args\": [\"--headless\"], \"mobileEmulation\": {\"deviceName\": \"Nexus 5\"}},"
+            + " \"operaOptions\": {\"args\": [\"--private\"]}}}}");
+
+    @Test
+    void testChrome_WhenProfile_ShouldPassChromeOptionsToTheDriver() {
+        ChromeOptions chromeOptions = BrowserOptions.chrome(profiles.capabilities(BrowserType.CHROME,
+                "headless-chrome"));
+
+        Map<String, Object> options = options(chromeOptions.asMap(), ChromeOptions.CAPABILITY);
+        assertThat((List<String>) options.get("args")).containsExactly("--headless");
+        assertThat(options.get("mobileEmulation")).isEqualTo(chromeOptions.getExperimentalOption("mobileEmulation"));
+        assertThat(chromeOptions.asMap().get("browserName")).isEqualTo("chrome");
+    }
+
+    @Test
+    void testChrome_WhenFastProfile_ShouldBeHeadlessWithoutImages() {
+        DesiredCapabilities capabilities = profiles.capabilities(BrowserType.CHROME, FastProfile.NAME);
+
+        Map<String, Object> options = options(BrowserOptions.chrome(capabilities).asMap(), ChromeOptions.CAPABILITY);
+        assertThat((List<String>) options.get("args")).contains("--headless", "--blink-settings=imagesEnabled=false",
+                "--disable-remote-fonts", "--disable-extensions", "--disable-background-networking");
+        assertThat((Map<String, Object>) options.get("prefs"))
+                .containsEntry("profile.managed_default_content_settings.images", 2L);
+        assertThat(capabilities.getCapability("pageLoadStrategy")).isEqualTo("eager");
+    }
+
+    @Test
+    void testOpera_ShouldPassChromeAndOperaOptionsToTheDriver() {
+        OperaOptions operaOptions = BrowserOptions.opera(profiles.capabilities(BrowserType.OPERA,
+                "fast headless-chrome"));
+
+        Map<String, Object> options = options(operaOptions.asMap(), OperaOptions.CAPABILITY);
+        assertThat((List<String>) options.get("args")).contains("--headless", "--disable-remote-fonts", "--private");
+        assertThat(options).containsKey("prefs");
+    }
+
+    private static Map<String, Object> options(Map<String, Object> capabilities, String capability) {
+        return (Map<String, Object>) capabilities.get(capability);
+    }
+}
@@ -0,0 +1,98 @@
+package com.rise.autotest.robot.selenium.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.stream.Stream;
+
+class BrowserProcessesTest {
+
+    private static final int JVM_PID = 100;
+
+    private Path proc;
+
+    @BeforeEach
+    void createProc() throws IOException {
+        proc = Files.createTempDirectory("proc");
+    }
+
+    @AfterEach
+    void clean() throws IOException {
+        try (Stream<Path> paths = Files.walk(proc)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void testOrphanDrivers_ShouldFindDriversOfThisJvmWithoutSession() throws IOException {
+        process(200, JVM_PID, "/usr/bin/chromedriver", "--port=9515");
+        process(201, JVM_PID, "/opt/drivers/geckodriver", "--port", "4444");
+        process(202, JVM_PID, "/usr/bin/chromedriver", "--port=9516");
+        process(203, 200, "/opt/google/chrome/chrome", "--user-data-dir=/tmp/profile");
+        process(300, 1, "/usr/bin/chromedriver", "--port=9517");
+        process(204, JVM_PID, "/bin/sh", "-c", "ls");
+
+        assertThat(BrowserProcesses.orphanDrivers(proc, JVM_PID, new HashSet<>(Arrays.asList(9516, 4444))))
+                .containsOnly(200);
+        assertThat(BrowserProcesses.orphanDrivers(proc, JVM_PID, Collections.emptySet()))
+                .containsOnly(200, 201, 202);
+    }
+
+    @Test
+    void testOrphanDrivers_WhenCommandNameHasSpaces_ShouldReadParent() throws IOException {
+        process(200, JVM_PID, "/usr/bin/geckodriver", "--port=4444");
+        Files.write(proc.resolve("200").resolve("stat"),
+                "200 (gecko driver) S 100 200 200 0 -1".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(BrowserProcesses.orphanDrivers(proc, JVM_PID, Collections.emptySet())).containsOnly(200);
+    }
+
+    @Test
+    void testProcessesWithArgument_ShouldMatchTheWholeArgument() throws IOException {
+        process(200, JVM_PID, "/opt/google/chrome/chrome", "--user-data-dir=/tmp/profile.1", "--no-sandbox");
+        process(201, 200, "/opt/google/chrome/chrome", "--type=renderer", "--user-data-dir=/tmp/profile.1");
+        process(202, JVM_PID, "/opt/google/chrome/chrome", "--user-data-dir=/tmp/profile.10");
+        process(203, JVM_PID, "/opt/google/chrome/chrome", "--user-data-dir=/tmp/profilex1");
+        process(204, JVM_PID, "--user-data-dir=/tmp/profile.1");
+
+        assertThat(BrowserProcesses.processesWithArgument(proc, "--user-data-dir=/tmp/profile.1"))
+                .containsOnly(200, 201);
+    }
+
+    @Test
+    void testDriverProcess_ShouldFindTheDriverOfThisJvmServingThePort() throws IOException {
+        process(200, JVM_PID, "/usr/bin/chromedriver", "--port=9515");
+        process(201, JVM_PID, "/usr/bin/operadriver", "--port", "9516");
+        process(300, 1, "/usr/bin/operadriver", "--port=9517");
+
+        assertThat(BrowserProcesses.driverProcess(proc, JVM_PID, 9516)).isEqualTo(201);
+        assertThat(BrowserProcesses.driverProcess(proc, JVM_PID, 9517)).isEqualTo(-1);
+    }
+
+    @Test
+    void testQuoteExtendedRegex_ShouldEscapeTheSpecialCharacters() {
+        assertThat(BrowserProcesses.quoteExtendedRegex("--user-data-dir=/tmp/a.b(1)[x]+*?|^$\\{2}"))
+                .isEqualTo("--user-data-dir=/tmp/a\\.b\\(1\\)\\[x\\]\\+\\*\\?\\|\\^\\$\\\\\\{2\\}");
+        assertThat("--user-data-dir=/tmp/a.b(1)[x]+*?|^$\\{2}")
+                .matches(BrowserProcesses.quoteExtendedRegex("--user-data-dir=/tmp/a.b(1)[x]+*?|^$\\{2}"));
+    }
+
+    private void process(int pid, int parentPid, String... commandLine) throws IOException {
+        Path process = Files.createDirectory(proc.resolve(String.valueOf(pid)));
+        String name = commandLine[0].substring(commandLine[0].lastIndexOf('/') + 1);
+        Files.write(process.resolve("stat"),
+                String.format("%d (%s) S %d %d %d 0 -1", pid, name, parentPid, pid, pid).getBytes(StandardCharsets.UTF_8));
+        Files.write(process.resolve("cmdline"),
+                (String.join("\0", commandLine) + "\0").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,121 @@
+package com.rise.autotest.robot.selenium.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import com.rise.autotest.robot.FatalException;
+import com.rise.autotest.robot.selenium.BrowserType;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+import java.util.List;
+import java.util.Map;
+
+class CapabilityProfilesTest {
+
+    private static final String HEADLESS_JSON =
+            "{\"capabilities\": {\"goog:chromeOptions\": {\"args\": [\"--headless\"]}, \"acceptInsecureCerts\": true}}";
+
+    private final CapabilityProfiles profiles = CapabilityProfiles.fromJson("{\"headless\": " + HEADLESS_JSON
+            + ", \"insecure\": {\"capabilities\": {\"acceptInsecureCerts\": true}}}");
+
+    @Test
+    void testCapabilities_WhenProfileName_ShouldMergeWithBrowserDefaults() {
+        DesiredCapabilities capabilities = profiles.capabilities(BrowserType.CHROME, "headless");
+
+        assertThat(capabilities.getBrowserName()).isEqualTo("chrome");
+        assertThat(capabilities.getCapability("acceptInsecureCerts")).isEqualTo(true);
+        assertThat(args(capabilities)).containsExactly("--headless");
+        assertThat(profiles.names()).containsExactly("fast", "headless", "insecure");
+    }
+
+    @Test
+    void testCapabilities_WhenProfileAndSameJson_ShouldHaveSameFingerprint() {
+        assertThat(profiles.fingerprint(BrowserType.CHROME, "headless"))
+                .isEqualTo(profiles.fingerprint(BrowserType.CHROME, HEADLESS_JSON))
+                .isNotEqualTo(profiles.fingerprint(BrowserType.FIREFOX, "headless"))
+                .isNotEqualTo(profiles.fingerprint(BrowserType.CHROME, "insecure"))
+                .isNotEqualTo(profiles.fingerprint(BrowserType.CHROME, null));
+    }
+
+    @Test
+    void testCapabilities_WhenCopyModified_ShouldNotChangeCachedCapabilities() {
+        DesiredCapabilities capabilities = profiles.capabilities(BrowserType.CHROME, "headless");
+        capabilities.setCapability("acceptInsecureCerts", false);
+        args(capabilities).add("--incognito");
+
+        DesiredCapabilities again = profiles.capabilities(BrowserType.CHROME, "headless");
+        assertThat(again).isNotSameAs(capabilities);
+        assertThat(again.getCapability("acceptInsecureCerts")).isEqualTo(true);
+        assertThat(args(again)).containsExactly("--headless");
+    }
+
+    @Test
+    void testCapabilities_WhenBrowserDefaultsModified_ShouldNotChangeBrowserType() {
+        BrowserType.FIREFOX.capabilities().setCapability("unhandledPromptBehavior", "accept");
+        profiles.capabilities(BrowserType.FIREFOX, null).setCapability("marionette", false);
+
+        assertThat(BrowserType.FIREFOX.capabilities().getCapability("unhandledPromptBehavior")).isNull();
+        assertThat(BrowserType.FIREFOX.capabilities().getCapability("marionette")).isNotEqualTo(false);
+    }
+
+    @Test
+    void testCapabilities_WhenUnknownProfile_ShouldThrowException() {
+        assertThatExceptionOfType(FatalException.class)
+                .isThrownBy(() -> profiles.capabilities(BrowserType.CHROME, "mobile"))
+                .withMessage("No capability profile 'mobile', profiles are [fast, headless, insecure]");
+    }
+
+    @Test
+    void testCapabilities_WhenInvalidJson_ShouldThrowException() {
+        assertThatExceptionOfType(FatalException.class)
+                .isThrownBy(() -> profiles.capabilities(BrowserType.CHROME, "{\"capabilities\": "))
+                .withMessage("Unable to parse the capabilities json");
+    }
+
+    @Test
+    void testCapabilities_WhenProfilesCombined_ShouldMergeInOrder() {
+        DesiredCapabilities capabilities = profiles.capabilities(BrowserType.CHROME,
+                "fast headless {\"capabilities\": {\"goog:chromeOptions\": {\"args\": [\"--incognito\"]},"
+                        + " \"pageLoadStrategy\": \"normal\"}}");
+
+        assertThat(args(capabilities)).startsWith("--headless").contains("--disable-extensions")
+                .endsWith("--incognito").doesNotHaveDuplicates();
+        assertThat(capabilities.getCapability("pageLoadStrategy")).isEqualTo("normal");
+        assertThat(capabilities.getCapability("acceptInsecureCerts")).isEqualTo(true);
+        assertThat(capabilities.getCapability(FastProfile.CAPABILITY)).isEqualTo(true);
+    }
+
+    @Test
+    void testCapabilities_WhenFastProfile_ShouldConfigureChromeAndFirefox() {
+        DesiredCapabilities chrome = profiles.capabilities(BrowserType.CHROME, FastProfile.NAME);
+        DesiredCapabilities firefox = profiles.capabilities(BrowserType.FIREFOX, FastProfile.NAME);
+
+        assertThat(chrome.getCapability("pageLoadStrategy")).isEqualTo("eager");
+        assertThat(args(chrome)).contains("--headless", "--disable-background-networking",
+                "--blink-settings=imagesEnabled=false");
+        assertThat(firefox.getCapability("pageLoadStrategy")).isEqualTo("eager");
+        assertThat(firefoxPrefs(firefox)).containsEntry("permissions.default.image", 2L)
+                .containsEntry("gfx.downloadable_fonts.enabled", false);
+    }
+
+    @Test
+    void testCapabilities_WhenFastProfileInFile_ShouldReplaceBuiltInProfile() {
+        CapabilityProfiles custom = CapabilityProfiles.fromJson(
+                "{\"fast\": {\"capabilities\": {\"pageLoadStrategy\": \"none\"}}}");
+
+        assertThat(custom.capabilities(BrowserType.CHROME, "fast").getCapability("pageLoadStrategy"))
+                .isEqualTo("none");
+        assertThat(custom.capabilities(BrowserType.CHROME, "fast").getCapability(FastProfile.CAPABILITY)).isNull();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> args(DesiredCapabilities capabilities) {
+        return (List<String>) ((Map<String, Object>) capabilities.getCapability("goog:chromeOptions")).get("args");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> firefoxPrefs(DesiredCapabilities capabilities) {
+        return (Map<String, Object>) ((Map<String, Object>) capabilities.getCapability("moz:firefoxOptions"))
+                .get("prefs");
+    }
+}
@@ -0,0 +1,129 @@
+package com.rise.autotest.robot.selenium.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.firefox.GeckoDriverService;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+class DriverServicesTest {
+
+    private final List<FakeGeckoDriverService> created = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        DriverServices.shutdown();
+    }
+
+    @Test
+    void testGecko_WhenSessionQuits_ShouldLeaseTheServiceToTheNextSession() {
+        GeckoDriverService first = DriverServices.gecko(this::newService);
+        first.stop();
+
+        GeckoDriverService second = DriverServices.gecko(this::newService);
+
+        assertThat(second).isSameAs(first);
+        assertThat(created).hasSize(1);
+        assertThat(created.get(0).shutDown).isFalse();
+        assertThat(DriverServices.isShared(second)).isFalse();
+    }
+
+    @Test
+    void testGecko_WhenLeased_ShouldNotLeaseTheSameServiceTwice() {
+        GeckoDriverService first = DriverServices.gecko(this::newService);
+        GeckoDriverService second = DriverServices.gecko(this::newService);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(created).hasSize(2);
+    }
+
+    @Test
+    void testGecko_WhenIdleServiceDied_ShouldStopItAndStartANewOne() {
+        GeckoDriverService first = DriverServices.gecko(this::newService);
+        first.stop();
+        created.get(0).running = false;
+
+        GeckoDriverService second = DriverServices.gecko(this::newService);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(created.get(0).shutDown).isTrue();
+    }
+
+    @Test
+    void testStop_WhenServiceNotRunning_ShouldNotKeepIt() {
+        GeckoDriverService first = DriverServices.gecko(this::newService);
+        created.get(0).running = false;
+        first.stop();
+
+        assertThat(created.get(0).shutDown).isTrue();
+        assertThat(DriverServices.gecko(this::newService)).isNotSameAs(first);
+    }
+
+    @Test
+    void testDiscard_ShouldStopTheLeasedService() {
+        GeckoDriverService first = DriverServices.gecko(this::newService);
+
+        DriverServices.discard(first);
+
+        assertThat(created.get(0).shutDown).isTrue();
+        assertThat(DriverServices.gecko(this::newService)).isNotSameAs(first);
+    }
+
+    @Test
+    void testStop_WhenManySessionsQuit_ShouldKeepFourIdleServices() {
+        List<GeckoDriverService> leased = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            leased.add(DriverServices.gecko(this::newService));
+        }
+        leased.forEach(GeckoDriverService::stop);
+
+        assertThat(created.get(4).shutDown).isTrue();
+        List<GeckoDriverService> reused = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            reused.add(DriverServices.gecko(this::newService));
+        }
+        assertThat(reused).containsExactlyInAnyOrder(leased.subList(0, 4).toArray(new GeckoDriverService[0]));
+        assertThat(created).hasSize(5);
+    }
+
+    private GeckoDriverService newService() {
+        try {
+            FakeGeckoDriverService service = new FakeGeckoDriverService();
+            created.add(service);
+            return service;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A geckodriver service without process, running until shut down.
+     */
+    private static class FakeGeckoDriverService extends DriverServices.SharedGeckoDriverService {
+
+        private boolean running = true;
+        private boolean shutDown;
+
+        FakeGeckoDriverService() throws IOException {
+            super(new File("geckodriver"), 4444, ImmutableList.of(), ImmutableMap.of());
+        }
+
+        @Override
+        public boolean isRunning() {
+            return running && !shutDown;
+        }
+
+        @Override
+        void shutdown() {
+            shutDown = true;
+            super.shutdown();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.rise.autotest.robot.selenium.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.firefox.FirefoxDriver;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import java.util.concurrent.TimeUnit;
+
+class PageReadinessTest {
+
+    private final FirefoxDriver webDriver = mock(FirefoxDriver.class, RETURNS_DEEP_STUBS);
+
+    @Test
+    void testWaitUntilReady_WhenIdle_ShouldWaitInOneScriptCall() {
+        when(webDriver.executeAsyncScript(eq(PageReadiness.WAIT_SCRIPT), anyVararg())).thenReturn(null);
+
+        PageReadiness.waitUntilReady(webDriver, 10000, 200);
+
+        verify(webDriver).executeAsyncScript(PageReadiness.WAIT_SCRIPT, 200L, 10000L);
+        verify(webDriver.manage().timeouts()).setScriptTimeout(15000, TimeUnit.MILLISECONDS);
+        verify(webDriver.manage().timeouts()).setScriptTimeout(30000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void testWaitUntilReady_WhenScriptTimeoutSet_ShouldRestoreIt() {
+        when(webDriver.executeAsyncScript(eq(PageReadiness.WAIT_SCRIPT), anyVararg()))
+                .thenThrow(new TimeoutException("script timeout"));
+        PageReadiness.setScriptTimeout(webDriver, 10000);
+
+        assertThatExceptionOfType(TimeoutException.class)
+                .isThrownBy(() -> PageReadiness.waitUntilReady(webDriver, 1000, 200));
+
+        InOrder inOrder = inOrder(webDriver.manage().timeouts());
+        inOrder.verify(webDriver.manage().timeouts()).setScriptTimeout(10000, TimeUnit.MILLISECONDS);
+        inOrder.verify(webDriver.manage().timeouts()).setScriptTimeout(6000, TimeUnit.MILLISECONDS);
+        inOrder.verify(webDriver.manage().timeouts()).setScriptTimeout(10000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void testWaitUntilReady_WhenNotIdle_ShouldThrowTimeout() {
+        when(webDriver.executeAsyncScript(eq(PageReadiness.WAIT_SCRIPT), anyVararg()))
+                .thenReturn("document is complete, 2 requests or timers pending");
+
+        assertThatExceptionOfType(TimeoutException.class)
+                .isThrownBy(() -> PageReadiness.waitUntilReady(webDriver, 1000, 200))
+                .withMessageStartingWith("Page was not ready after 1000 ms: document is complete, 2 requests");
+    }
+
+    @Test
+    void testWaitScript_WhenPageIdleSinceLoad_ShouldBeReadyAtOnce() throws ScriptException {
+        ScriptEngine page = page("{timeOrigin: Date.now() - 5000, timing: {navigationStart: Date.now() - 5000,"
+                + " loadEventEnd: Date.now() - 2000},"
+                + " getEntriesByType: function () { return [{responseEnd: 2500}]; }}");
+
+        page.eval("run(500, 10000)");
+
+        assertThat(page.eval("result")).isNull();
+        assertThat(page.eval("scheduled.length")).isEqualTo(0);
+    }
+
+    @Test
+    void testWaitScript_WhenResourceJustLoaded_ShouldWaitForTheIdleWindow() throws ScriptException {
+        ScriptEngine page = page("{timeOrigin: Date.now() - 5000, timing: {navigationStart: Date.now() - 5000,"
+                + " loadEventEnd: Date.now() - 2000},"
+                + " getEntriesByType: function () { return [{responseEnd: 5000}]; }}");
+
+        page.eval("run(500, 10000)");
+
+        assertThat(page.eval("result")).isEqualTo("waiting");
+        assertThat(page.eval("scheduled.length")).isEqualTo(1);
+    }
+
+    @Test
+    void testWaitScript_WhenNoPerformanceApi_ShouldWaitForTheIdleWindow() throws ScriptException {
+        ScriptEngine page = page("undefined");
+
+        page.eval("run(500, 10000)");
+
+        assertThat(page.eval("result")).isEqualTo("waiting");
+        assertThat(page.eval("scheduled.length")).isEqualTo(1);
+    }
+
+    @Test
+    void testWaitUntilReady_WhenNoJavascript_ShouldNotWait() {
+        WebDriver noJavascript = mock(WebDriver.class);
+
+        PageReadiness.waitUntilReady(noJavascript);
+
+        verifyZeroInteractions(noJavascript);
+    }
+
+    /**
+     * A loaded page with the <b>performance</b> object, in which run(idle, timeout) runs the wait script, sets
+     * 'result' when done and schedules the next checks in 'scheduled'.
+     */
+    private static ScriptEngine page(String performance) throws ScriptException {
+        ScriptEngine engine = new ScriptEngineManager().getEngineByName("nashorn");
+        assumeTrue(engine != null, "no javascript engine in this JVM");
+        engine.eval("var scheduled = [], result = 'waiting', document = {readyState: 'complete'},"
+                + " XMLHttpRequest = function () {},"
+                + " window = {performance: " + performance + ","
+                + "  setTimeout: function (fn) { scheduled.push(fn); return scheduled.length; },"
+                + "  clearTimeout: function () {}};"
+                + "var run = function (idle, timeout) {"
+                + " (function () {" + PageReadiness.WAIT_SCRIPT + "})(idle, timeout,"
+                + "  function (notReady) { result = notReady; }); };");
+        return engine;
+    }
+}
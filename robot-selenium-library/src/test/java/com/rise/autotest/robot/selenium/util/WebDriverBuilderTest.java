@@ -1,13 +1,20 @@
 package com.rise.autotest.robot.selenium.util;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import com.rise.autotest.robot.selenium.BrowserType;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.openqa.selenium.Capabilities;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeDriverService;
+import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
 
+import java.util.List;
+import java.util.Map;
+
 class WebDriverBuilderTest {
 
     private WebDriver webDriver;
@@ -40,6 +47,37 @@ class WebDriverBuilderTest {
         assertThat(webDriver).isInstanceOf(FirefoxDriver.class);
     }
 
+    @Test void buildDriver_WhenChromeQuits_ShouldKeepDriverServiceForNextSession() {
+        assumeTrue(isChromeDriverAvailable(), "chromedriver not found");
+        ChromeDriverService driverService = DriverServices.chrome();
+        webDriver = WebDriverBuilder.buildDriver(BrowserType.CHROME, firefoxCapabilities);
+        webDriver.quit();
+
+        assertThat(driverService.isRunning()).isTrue();
+        webDriver = WebDriverBuilder.buildDriver(BrowserType.CHROME, firefoxCapabilities);
+        assertThat(DriverServices.chrome()).isSameAs(driverService);
+    }
+
+    @Test void buildDriver_WhenFastProfile_ShouldBuildHeadlessEagerDriver() {
+        assumeTrue(isChromeDriverAvailable(), "chromedriver not found");
+        webDriver = WebDriverBuilder.buildDriver(BrowserType.CHROME, FastProfile.NAME);
+
+        Capabilities capabilities = ((ChromeDriver) webDriver).getCapabilities();
+        assertThat(capabilities.getCapability("pageLoadStrategy")).isEqualTo("eager");
+        assertThat(capabilities.getCapability(FastProfile.CAPABILITY)).isNull();
+        assertThat(FastProfile.isFast(webDriver)).isTrue();
+    }
+
+    @Test void driverCapabilities_WhenFastProfile_ShouldGiveHeadlessEagerChromeOptions() {
+        ChromeOptions chromeOptions = BrowserOptions.chrome(WebDriverBuilder.driverCapabilities(
+                CapabilityProfiles.instance().capabilities(BrowserType.CHROME, FastProfile.NAME)));
+
+        Map<String, Object> capabilities = chromeOptions.asMap();
+        assertThat(capabilities).containsEntry("pageLoadStrategy", "eager").doesNotContainKey(FastProfile.CAPABILITY);
+        assertThat((List<?>) ((Map<?, ?>) capabilities.get(ChromeOptions.CAPABILITY)).get("args"))
+                .contains("--headless");
+    }
+
     @Test void buildDriver_WhenBrowserTypeIsOPERA_ShouldReturnOperaDriver() {
 
     }
@@ -52,5 +90,12 @@ class WebDriverBuilderTest {
 
     }
 
-
+    private static boolean isChromeDriverAvailable() {
+        try {
+            ChromeDriverService.createDefaultService();
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
 }
\ No newline at end of file
@@ -1,11 +1,30 @@
 package com.rise.autotest.robot;
 
+import com.rise.autotest.robot.util.KeywordStatistics;
+import com.rise.autotest.robot.util.RobotLogger;
+import com.rise.autotest.robot.util.SessionNamespace;
+import org.robotframework.javalib.beans.annotation.IBeanLoader;
+import org.robotframework.javalib.factory.AnnotationKeywordFactory;
+import org.robotframework.javalib.factory.KeywordFactory;
+import org.robotframework.javalib.keyword.DocumentedKeyword;
 import org.robotframework.javalib.library.AnnotationLibrary;
 
+import java.io.BufferedReader;
 import java.io.File;
-import java.net.URL;
-import java.nio.file.Files;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -13,63 +32,314 @@ import java.util.regex.Pattern;
  */
 public class CustomAnnotationLibrary extends AnnotationLibrary {
 
-    private static final String KEYWORD_DOC_REGEX_PREFIX = "^[\\+\\#]+.*";
+    public static final int ROBOT_LISTENER_API_VERSION = 2;
+
+    private static final String DUMP_STATISTICS_KEYWORD = "dumpKeywordStatistics";
+    private static final String DUMP_STATISTICS_DOC = "Writes the execution time statistics of the keywords of this "
+            + "library to a CSV file and returns its path.\n\n"
+            + "One line per keyword with the number of runs, total, mean, p50, p95, p99 and max time in millis.\n\n"
+            + "*Arguments*\n\n"
+            + "- _path_: the file to write to. Optional, defaults to '<library>-keyword-statistics.csv' in the output "
+            + "directory, '<library>-<namespace>-keyword-statistics.csv' when served to a remote namespace.\n\n"
+            + "Statistics are also written to the default file when the library is closed, or at JVM exit, unless the "
+            + "system property 'robot.keyword.statistics' is false.\n\n"
+            + "*Usage Example(s):*\n\n"
+            + "| Dump Keyword Statistics |\n"
+            + "| Dump Keyword Statistics | ${OUTPUT DIR}/timings.csv |\n";
+
+    private static final String SET_LOG_LEVEL_KEYWORD = "BuiltIn.Set Log Level";
+    private static final Pattern KEYWORD_DOC_HEADER = Pattern.compile("^[\\+\\#]+(.*)");
+    private static final boolean STATISTICS_ON_EXIT =
+            Boolean.parseBoolean(System.getProperty("robot.keyword.statistics", "true"));
+    // the libraries whose statistics are still to be written at JVM exit, by a single shutdown hook
+    private static final Set<CustomAnnotationLibrary> openLibraries =
+            Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private static final AtomicBoolean exitHookAdded = new AtomicBoolean();
+    private static final String KEYWORD_INDEX_PROPERTY = "robot.keyword.index";
+
     private final String keywordDocFile;
-    private List<String> documentLines = null;
+    private volatile Map<String, String> documentation = null;
+    private final KeywordStatistics statistics = new KeywordStatistics();
+    private final String namespace = SessionNamespace.current();
+    private volatile File statisticsDir = null;
+    private KeywordFactory<DocumentedKeyword> keywordFactory = null;
+    private volatile KeywordDispatchTable dispatchTable = null;
+    private final AtomicBoolean closed = new AtomicBoolean();
 
+    /**
+     * Constructor.
+     * Loads the keyword classes listed in the keyword index generated at build time, if the index lists all the classes
+     * matching the <b>keywordsPattern</b> (see {@link KeywordIndexBeanLoader}). Otherwise, or when the system property
+     * 'robot.keyword.index' is false, scans the class path for the classes matching the pattern.
+     *
+     * @param keywordsPattern   class path pattern of the keyword classes.
+     * @param keywordDocFile    class path resource with the keyword documentation.
+     */
     public CustomAnnotationLibrary(String keywordsPattern, String keywordDocFile) {
-        super(keywordsPattern);
+        super();
+        KeywordIndexBeanLoader indexBeanLoader = Boolean.parseBoolean(System.getProperty(KEYWORD_INDEX_PROPERTY, "true"))
+                ? KeywordIndexBeanLoader.forPattern(keywordsPattern, Thread.currentThread().getContextClassLoader())
+                : null;
+        if (indexBeanLoader != null) {
+            beanLoaders.add(indexBeanLoader);
+        } else {
+            addKeywordPattern(keywordsPattern);
+        }
         this.keywordDocFile = keywordDocFile;
-        initDocumentation();
+        RobotLogger.open();
+        if (STATISTICS_ON_EXIT) {
+            openLibraries.add(this);
+            if (exitHookAdded.compareAndSet(false, true)) {
+                Runtime.getRuntime().addShutdownHook(new Thread(CustomAnnotationLibrary::dumpStatisticsOnExit,
+                        "keyword-statistics"));
+            }
+        }
+    }
+
+    /**
+     * Registers the library as its own listener, so robot calls {@link #close()} when the library goes out of scope,
+     * and the suite and keyword listener methods below. Robot reads it as the 'ROBOT_LIBRARY_LISTENER' attribute of
+     * the library.
+     *
+     * @return  this library
+     */
+    public Object getROBOT_LIBRARY_LISTENER() {
+        return this;
+    }
+
+    /**
+     * Listener method, called by robot when a suite starts. The log level may have been changed by the previous suite,
+     * the level cached by the logger is read again.
+     *
+     * @param name  suite name
+     * @param attributes    suite attributes
+     */
+    public void startSuite(String name, Map attributes) {
+        RobotLogger.refreshLogLevel();
     }
 
-    private void initDocumentation() {
+    /**
+     * Listener method, called by robot when a keyword ends. The level cached by the logger is read again after
+     * <i>Set Log Level</i>, the only keyword changing it.
+     *
+     * @param name  keyword name, with the library name
+     * @param attributes    keyword attributes
+     */
+    public void endKeyword(String name, Map attributes) {
+        if (SET_LOG_LEVEL_KEYWORD.equals(name)) {
+            RobotLogger.refreshLogLevel();
+        }
+    }
+
+    /**
+     * Listener method, called by robot when the library goes out of scope (end of the execution for GLOBAL libraries).
+     * Writes the keyword statistics and releases the resources held by the logger, once.
+     */
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
         try {
-            URL url = Thread.currentThread().getContextClassLoader().getResource(keywordDocFile);
-            if(url != null) {
-                File file = new File(url.getFile());
-                documentLines = Files.readAllLines(file.toPath());
-            }
-        } catch (Exception e) {
-            //ignoring as this only affects documentation generation.
+            statisticsDir = RobotLogger.getLogDir();
+        } catch (RuntimeException e) {
+            //ignore, statistics are written to the working directory
         }
+        if (openLibraries.remove(this)) {
+            dumpStatistics();
+        }
+        RobotLogger.close();
     }
 
-    @Override public String getKeywordDocumentation(String keywordName) {
-        if(documentLines != null && !documentLines.isEmpty()) {
-            boolean found = false;
-            boolean reading = true;
-            StringBuilder doc = new StringBuilder();
+    private File outputDir() {
+        File dir = RobotLogger.getLogDir();
+        if (dir != null) {
+            statisticsDir = dir;
+        }
+        return statisticsDir;
+    }
 
-            for(String line: documentLines) {
-                if (!found && lineMatchesKeywordPattern(line, keywordName)){
-                    found = true;
-                    continue;
-                }
-                if(found && reading) {
-                    reading  = readLineAndVerify(doc, line);
-                }
+    /**
+     * The libraries of every remote namespace have their own file, the namespace is kept to the characters safe in a
+     * file name.
+     */
+    String statisticsFileName() {
+        String library = getClass().getSimpleName();
+        if (!SessionNamespace.DEFAULT.equals(namespace)) {
+            library += "-" + namespace.replaceAll("[^A-Za-z0-9._-]", "_");
+        }
+        return library + "-keyword-statistics.csv";
+    }
+
+    private void dumpStatistics() {
+        if (statistics.isEmpty()) {
+            return;
+        }
+        try {
+            statistics.writeCsv(new File(statisticsDir, statisticsFileName()));
+        } catch (IOException e) {
+            //ignore, nothing to report to when closing
+        }
+    }
+
+    private static void dumpStatisticsOnExit() {
+        List<CustomAnnotationLibrary> libraries;
+        synchronized (openLibraries) {
+            libraries = new ArrayList<>(openLibraries);
+        }
+        for (CustomAnnotationLibrary library : libraries) {
+            library.dumpStatistics();
+        }
+    }
+
+    /**
+     * Runs the keyword through the {@link KeywordDispatchTable} and flushes the log messages buffered during the
+     * keyword execution, so that they are written under this keyword in the output.
+     */
+    @Override public Object runKeyword(String keywordName, Object[] args) {
+        if (DUMP_STATISTICS_KEYWORD.equals(keywordName)) {
+            return dumpKeywordStatistics(args != null && args.length > 0 && args[0] != null
+                    ? String.valueOf(args[0]) : null);
+        }
+        RobotLogger.startKeyword();
+        long start = System.nanoTime();
+        try {
+            return dispatchTable().invoke(keywordName, args);
+        } finally {
+            statistics.record(keywordName, System.nanoTime() - start);
+            RobotLogger.endKeyword();
+        }
+    }
+
+    /**
+     * Loads the keyword beans once and builds both the javalib keyword factory (names, arguments, documentation) and
+     * the {@link KeywordDispatchTable} used to run the keywords, from the same bean instances.
+     */
+    @Override protected synchronized KeywordFactory<DocumentedKeyword> createKeywordFactory() {
+        if (keywordFactory == null) {
+            if (beanLoaders.isEmpty()) {
+                throw new IllegalStateException("Keyword pattern must be set before calling getKeywordNames.");
+            }
+            List<Map> keywordBeansMaps = new ArrayList<>();
+            for (IBeanLoader beanLoader : beanLoaders) {
+                keywordBeansMaps.add(beanLoader.loadBeanDefinitions(classFilter));
             }
-            return doc.toString();
+            KeywordFactory<DocumentedKeyword> factory = new AnnotationKeywordFactory(keywordBeansMaps);
+
+            List<Object> beans = new ArrayList<>();
+            for (Map keywordBeans : keywordBeansMaps) {
+                beans.addAll(keywordBeans.values());
+            }
+            for (Object bean : beans) {
+                autowireFields(bean, beans);
+            }
+            dispatchTable = new KeywordDispatchTable(beans);
+            keywordFactory = factory;
         }
-        return super.getKeywordDocumentation(keywordName);
+        return keywordFactory;
     }
 
-    private boolean readLineAndVerify(StringBuilder doc, String line) {
-        if(!matches(line)) {
-            doc.append(line).append("\n");
-            return true;
+    private KeywordDispatchTable dispatchTable() {
+        KeywordDispatchTable table = dispatchTable;
+        if (table == null) {
+            createKeywordFactory();
+            table = dispatchTable;
         }
-        return false;
+        return table;
     }
 
-    private boolean lineMatchesKeywordPattern(String line, String keywordName) {
-        return matches(line) && line.contains(keywordName);
+    @Override public String[] getKeywordNames() {
+        String[] keywordNames = super.getKeywordNames();
+        String[] names = Arrays.copyOf(keywordNames, keywordNames.length + 1);
+        names[keywordNames.length] = DUMP_STATISTICS_KEYWORD;
+        return names;
     }
 
+    @Override public String[] getKeywordArguments(String keywordName) {
+        if (DUMP_STATISTICS_KEYWORD.equals(keywordName)) {
+            return new String[] { "path=NONE" };
+        }
+        return super.getKeywordArguments(keywordName);
+    }
 
-    private boolean matches(String line) {
-        Pattern pattern = Pattern.compile(KEYWORD_DOC_REGEX_PREFIX);
-        return pattern.matcher(line).matches();
+    /**
+     * Writes the execution time statistics of the keywords of this library to a CSV file.<br>
+     * <br>
+     * One line per keyword with the number of runs, total, mean, p50, p95, p99 and max time in millis.
+     *
+     * @param path  the file to write to. Optional, defaults to '&lt;library&gt;-keyword-statistics.csv' in the
+     *              output directory, with the namespace after the library name for a remote namespace.
+     * @return  the path of the written file.
+     */
+    public String dumpKeywordStatistics(String path) {
+        File file = path != null ? new File(path) : new File(outputDir(), statisticsFileName());
+        try {
+            statistics.writeCsv(file);
+        } catch (IOException e) {
+            throw new FailureException(String.format("Unable to write keyword statistics to '%s'", file), e);
+        }
+        return file.getAbsolutePath();
+    }
+
+    @Override public String getKeywordDocumentation(String keywordName) {
+        if (DUMP_STATISTICS_KEYWORD.equals(keywordName)) {
+            return DUMP_STATISTICS_DOC;
+        }
+        Map<String, String> index = documentationIndex();
+        if(!index.isEmpty()) {
+            String doc = index.get(keywordName);
+            return doc != null ? doc : "";
+        }
+        return super.getKeywordDocumentation(keywordName);
+    }
+
+    private Map<String, String> documentationIndex() {
+        Map<String, String> index = documentation;
+        if(index == null) {
+            synchronized (this) {
+                if(documentation == null) {
+                    documentation = loadDocumentation();
+                }
+                index = documentation;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Parses the keyword documentation file into a keyword name to documentation index.<br>
+     * Each keyword section starts with a line prefixed by '+' or '#' followed by the keyword name,
+     * and runs until the next section.
+     */
+    private Map<String, String> loadDocumentation() {
+        Map<String, String> index = new HashMap<>();
+        InputStream stream = Thread.currentThread().getContextClassLoader().getResourceAsStream(keywordDocFile);
+        if(stream == null) {
+            return index;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String keywordName = null;
+            StringBuilder doc = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = KEYWORD_DOC_HEADER.matcher(line);
+                if(matcher.matches()) {
+                    addDocumentation(index, keywordName, doc);
+                    keywordName = matcher.group(1).trim();
+                    doc.setLength(0);
+                } else if(keywordName != null) {
+                    doc.append(line).append("\n");
+                }
+            }
+            addDocumentation(index, keywordName, doc);
+        } catch (IOException e) {
+            //ignoring as this only affects documentation generation.
+        }
+        return index;
+    }
+
+    private void addDocumentation(Map<String, String> index, String keywordName, StringBuilder doc) {
+        if(keywordName != null && !keywordName.isEmpty()) {
+            index.putIfAbsent(keywordName, doc.toString());
+        }
     }
 }
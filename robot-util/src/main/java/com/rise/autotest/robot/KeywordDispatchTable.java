@@ -0,0 +1,233 @@
+package com.rise.autotest.robot;
+
+import org.robotframework.javalib.annotation.RobotKeyword;
+import org.robotframework.javalib.annotation.RobotKeywordOverload;
+import org.robotframework.javalib.util.KeywordNameNormalizer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Keyword dispatch table, built once from the keyword beans.<br>
+ * <br>
+ * Does what the javalib keyword invocation does (overload selection by argument count, grouping of the trailing
+ * arguments into an array parameter, conversion of the arguments to the parameter types, unwrapping of the keyword
+ * exception), but with everything that does not depend on the actual arguments resolved up front: the overloads are
+ * indexed by arity, the converters are chosen per parameter and the methods are bound to their bean as
+ * {@link MethodHandle}s. A keyword call then does no reflection and allocates only the converted argument array.
+ */
+class KeywordDispatchTable {
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private final Map<String, Keyword> keywords = new HashMap<>();
+    private final Map<String, Keyword> normalizedKeywords = new HashMap<>();
+    private final KeywordNameNormalizer normalizer = new KeywordNameNormalizer();
+
+    /**
+     * Builds the table for the keyword methods of the <b>beans</b>.
+     *
+     * @param beans keyword beans, as loaded by the library.
+     */
+    KeywordDispatchTable(Collection<?> beans) {
+        for (Object bean : beans) {
+            // same order as javalib, the method order decides which overload is the fallback
+            for (Method method : bean.getClass().getMethods()) {
+                if (method.isAnnotationPresent(RobotKeyword.class) || method.isAnnotationPresent(
+                        RobotKeywordOverload.class)) {
+                    Keyword keyword = keywords.computeIfAbsent(method.getName(), Keyword::new);
+                    keyword.add(new KeywordMethod(bean, method));
+                }
+            }
+        }
+        for (Keyword keyword : keywords.values()) {
+            normalizedKeywords.put(normalizer.normalize(keyword.name), keyword);
+        }
+    }
+
+    /**
+     * Runs the keyword.
+     *
+     * @param keywordName   keyword name, as returned by the library or in any robot form ('Open Browser').
+     * @param args  keyword arguments
+     * @return  the keyword return value, null for void keywords.
+     * @throws UnknownKeywordException if there is no such keyword.
+     */
+    Object invoke(String keywordName, Object[] args) {
+        Keyword keyword = keywords.get(keywordName);
+        if (keyword == null) {
+            keyword = normalizedKeywords.get(normalizer.normalize(keywordName));
+            if (keyword == null) {
+                throw new UnknownKeywordException(keywordName);
+            }
+        }
+        return keyword.select(args == null ? 0 : args.length).invoke(args);
+    }
+
+    /**
+     * A keyword and its overloads.
+     */
+    private static class Keyword {
+        private final String name;
+        private KeywordMethod[] byArity = new KeywordMethod[0];
+        private KeywordMethod fallback;
+
+        Keyword(String name) {
+            this.name = name;
+        }
+
+        void add(KeywordMethod method) {
+            if (fallback == null) {
+                fallback = method;
+            }
+            if (byArity.length <= method.parameterCount) {
+                byArity = Arrays.copyOf(byArity, method.parameterCount + 1);
+            }
+            // javalib lets the last method with the same argument count win
+            byArity[method.parameterCount] = method;
+        }
+
+        KeywordMethod select(int argumentCount) {
+            KeywordMethod method = argumentCount < byArity.length ? byArity[argumentCount] : null;
+            return method != null ? method : fallback;
+        }
+    }
+
+    /**
+     * One keyword method, bound to its bean.
+     */
+    private static class KeywordMethod {
+        private final MethodHandle invoker;
+        private final Function<Object, Object>[] converters;
+        private final int parameterCount;
+        private final boolean lastParameterIsArray;
+
+        @SuppressWarnings("unchecked")
+        KeywordMethod(Object bean, Method method) {
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            this.parameterCount = parameterTypes.length;
+            this.lastParameterIsArray = parameterCount > 0 && parameterTypes[parameterCount - 1].isArray();
+            this.converters = new Function[parameterCount];
+            for (int i = 0; i < parameterCount; i++) {
+                converters[i] = converter(parameterTypes[i]);
+            }
+            this.invoker = unreflect(method).bindTo(bean)
+                    .asSpreader(Object[].class, parameterCount)
+                    .asType(INVOKER_TYPE);
+        }
+
+        Object invoke(Object[] args) {
+            Object[] arguments;
+            try {
+                arguments = convert(shouldGroup(args) ? group(args) : args);
+            } catch (RuntimeException e) {
+                // same as javalib: argument errors are reported wrapped
+                throw new RuntimeException(e);
+            }
+            try {
+                return invoker.invokeExact(arguments);
+            } catch (Throwable e) {
+                // same as javalib: the keyword exception, with its message, as cause of a RuntimeException
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
+
+        private boolean shouldGroup(Object[] args) {
+            return args != null && parameterCount != 0 && (parameterCount != args.length || lastParameterIsArray);
+        }
+
+        /**
+         * Groups the trailing arguments into the last (array) parameter.
+         */
+        private Object[] group(Object[] args) {
+            if (args.length < parameterCount - 1) {
+                throw new IllegalArgumentException(String.format("%d > %d", parameterCount - 1, args.length));
+            }
+            Object[] grouped = new Object[parameterCount];
+            for (int i = 0; i < parameterCount - 1; i++) {
+                grouped[i] = toString(args[i]);
+            }
+            String[] rest = new String[args.length - parameterCount + 1];
+            for (int i = 0; i < rest.length; i++) {
+                rest[i] = toString(args[parameterCount - 1 + i]);
+            }
+            grouped[parameterCount - 1] = rest;
+            return grouped;
+        }
+
+        private Object[] convert(Object[] args) {
+            if (args == null) {
+                return null;
+            }
+            if (args.length != parameterCount) {
+                throw new IllegalArgumentException(String.format(
+                        "Illegal number of arguments (should be %d, but got %d)", parameterCount, args.length));
+            }
+            Object[] converted = new Object[parameterCount];
+            for (int i = 0; i < parameterCount; i++) {
+                Object arg = args[i];
+                converted[i] = arg == null || arg.getClass().isArray() ? arg : converters[i].apply(arg);
+            }
+            return converted;
+        }
+
+        private static String toString(Object arg) {
+            return arg == null ? null : arg.toString();
+        }
+
+        private static MethodHandle unreflect(Method method) {
+            try {
+                return MethodHandles.publicLookup().unreflect(method);
+            } catch (IllegalAccessException e) {
+                // public method declared by a non public class, e.g. a package private keyword base class
+                method.setAccessible(true);
+                try {
+                    return MethodHandles.lookup().unreflect(method);
+                } catch (IllegalAccessException ex) {
+                    throw new IllegalStateException("Keyword method is not accessible: " + method, ex);
+                }
+            }
+        }
+
+        /**
+         * The javalib conversion for the parameter type: from the string form for numbers and booleans, the value
+         * itself if it has the right type, otherwise null.
+         */
+        private static Function<Object, Object> converter(Class<?> type) {
+            if (type == Integer.class || type == int.class) {
+                return arg -> Integer.valueOf(arg.toString());
+            } else if (type == Long.class || type == long.class) {
+                return arg -> Long.valueOf(arg.toString());
+            } else if (type == Short.class || type == short.class) {
+                return arg -> Short.valueOf(arg.toString());
+            } else if (type == Byte.class || type == byte.class) {
+                return arg -> Byte.valueOf(arg.toString());
+            } else if (type == Boolean.class || type == boolean.class) {
+                return arg -> Boolean.valueOf(arg.toString());
+            } else if (type == Float.class || type == float.class) {
+                return arg -> Float.valueOf(arg.toString());
+            } else if (type == Double.class || type == double.class) {
+                return arg -> Double.valueOf(arg.toString());
+            } else if (type == String.class) {
+                return Object::toString;
+            }
+            return arg -> type.isInstance(arg) ? arg : null;
+        }
+    }
+
+    /**
+     * Thrown when the library has no keyword with the given name.
+     */
+    static class UnknownKeywordException extends RuntimeException {
+        UnknownKeywordException(String keywordName) {
+            super(String.format("No keyword with name '%s' found.", keywordName));
+        }
+    }
+}
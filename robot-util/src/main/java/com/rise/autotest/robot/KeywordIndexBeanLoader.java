@@ -0,0 +1,164 @@
+package com.rise.autotest.robot;
+
+import com.rise.autotest.robot.processor.KeywordIndexProcessor;
+import org.robotframework.javalib.beans.annotation.IBeanLoader;
+import org.robotframework.javalib.beans.common.IClassFilter;
+import org.robotframework.javalib.util.AntPathMatcher;
+import org.robotframework.javalib.util.KeywordNameNormalizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads the keyword beans from the keyword index generated at build time by {@link KeywordIndexProcessor},
+ * instead of scanning the class path for classes matching the keyword pattern.<br>
+ * <br>
+ * The index is only used when it surely lists all the keyword classes: every class path entry holding the keyword
+ * package is a jar with an index, and every indexed class loads. A class directory, e.g. of an IDE compiling
+ * incrementally, a jar built without the index, or a stale entry make the library scan the class path, as without
+ * index. Scanning a class directory costs about the same as reading the index anyway, the index pays off with jars.
+ */
+class KeywordIndexBeanLoader implements IBeanLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(KeywordIndexBeanLoader.class);
+    private static final String JAR_PROTOCOL = "jar";
+    private static final String JAR_SEPARATOR = "!/";
+
+    private final List<Class<?>> keywordClasses;
+
+    KeywordIndexBeanLoader(List<Class<?>> keywordClasses) {
+        this.keywordClasses = keywordClasses;
+    }
+
+    /**
+     * Creates a loader for the indexed keyword classes matching the <b>keywordPattern</b>.
+     *
+     * @param keywordPattern    the keyword class path pattern, e.g. com/rise/autotest/robot/db/keywords/**&#47;*.class
+     * @param classLoader   the class loader to read the index and load the classes.
+     * @return  the loader or null if the index is missing or not complete, the class path is scanned then.
+     */
+    static KeywordIndexBeanLoader forPattern(String keywordPattern, ClassLoader classLoader) {
+        String pattern = keywordPattern.replace('\\', '/');
+        try {
+            Set<String> packageJars = new HashSet<>();
+            for (URL packageUrl : Collections.list(classLoader.getResources(packagePath(pattern)))) {
+                String jar = jarOf(packageUrl);
+                if (jar == null) {
+                    log.debug("Keyword classes '{}' in the directory {}, scanning the class path", pattern, packageUrl);
+                    return null;
+                }
+                packageJars.add(jar);
+            }
+            List<URL> indexes = new ArrayList<>();
+            for (URL index : Collections.list(classLoader.getResources(KeywordIndexProcessor.INDEX_FILE))) {
+                // skips the indexes of the jars without the keyword package
+                if (packageJars.remove(jarOf(index))) {
+                    indexes.add(index);
+                }
+            }
+            if (!packageJars.isEmpty()) {
+                log.debug("Keyword classes '{}' in {} without keyword index, scanning the class path", pattern,
+                        packageJars);
+                return null;
+            }
+            List<Class<?>> keywordClasses = indexedClasses(pattern, classLoader, indexes);
+            if (keywordClasses.isEmpty()) {
+                return null;
+            }
+            log.debug("Loading the {} keyword classes '{}' from the keyword index", keywordClasses.size(), pattern);
+            return new KeywordIndexBeanLoader(keywordClasses);
+        } catch (ClassNotFoundException | LinkageError e) {
+            log.warn("Stale keyword index for '{}', scanning the class path: {}", pattern, e.toString());
+            return null;
+        } catch (IOException e) {
+            log.warn("Unable to read the keyword index for '{}', scanning the class path", pattern, e);
+            return null;
+        }
+    }
+
+    /**
+     * Loads the classes of the <b>indexes</b> matching the <b>keywordPattern</b>, without initializing them.
+     *
+     * @throws ClassNotFoundException   if an indexed class does not exist anymore.
+     */
+    static List<Class<?>> indexedClasses(String keywordPattern, ClassLoader classLoader, List<URL> indexes)
+            throws IOException, ClassNotFoundException {
+        String pattern = keywordPattern.replace('\\', '/');
+        AntPathMatcher pathMatcher = new AntPathMatcher();
+        List<Class<?>> keywordClasses = new ArrayList<>();
+        for (URL index : indexes) {
+            for (String keywordClass : readIndex(index)) {
+                if (pathMatcher.match(pattern, keywordClass.replace('.', '/') + ".class")) {
+                    keywordClasses.add(Class.forName(keywordClass, false, classLoader));
+                }
+            }
+        }
+        return keywordClasses;
+    }
+
+    @Override public Map loadBeanDefinitions(IClassFilter classFilter) {
+        KeywordNameNormalizer normalizer = new KeywordNameNormalizer();
+        Map<String, Object> beans = new HashMap<>();
+        for (Class<?> clazz : keywordClasses) {
+            if (classFilter.accept(clazz)) {
+                try {
+                    // same key as the class path scan, the class resource path without .class
+                    beans.put(normalizer.normalize(clazz.getName().replace('.', '/')), clazz.newInstance());
+                } catch (InstantiationException | IllegalAccessException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+        return beans;
+    }
+
+    /**
+     * The package directory of the keyword pattern, e.g. com/rise/autotest/robot/db/keywords/ for
+     * com/rise/autotest/robot/db/keywords/**&#47;*.class
+     */
+    private static String packagePath(String pattern) {
+        int wildcard = pattern.length();
+        for (char c : new char[] { '*', '?', '{' }) {
+            int index = pattern.indexOf(c);
+            if (index != -1) {
+                wildcard = Math.min(wildcard, index);
+            }
+        }
+        return pattern.substring(0, pattern.lastIndexOf('/', wildcard) + 1);
+    }
+
+    /**
+     * @return  the jar of a class path resource, null if the resource is not in a jar.
+     */
+    private static String jarOf(URL resource) {
+        String url = resource.toString();
+        int separator = url.indexOf(JAR_SEPARATOR);
+        return JAR_PROTOCOL.equals(resource.getProtocol()) && separator != -1 ? url.substring(0, separator) : null;
+    }
+
+    private static List<String> readIndex(URL index) throws IOException {
+        List<String> keywordClasses = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(index.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    keywordClasses.add(line.trim());
+                }
+            }
+        }
+        return keywordClasses;
+    }
+}
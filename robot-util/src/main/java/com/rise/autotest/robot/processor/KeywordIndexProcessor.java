@@ -0,0 +1,81 @@
+package com.rise.autotest.robot.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Annotation processor which writes the names of all the classes annotated with
+ * {@link org.robotframework.javalib.annotation.RobotKeywords} to {@value #INDEX_FILE}.<br>
+ * <br>
+ * The index is used by {@link com.rise.autotest.robot.CustomAnnotationLibrary} to load the keyword classes directly,
+ * instead of scanning the class path every time robot imports the library.<br>
+ * <br>
+ * The processor is found on the class path of every module depending on robot-util, it only runs in the modules which
+ * enable it with the compiler option {@code -A}{@value #ENABLED_OPTION}{@code =true}. The index lists the classes
+ * of the current compilation only, so the module must be compiled as a whole, which maven does when a source changes.
+ */
+@SupportedAnnotationTypes(KeywordIndexProcessor.ROBOT_KEYWORDS_ANNOTATION)
+@SupportedOptions(KeywordIndexProcessor.ENABLED_OPTION)
+public class KeywordIndexProcessor extends AbstractProcessor {
+
+    public static final String INDEX_FILE = "META-INF/robot-keywords.idx";
+    public static final String ENABLED_OPTION = "robot.keyword.index";
+    static final String ROBOT_KEYWORDS_ANNOTATION = "org.robotframework.javalib.annotation.RobotKeywords";
+
+    private final Set<String> keywordClasses = new TreeSet<>();
+
+    @Override public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (!Boolean.parseBoolean(processingEnv.getOptions().get(ENABLED_OPTION))) {
+            return false;
+        }
+        if (roundEnv.processingOver()) {
+            // rewritten on every compilation, so the removed or renamed classes leave the index
+            writeIndex();
+            return false;
+        }
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS) {
+                    keywordClasses.add(processingEnv.getElementUtils()
+                            .getBinaryName((TypeElement) element).toString());
+                }
+            }
+        }
+        return false;
+    }
+
+    private void writeIndex() {
+        try {
+            FileObject index = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_FILE);
+            try (Writer writer = new OutputStreamWriter(index.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (String keywordClass : keywordClasses) {
+                    writer.write(keywordClass);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    String.format("Unable to write the keyword index '%s': %s", INDEX_FILE, e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.rise.autotest.robot.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the execution time of the keywords of a library.<br>
+ * <br>
+ * Each keyword has a count, total and max time and a log-linear histogram of the execution times, from which the
+ * percentiles are estimated (within ~12%). Recording is lock-free and does not allocate once the keyword has been
+ * seen, so it is safe to call for every keyword run.
+ */
+public class KeywordStatistics {
+
+    private static final String CSV_HEADER = "keyword,count,total_ms,mean_ms,p50_ms,p95_ms,p99_ms,max_ms";
+
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Records one execution of the keyword.
+     *
+     * @param keywordName   the keyword name
+     * @param elapsedNanos  the execution time in nanos
+     */
+    public void record(String keywordName, long elapsedNanos) {
+        Histogram histogram = histograms.get(keywordName);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(keywordName, name -> new Histogram());
+        }
+        histogram.record(elapsedNanos);
+    }
+
+    public boolean isEmpty() {
+        return histograms.isEmpty();
+    }
+
+    /**
+     * Writes the statistics of all the keywords as CSV to the given <b>file</b>. One line per keyword.
+     *
+     * @param file  the file to write to, replaced if exists.
+     * @throws IOException if the file could not be written.
+     */
+    public void writeCsv(File file) throws IOException {
+        Map<String, Histogram> sorted = new TreeMap<>(histograms);
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+            writer.println(CSV_HEADER);
+            for (Map.Entry<String, Histogram> entry : sorted.entrySet()) {
+                Histogram histogram = entry.getValue();
+                long count = histogram.count.sum();
+                if (count == 0) {
+                    continue;
+                }
+                long total = histogram.total.sum();
+                writer.println(String.format(Locale.ROOT, "%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f",
+                        entry.getKey(), count, millis(total), millis(total / count),
+                        millis(histogram.percentile(0.50)), millis(histogram.percentile(0.95)),
+                        millis(histogram.percentile(0.99)), millis(histogram.max.get())));
+            }
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000d;
+    }
+
+    /**
+     * Log-linear histogram. Values below 8 have their own bucket, above that every power of two is split in 8 buckets.
+     */
+    static class Histogram {
+        private static final int SUB_BUCKETS = 8;
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int BUCKETS = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Long::max, 0L);
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        void record(long value) {
+            long nanos = Math.max(0L, value);
+            count.increment();
+            total.add(nanos);
+            max.accumulate(nanos);
+            buckets.incrementAndGet(bucketIndex(nanos));
+        }
+
+        /**
+         * Estimates the value at the given percentile, as the upper bound of the bucket holding it.
+         *
+         * @param percentile    percentile between 0 and 1
+         * @return  the estimated value, never more than the max recorded value.
+         */
+        long percentile(double percentile) {
+            long total = 0;
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0) {
+                    return Math.min(upperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        static int bucketIndex(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        static long upperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            long subBucket = index % SUB_BUCKETS;
+            long width = 1L << (exponent - SUB_BUCKET_BITS);
+            return ((SUB_BUCKETS + subBucket) * width) + width - 1;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.rise.autotest.robot.util;
+
+import org.python.util.PythonInterpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Small bounded pool of Jython interpreters with the robot modules already imported.<br>
+ * <br>
+ * Creating an interpreter and importing robot takes seconds, so interpreters are shared between threads instead of
+ * being created per thread. An interpreter is used by only one thread at a time, callers wait for a free one if all
+ * of them are in use.
+ */
+class PythonInterpreterPool {
+
+    private static final String INIT_COMMAND = "from robot.libraries.BuiltIn import BuiltIn; "
+            + "from robot.running.context import EXECUTION_CONTEXTS; from robot.api import logger;";
+
+    private static final long BORROW_POLL_MILLIS = 100L;
+
+    private final int maxSize;
+    private final Supplier<PythonInterpreter> factory;
+    private final BlockingQueue<PythonInterpreter> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger created = new AtomicInteger();
+
+    /**
+     * Constructor.
+     * @param maxSize   maximum number of interpreters to create.
+     */
+    PythonInterpreterPool(int maxSize) {
+        this(maxSize, PythonInterpreterPool::newRobotInterpreter);
+    }
+
+    /**
+     * Constructor.
+     * @param maxSize   maximum number of interpreters to create.
+     * @param factory   creates the interpreters
+     */
+    PythonInterpreterPool(int maxSize, Supplier<PythonInterpreter> factory) {
+        this.maxSize = Math.max(1, maxSize);
+        this.factory = factory;
+    }
+
+    /**
+     * Creates the first interpreter on a background thread, if none exists yet.
+     * Returns immediately.
+     */
+    void warmUp() {
+        if (!reserve()) {
+            return;
+        }
+        Thread warmer = new Thread(() -> idle.offer(newInterpreter()), "robot-logger-warmup");
+        warmer.setDaemon(true);
+        warmer.start();
+    }
+
+    /**
+     * Runs the <b>action</b> with an interpreter borrowed from the pool.
+     * Waits for an interpreter to be released if the pool is exhausted.
+     *
+     * @param action    the action to run
+     * @param <T>   result type
+     * @return  the result of the action
+     */
+    <T> T execute(Function<PythonInterpreter, T> action) {
+        PythonInterpreter interpreter = borrow();
+        try {
+            return action.apply(interpreter);
+        } finally {
+            idle.offer(interpreter);
+        }
+    }
+
+    /**
+     * Releases all the idle interpreters. Interpreters in use are left alone.
+     * The pool can still be used afterwards, new interpreters are created on demand.<br>
+     * <br>
+     * The interpreters are dropped, not closed: they share the python system state of robot, closing one would close
+     * the files opened by robot, e.g. output.xml.
+     */
+    void close() {
+        List<PythonInterpreter> interpreters = new ArrayList<>();
+        idle.drainTo(interpreters);
+        created.addAndGet(-interpreters.size());
+    }
+
+    private PythonInterpreter borrow() {
+        PythonInterpreter interpreter = idle.poll();
+        while (interpreter == null) {
+            if (reserve()) {
+                return newInterpreter();
+            }
+            // re-check the reservation now and then, in case an interpreter creation failed meanwhile
+            try {
+                interpreter = idle.poll(BORROW_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a python interpreter", e);
+            }
+        }
+        return interpreter;
+    }
+
+    private boolean reserve() {
+        int count;
+        do {
+            count = created.get();
+            if (count >= maxSize) {
+                return false;
+            }
+        } while (!created.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    private PythonInterpreter newInterpreter() {
+        try {
+            return factory.get();
+        } catch (RuntimeException e) {
+            created.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private static PythonInterpreter newRobotInterpreter() {
+        PythonInterpreter pythonInterpreter = new PythonInterpreter();
+        pythonInterpreter.exec(INIT_COMMAND);
+        return pythonInterpreter;
+    }
+}
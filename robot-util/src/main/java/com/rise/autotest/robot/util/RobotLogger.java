@@ -1,45 +1,212 @@
 package com.rise.autotest.robot.util;
 
-import com.rise.autotest.robot.FailureException;
 import org.python.core.PyString;
-import org.python.util.PythonInterpreter;
 
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 public class RobotLogger {
 
     private static String logDir = null;
-    private static final String LOG_LONG_MESSAGE_COMMAND  = new StringBuilder()
-            .append("from __future__ import with_statement\n")
-            .append("\n")
-            .append("with open('%s', 'r') as msg_file:\n")
-            .append("    msg = msg_file.read()\n")
-            .append("    logger.%s(msg%s)")
+    private static final String LONG_MESSAGE_VARIABLE = "_robot_logger_message";
+    private static final String LOG_LONG_MESSAGE_COMMAND = new StringBuilder()
+            .append("try:\n")
+            .append("    logger.%s(").append(LONG_MESSAGE_VARIABLE).append("%s)\n")
+            .append("finally:\n")
+            .append("    del ").append(LONG_MESSAGE_VARIABLE)
             .toString();
 
     private static final String LOG_MESSAGE_COMMAND = "logger.%s('%s'%s)";
 
+    // Bounds for the buffered (async) mode. Keeps each merged script well under the Jython parser limit.
+    private static final int MAX_PENDING_MESSAGES = 256;
+    private static final int MAX_PENDING_CHARS = 64 * 1024;
+
+    private static final String LOG_LEVEL_COMMAND = "BuiltIn().get_variable_value('${LOG LEVEL}', 'INFO') "
+            + "if EXECUTION_CONTEXTS.current is not None else 'INFO'";
+
+    // Robot log level, null when it has to be read again from robot.
+    private static volatile LogLevel logLevel = null;
+
+    private static volatile boolean async = Boolean.getBoolean("robot.logger.async");
+
+    private static volatile PythonInterpreterPool interpreters = new PythonInterpreterPool(
+            Integer.getInteger("robot.logger.interpreters", 2));
+
+    // libraries using the logger, the interpreters are released when the last one is closed
+    private static final AtomicInteger users = new AtomicInteger();
+
+    private static ThreadLocal<LogBatch> pendingBatch = ThreadLocal.withInitial(LogBatch::new);
+
+    // Output of the keyword run by a remote client, see startCapture()
+    private static final ThreadLocal<StringBuilder> capturedOutput = new ThreadLocal<>();
+
     private RobotLogger() {
 
     }
 
+    /**
+     * Replaces the interpreters the messages are written with, e.g. by tests.
+     *
+     * @param pool  the interpreters to use
+     * @return  the interpreters used so far
+     */
+    static PythonInterpreterPool setInterpreters(PythonInterpreterPool pool) {
+        PythonInterpreterPool previous = interpreters;
+        interpreters = pool;
+        return previous;
+    }
+
+    /**
+     * Enables or disables the buffered logging mode.<br>
+     * <br>
+     * When enabled, short messages logged by the thread running a keyword (between {@link #startKeyword()} and
+     * {@link #endKeyword()}) are queued and merged into a single interpreter call, which is executed when the queue is
+     * full or at the end of the keyword. The other threads, e.g. launcher or watchdog threads, have no keyword end to
+     * flush at: their messages are always logged immediately. Can also be enabled with the system property
+     * <b>robot.logger.async=true</b>.
+     *
+     * @param enabled true to buffer the messages, false to log each message immediately.
+     */
+    public static void setAsync(boolean enabled) {
+        if (!enabled) {
+            flush();
+        }
+        async = enabled;
+    }
+
+    public static boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * Writes all the messages buffered by the current thread to the robot log, in a single interpreter call.
+     * <br>
+     * Robot only accepts log messages from the thread running the keyword, so this has to be called from that thread,
+     * typically at the end of each keyword.
+     */
+    public static void flush() {
+        LogBatch batch = pendingBatch.get();
+        if (batch.isEmpty()) {
+            return;
+        }
+        String script = batch.drain();
+        exec(script);
+    }
+
+    /**
+     * Marks the current thread as running a keyword: its short messages are buffered in the buffered logging mode,
+     * see {@link #setAsync(boolean)}. Each call is followed by {@link #endKeyword()}, keywords may be nested.
+     */
+    public static void startKeyword() {
+        pendingBatch.get().keywords++;
+    }
+
+    /**
+     * Flushes the messages buffered by the current thread, so that they are written under the keyword ending, see
+     * {@link #startKeyword()}.
+     */
+    public static void endKeyword() {
+        LogBatch batch = pendingBatch.get();
+        try {
+            flush();
+        } finally {
+            if (--batch.keywords <= 0) {
+                pendingBatch.remove();
+            }
+        }
+    }
+
+    /**
+     * Starts capturing the messages logged by the current thread, instead of writing them to the robot log.<br>
+     * <br>
+     * Used when a keyword is run for a remote robot client, which has no local robot context to log to. The messages
+     * are returned by {@link #stopCapture()}, formatted as the <i>output</i> of the robot remote library protocol.
+     * All levels are captured, filtering is left to the client.
+     */
+    public static void startCapture() {
+        flush();
+        capturedOutput.set(new StringBuilder());
+    }
+
+    /**
+     * Stops capturing the messages of the current thread.
+     *
+     * @return  the messages captured since {@link #startCapture()}, one '*LEVEL* message' entry per message.
+     */
+    public static String stopCapture() {
+        StringBuilder output = capturedOutput.get();
+        capturedOutput.remove();
+        return output == null ? "" : output.toString();
+    }
+
+    /**
+     * Marks the cached robot log level as stale, it is read again from robot on the next trace or debug message.<br>
+     * <br>
+     * The log level can only be changed by the <i>Set Log Level</i> keyword, so this is called by the library
+     * listener when that keyword ends, and when a suite starts.
+     */
+    public static void refreshLogLevel() {
+        logLevel = null;
+    }
+
+    public static boolean isTraceEnabled() {
+        return capturedOutput.get() != null || isEnabled(LogType.TRACE);
+    }
+
+    public static boolean isDebugEnabled() {
+        return capturedOutput.get() != null || isEnabled(LogType.DEBUG);
+    }
+
     public static File getLogDir() {
-        if (logDir == null
-                && !loggingPythonInterpreter.get().eval("EXECUTION_CONTEXTS.current").toString().equals("None")) {
-            PyString logDirName = (PyString) loggingPythonInterpreter.get()
-                    .eval("BuiltIn().get_variables()['${LOG FILE}']");
-            if (logDirName != null && !(logDirName.asString().equalsIgnoreCase("NONE"))) {
+        if (logDir == null) {
+            return interpreters.execute(interpreter -> {
+                if (interpreter.eval("EXECUTION_CONTEXTS.current").toString().equals("None")) {
+                    return null;
+                }
+                PyString logDirName = (PyString) interpreter.eval("BuiltIn().get_variables()['${LOG FILE}']");
+                if (logDirName != null && !(logDirName.asString().equalsIgnoreCase("NONE"))) {
+                    return new File(logDirName.asString()).getParentFile();
+                }
+                logDirName = (PyString) interpreter.eval("BuiltIn().get_variables()['${OUTPUTDIR}']");
                 return new File(logDirName.asString()).getParentFile();
-            }
-            logDirName = (PyString) loggingPythonInterpreter.get().eval("BuiltIn().get_variables()['${OUTPUTDIR}']");
-            return new File(logDirName.asString()).getParentFile();
+            });
         } else {
             return new File(logDir);
         }
     }
 
+    /**
+     * Starts the python interpreter used for logging on a background thread, so that the first log call of a test
+     * does not wait for the Jython startup. Returns immediately.
+     */
+    public static void warmUp() {
+        interpreters.warmUp();
+    }
+
+    /**
+     * Registers a user of the logger, e.g. a library instance, and warms up the interpreters, see {@link #warmUp()}.
+     * Each user calls {@link #close()} once when done.
+     */
+    public static void open() {
+        users.incrementAndGet();
+        warmUp();
+    }
+
+    /**
+     * Flushes the buffered messages and unregisters a user of the logger, see {@link #open()}. The python
+     * interpreters used for logging are shared, they are released when the last user is closed.
+     * Logging still works afterwards, interpreters are re-created on demand.
+     */
+    public static void close() {
+        flush();
+        if (users.updateAndGet(count -> Math.max(0, count - 1)) == 0) {
+            interpreters.close();
+        }
+    }
+
     public static void trace(String msg) {
         log(msg, LogType.TRACE);
     }
@@ -52,6 +219,28 @@ public class RobotLogger {
         log(msg, LogType.INFO);
     }
 
+    /**
+     * Logs the message built by <b>msg</b>, only if trace messages are logged. The message is not built otherwise.
+     *
+     * @param msg   message supplier
+     */
+    public static void trace(Supplier<String> msg) {
+        log(msg, LogType.TRACE);
+    }
+
+    /**
+     * Logs the message built by <b>msg</b>, only if debug messages are logged. The message is not built otherwise.
+     *
+     * @param msg   message supplier
+     */
+    public static void debug(Supplier<String> msg) {
+        log(msg, LogType.DEBUG);
+    }
+
+    public static void info(Supplier<String> msg) {
+        log(msg, LogType.INFO);
+    }
+
     public static void html(String msg) {
         log(msg, LogType.HTML);
     }
@@ -64,64 +253,159 @@ public class RobotLogger {
         log(msg, LogType.ERROR);
     }
 
+    private static void log(Supplier<String> msg, LogType logType) {
+        StringBuilder output = capturedOutput.get();
+        if (output != null) {
+            capture(output, msg.get(), logType);
+        } else if (isEnabled(logType)) {
+            write(msg.get(), logType);
+        }
+    }
+
     private static void log(String msg, LogType logType) {
+        StringBuilder output = capturedOutput.get();
+        if (output != null) {
+            capture(output, msg, logType);
+        } else if (isEnabled(logType)) {
+            write(msg, logType);
+        }
+    }
+
+    private static void capture(StringBuilder output, String msg, LogType logType) {
+        output.append('*').append(logType.name()).append("* ").append(msg).append('\n');
+    }
+
+    private static boolean isEnabled(LogType logType) {
+        if (logType.level.compareTo(LogLevel.INFO) >= 0) {
+            // never filtered by robot, no need to know the level
+            return true;
+        }
+        return logType.level.compareTo(currentLogLevel()) >= 0;
+    }
+
+    private static LogLevel currentLogLevel() {
+        LogLevel level = logLevel;
+        if (level == null) {
+            level = LogLevel.parse(interpreters.execute(interpreter -> interpreter.eval(LOG_LEVEL_COMMAND).toString()));
+            logLevel = level;
+        }
+        return level;
+    }
+
+    private static void write(String msg, LogType logType) {
         String[] methodParams = logType.getParams();
         msg = String.valueOf(msg);
         if (msg.length() > 1024) {
             // Message is too large.There is a hard limit of 100k in the Jython source code parser
-            File tempFile;
-            try {
-                tempFile = File.createTempFile("SeleniumLibrary", ".log");
-                tempFile.deleteOnExit();
-                logLongMessage(msg, methodParams, tempFile);
-            } catch (IOException e) {
-                throw new FailureException("Error trying to log message", e);
-            }
+            logLongMessage(msg, methodParams);
         } else {
             logShortMessage(msg, methodParams);
         }
     }
 
-    private static void logLongMessage(String message, String[] methodParams, File tempFile) {
-        try (FileWriter writer = new FileWriter(tempFile)){
-            // Write message to temp file
-            writer.write(message);
-            // Read the message in Python back and log it.
-            loggingPythonInterpreter.get().exec(String.format(
-                    LOG_LONG_MESSAGE_COMMAND, tempFile.getAbsolutePath().replace("\\", "\\\\"),
-                    methodParams[0], methodParams[1]));
-
-        } catch (IOException e) {
-            throw new FailureException("Error trying to log message", e);
+    private static void logShortMessage(String message, String[] methodParams) {
+        String command = shortMessageCommand(message, methodParams);
+        LogBatch batch = async ? pendingBatch.get() : null;
+        if (batch == null || batch.keywords == 0) {
+            // no keyword end to flush at on this thread
+            exec(command);
+            return;
+        }
+        batch.add(command);
+        if (batch.size() >= MAX_PENDING_MESSAGES || batch.length() >= MAX_PENDING_CHARS) {
+            flush();
         }
     }
 
-    private static void logShortMessage(String message, String[] methodParams) {
+    private static void logLongMessage(String message, String[] methodParams) {
+        // keep the order of the buffered messages
+        flush();
+        // Hand the message over as a python object instead of source code, no need to escape or parse it.
+        String command = String.format(LOG_LONG_MESSAGE_COMMAND, methodParams[0], methodParams[1]);
+        interpreters.execute(interpreter -> {
+            interpreter.set(LONG_MESSAGE_VARIABLE, message);
+            interpreter.exec(command);
+            return null;
+        });
+    }
+
+    private static void exec(String script) {
+        interpreters.execute(interpreter -> {
+            interpreter.exec(script);
+            return null;
+        });
+    }
+
+    private static String shortMessageCommand(String message, String[] methodParams) {
         // Message is small enough to get parsed by Jython
-        loggingPythonInterpreter.get().exec(String.format(LOG_MESSAGE_COMMAND, methodParams[0],
+        return String.format(LOG_MESSAGE_COMMAND, methodParams[0],
                 message.replace("\\", "\\\\").replace("'", "\\'")
-                        .replace("\n", "\\n"), methodParams[1]));
+                        .replace("\n", "\\n"), methodParams[1]);
+    }
+
+
+    /**
+     * Log commands buffered by a thread, merged into a single python script on drain.
+     */
+    private static class LogBatch {
+        private final StringBuilder script = new StringBuilder();
+        private int size;
+        // depth of the keywords running on the thread, the messages are buffered only within a keyword
+        private int keywords;
+
+        void add(String command) {
+            script.append(command).append('\n');
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int length() {
+            return script.length();
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        String drain() {
+            String result = script.toString();
+            script.setLength(0);
+            size = 0;
+            return result;
+        }
     }
 
+    private enum LogLevel {
+        TRACE, DEBUG, INFO, WARN, ERROR, NONE;
 
-    private static ThreadLocal<PythonInterpreter> loggingPythonInterpreter = ThreadLocal.withInitial(() -> {
-        PythonInterpreter pythonInterpreter = new PythonInterpreter();
-        pythonInterpreter.exec(
-                "from robot.libraries.BuiltIn import BuiltIn; from robot.running.context import EXECUTION_CONTEXTS; from robot.api import logger;");
-        return pythonInterpreter;
-    });
+        static LogLevel parse(String level) {
+            // e.g. 'DEBUG' or 'DEBUG:INFO' (level:default visible level)
+            String name = String.valueOf(level).split(":")[0].trim().toUpperCase(Locale.ROOT);
+            for (LogLevel logLevel : values()) {
+                if (logLevel.name().equals(name)) {
+                    return logLevel;
+                }
+            }
+            return INFO;
+        }
+    }
 
     private enum LogType {
-        DEBUG(new String[] { "debug", "" }),
-        HTML(new String[] { "info", ", True, False" }),
-        INFO(new String[] { "info", "" }),
-        TRACE(new String[] { "info", "" }),
-        WARN(new String[] { "info", "" }),
-        ERROR(new String[] { "info", "" });
+        DEBUG(new String[] { "debug", "" }, LogLevel.DEBUG),
+        HTML(new String[] { "info", ", True, False" }, LogLevel.INFO),
+        INFO(new String[] { "info", "" }, LogLevel.INFO),
+        TRACE(new String[] { "trace", "" }, LogLevel.TRACE),
+        WARN(new String[] { "info", "" }, LogLevel.WARN),
+        ERROR(new String[] { "info", "" }, LogLevel.ERROR);
 
         final String[] params;
-        LogType(String[] params) {
+        final LogLevel level;
+        LogType(String[] params, LogLevel level) {
             this.params = params;
+            this.level = level;
         }
 
         public String[] getParams() {
@@ -0,0 +1,97 @@
+package com.rise.autotest.robot.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Session namespace of the current thread.<br>
+ * <br>
+ * A library imported by robot runs in the {@link #DEFAULT} namespace. When the libraries are served remotely, every
+ * client gets its own namespace, so that the browsers and connections opened by one client are not seen by the
+ * others. Managers keep one instance per namespace with {@link #perNamespace(Supplier)}.
+ */
+public final class SessionNamespace {
+
+    public static final String DEFAULT = "default";
+
+    private static final ThreadLocal<String> current = new ThreadLocal<>();
+
+    private SessionNamespace() {
+
+    }
+
+    /**
+     * @return the namespace of the current thread, {@link #DEFAULT} if none was set.
+     */
+    public static String current() {
+        String namespace = current.get();
+        return namespace == null ? DEFAULT : namespace;
+    }
+
+    /**
+     * Sets the namespace of the current thread. Used by the threads serving a remote client.
+     *
+     * @param namespace the namespace, null or empty for {@link #DEFAULT}.
+     */
+    public static void set(String namespace) {
+        if (namespace == null || namespace.isEmpty()) {
+            current.remove();
+        } else {
+            current.set(namespace);
+        }
+    }
+
+    /**
+     * Creates a holder of one instance per namespace, created on first use by <b>factory</b>.
+     *
+     * @param factory   creates the instance of a namespace
+     * @param <T>   instance type
+     * @return  the holder
+     */
+    public static <T> PerNamespace<T> perNamespace(Supplier<T> factory) {
+        return new PerNamespace<>(factory);
+    }
+
+    /**
+     * One instance per namespace.
+     *
+     * @param <T> instance type
+     */
+    public static final class PerNamespace<T> {
+        private final Supplier<T> factory;
+        private final Map<String, T> instances = new ConcurrentHashMap<>();
+
+        private PerNamespace(Supplier<T> factory) {
+            this.factory = factory;
+        }
+
+        /**
+         * @return the instance of the current namespace
+         */
+        public T get() {
+            String namespace = current();
+            T instance = instances.get(namespace);
+            return instance != null ? instance : instances.computeIfAbsent(namespace, ns -> factory.get());
+        }
+
+        /**
+         * Forgets the instance of the current namespace, the next {@link #get()} creates a new one. Used when a
+         * namespace is closed, the caller releases the resources of the instance.
+         *
+         * @return the instance of the current namespace, null if none was created
+         */
+        public T remove() {
+            return instances.remove(current());
+        }
+
+        /**
+         * @return the instances of all the namespaces created so far
+         */
+        public Collection<T> all() {
+            return Collections.unmodifiableCollection(instances.values());
+        }
+    }
+}
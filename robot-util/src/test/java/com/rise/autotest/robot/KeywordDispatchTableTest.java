@@ -0,0 +1,129 @@
+package com.rise.autotest.robot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import org.junit.jupiter.api.Test;
+import org.robotframework.javalib.annotation.RobotKeyword;
+import org.robotframework.javalib.annotation.RobotKeywordOverload;
+import org.robotframework.javalib.annotation.RobotKeywords;
+
+import java.util.Arrays;
+
+class KeywordDispatchTableTest {
+
+    private final KeywordDispatchTable dispatchTable =
+            new KeywordDispatchTable(Arrays.asList(new FirstKeywords(), new SecondKeywords()));
+
+    @Test
+    void testInvoke_ShouldSelectOverloadByArity() {
+        assertThat(dispatchTable.invoke("greet", new Object[] { "a", "b" })).isEqualTo("second:a,b");
+        assertThat(dispatchTable.invoke("Greet", new Object[] { "a", "b" })).isEqualTo("second:a,b");
+    }
+
+    @Test
+    void testInvoke_WhenSameArity_ShouldRunTheLastAdded() {
+        assertThat(dispatchTable.invoke("greet", new Object[] { "a" })).isEqualTo("second:a");
+    }
+
+    @Test
+    void testInvoke_WhenNoOverloadWithArity_ShouldFallBackToTheFirstAndGroupTrailingArguments() {
+        assertThat(dispatchTable.invoke("greet", new Object[] { "a", "b", "c" })).isEqualTo("first:a,b,c");
+        assertThat(dispatchTable.invoke("greet", new Object[0])).isEqualTo("first:");
+    }
+
+    @Test
+    void testInvoke_ShouldGroupTrailingArgumentsIntoTheArray() {
+        assertThat(dispatchTable.invoke("join", new Object[] { "-", "a", "b", 3 })).isEqualTo("a-b-3");
+        assertThat(dispatchTable.invoke("join", new Object[] { "-", "a" })).isEqualTo("a");
+        assertThat(dispatchTable.invoke("join", new Object[] { "-" })).isEqualTo("");
+    }
+
+    @Test
+    void testInvoke_ShouldConvertArgumentsToParameterTypes() {
+        assertThat(dispatchTable.invoke("types", new Object[] { "1", "20000000000", "2.5", "true" }))
+                .isEqualTo("1,20000000000,2.5,true");
+        assertThat(dispatchTable.invoke("types", new Object[] { 1, 2L, 2.5d, false }))
+                .isEqualTo("1,2,2.5,false");
+    }
+
+    @Test
+    void testInvoke_WhenNullArguments_ShouldPassNull() {
+        assertThat(dispatchTable.invoke("nullable", new Object[] { null, null })).isEqualTo("null,null");
+        assertThat(dispatchTable.invoke("nullable", new Object[] { "a", "7" })).isEqualTo("a,7");
+    }
+
+    @Test
+    void testInvoke_WhenArgumentNotConvertible_ShouldFailWrapped() {
+        Throwable thrown = catchThrowable(() -> dispatchTable.invoke("types", new Object[] { "x", "1", "1", "1" }));
+
+        assertThat(thrown).isExactlyInstanceOf(RuntimeException.class).hasCauseInstanceOf(
+                NumberFormatException.class);
+    }
+
+    @Test
+    void testInvoke_WhenKeywordFails_ShouldKeepMessageAndRobotAttributesOfTheCause() throws Exception {
+        Throwable failure = catchThrowable(() -> dispatchTable.invoke("fail", new Object[] { "failed", "false" }));
+        Throwable fatal = catchThrowable(() -> dispatchTable.invoke("fail", new Object[] { "stopped", "true" }));
+
+        assertThat(failure).isExactlyInstanceOf(RuntimeException.class).hasMessage("failed");
+        assertThat(failure.getCause()).isExactlyInstanceOf(FailureException.class).hasMessage("failed");
+        assertThat(failure.getCause().getClass().getField("ROBOT_EXIT_ON_FAILURE").getBoolean(null)).isFalse();
+        assertThat(fatal).isExactlyInstanceOf(RuntimeException.class).hasMessage("stopped");
+        assertThat(fatal.getCause()).isExactlyInstanceOf(FatalException.class);
+        assertThat(fatal.getCause().getClass().getField("ROBOT_EXIT_ON_FAILURE").getBoolean(null)).isTrue();
+    }
+
+    @Test
+    void testInvoke_WhenUnknownKeyword_ShouldFail() {
+        assertThatExceptionOfType(KeywordDispatchTable.UnknownKeywordException.class)
+                .isThrownBy(() -> dispatchTable.invoke("unknown", new Object[0]))
+                .withMessage("No keyword with name 'unknown' found.");
+    }
+
+    @RobotKeywords
+    public static class FirstKeywords {
+
+        @RobotKeyword
+        public String greet(String[] names) {
+            return "first:" + String.join(",", names);
+        }
+
+        @RobotKeyword
+        public String join(String separator, String[] values) {
+            return String.join(separator, values);
+        }
+
+        @RobotKeyword
+        public String types(int i, long l, double d, boolean b) {
+            return i + "," + l + "," + d + "," + b;
+        }
+    }
+
+    @RobotKeywords
+    public static class SecondKeywords {
+
+        @RobotKeyword
+        public String greet(String name) {
+            return "second:" + name;
+        }
+
+        @RobotKeywordOverload
+        public String greet(String name, String other) {
+            return "second:" + name + "," + other;
+        }
+
+        @RobotKeyword
+        public String nullable(String value, Integer number) {
+            return value + "," + number;
+        }
+
+        @RobotKeyword
+        public void fail(String message, boolean fatal) {
+            if (fatal) {
+                throw new FatalException(message);
+            }
+            throw new FailureException(message);
+        }
+    }
+}
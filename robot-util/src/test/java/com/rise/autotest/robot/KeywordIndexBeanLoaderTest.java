@@ -0,0 +1,115 @@
+package com.rise.autotest.robot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import com.rise.autotest.robot.processor.KeywordIndexProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.robotframework.javalib.beans.annotation.AnnotationBasedKeywordFilter;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+class KeywordIndexBeanLoaderTest {
+
+    private static final String PATTERN = "com/rise/autotest/robot/**/*.class";
+    private static final String PACKAGE = "com/rise/autotest/robot/";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testForPattern_WhenEveryJarIndexed_ShouldLoadTheIndexedClasses() throws Exception {
+        Path jar = jar("keywords.jar", KeywordDispatchTableTest.FirstKeywords.class.getName(),
+                KeywordDispatchTableTest.SecondKeywords.class.getName(), "com.rise.other.Keywords");
+
+        KeywordIndexBeanLoader loader = KeywordIndexBeanLoader.forPattern(PATTERN, classLoader(jar));
+
+        assertThat(loader).isNotNull();
+        assertThat(loader.loadBeanDefinitions(new AnnotationBasedKeywordFilter()))
+                .containsOnlyKeys("com/rise/autotest/robot/keyworddispatchtabletest$firstkeywords",
+                        "com/rise/autotest/robot/keyworddispatchtabletest$secondkeywords");
+    }
+
+    @Test
+    void testForPattern_WhenAJarHasNoIndex_ShouldScan() throws Exception {
+        Path indexed = jar("indexed.jar", KeywordDispatchTableTest.FirstKeywords.class.getName());
+        Path notIndexed = jar("not-indexed.jar", (String[]) null);
+
+        assertThat(KeywordIndexBeanLoader.forPattern(PATTERN, classLoader(indexed, notIndexed))).isNull();
+    }
+
+    @Test
+    void testForPattern_WhenIndexedClassMissing_ShouldScan() throws Exception {
+        Path jar = jar("stale.jar", KeywordDispatchTableTest.FirstKeywords.class.getName(),
+                "com.rise.autotest.robot.RemovedKeywords");
+
+        assertThat(KeywordIndexBeanLoader.forPattern(PATTERN, classLoader(jar))).isNull();
+    }
+
+    @Test
+    void testForPattern_WhenClassDirectory_ShouldScan() throws Exception {
+        Files.createDirectories(tempDir.resolve("classes").resolve(PACKAGE));
+        Path index = tempDir.resolve("classes").resolve(KeywordIndexProcessor.INDEX_FILE);
+        Files.createDirectories(index.getParent());
+        Files.write(index, KeywordDispatchTableTest.FirstKeywords.class.getName().getBytes(StandardCharsets.UTF_8));
+
+        assertThat(KeywordIndexBeanLoader.forPattern(PATTERN, classLoader(tempDir.resolve("classes")))).isNull();
+    }
+
+    @Test
+    void testForPattern_WhenNoIndex_ShouldScan() throws Exception {
+        assertThat(KeywordIndexBeanLoader.forPattern(PATTERN, classLoader(jar("plain.jar", (String[]) null))))
+                .isNull();
+    }
+
+    /**
+     * A jar with the package directory entries and an index of the <b>indexedClasses</b>, if any. The classes
+     * themselves are loaded from the test class path.
+     */
+    private Path jar(String name, String... indexedClasses) throws IOException {
+        Path jar = tempDir.resolve(name);
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            StringBuilder path = new StringBuilder();
+            for (String directory : PACKAGE.split("/")) {
+                path.append(directory).append('/');
+                out.putNextEntry(new JarEntry(path.toString()));
+                out.closeEntry();
+            }
+            if (indexedClasses != null) {
+                out.putNextEntry(new JarEntry(KeywordIndexProcessor.INDEX_FILE));
+                out.write((String.join("\n", indexedClasses) + "\n").getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    /**
+     * Loads the classes from the test class path, but only sees the resources of the <b>paths</b>, as if they were
+     * the whole class path.
+     */
+    private static ClassLoader classLoader(Path... paths) throws IOException {
+        URL[] urls = new URL[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            urls[i] = paths[i].toUri().toURL();
+        }
+        return new URLClassLoader(urls, KeywordIndexBeanLoaderTest.class.getClassLoader()) {
+            @Override
+            public Enumeration<URL> getResources(String name) throws IOException {
+                return findResources(name);
+            }
+
+            @Override
+            public URL getResource(String name) {
+                return findResource(name);
+            }
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package com.rise.autotest.robot.util;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares variants of the same operation: the variants run alternately in the same JVM, round after round, after a
+ * few rounds of warm up, and the percentiles of the round times are printed per variant.<br>
+ * <br>
+ * Used by the benchmark main classes of the test sources, which the build does not run. A benchmark runs with the
+ * test class path of its module, e.g. for robot-selenium-library:
+ * <pre>
+ * mvn -B install -DskipTests
+ * mvn -B -q -pl robot-selenium-library dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp robot-selenium-library/target/test-classes:robot-selenium-library/target/classes:$(cat robot-selenium-library/cp.txt) \
+ *     &lt;benchmark class&gt; [rounds]
+ * </pre>
+ */
+public final class AlternatingBenchmark {
+
+    private final int warmUpRounds;
+    private final int rounds;
+    private final int operationsPerRound;
+    private final Map<String, Runnable> variants = new LinkedHashMap<>();
+
+    /**
+     * Constructor.
+     * @param warmUpRounds  rounds run first, not measured
+     * @param rounds    rounds measured
+     * @param operationsPerRound    operations done by a round, the times are printed per operation
+     */
+    public AlternatingBenchmark(int warmUpRounds, int rounds, int operationsPerRound) {
+        this.warmUpRounds = warmUpRounds;
+        this.rounds = rounds;
+        this.operationsPerRound = operationsPerRound;
+    }
+
+    /**
+     * Adds a variant.
+     *
+     * @param name  variant name, printed with its times
+     * @param round runs one round of the variant
+     * @return  this benchmark
+     */
+    public AlternatingBenchmark variant(String name, Runnable round) {
+        variants.put(name, round);
+        return this;
+    }
+
+    /**
+     * Runs the rounds of all the variants.
+     *
+     * @return  the time of each measured round in nanos, by variant
+     */
+    public Map<String, long[]> run() {
+        Map<String, long[]> nanos = new LinkedHashMap<>();
+        for (String name : variants.keySet()) {
+            nanos.put(name, new long[rounds]);
+        }
+        for (int round = -warmUpRounds; round < rounds; round++) {
+            for (Map.Entry<String, Runnable> variant : variants.entrySet()) {
+                long start = System.nanoTime();
+                variant.getValue().run();
+                long elapsed = System.nanoTime() - start;
+                if (round >= 0) {
+                    nanos.get(variant.getKey())[round] = elapsed;
+                }
+            }
+        }
+        return nanos;
+    }
+
+    /**
+     * Runs the rounds of all the variants and prints the p50, p90 and min time per operation of each.
+     *
+     * @param out   where to print
+     */
+    public void runAndPrint(PrintStream out) {
+        for (Map.Entry<String, long[]> variant : run().entrySet()) {
+            long[] sorted = variant.getValue().clone();
+            Arrays.sort(sorted);
+            out.println(String.format("%-10s rounds=%d operations/round=%d p50=%.3f ms p90=%.3f ms min=%.3f ms",
+                    variant.getKey(), rounds, operationsPerRound, perOperationMillis(sorted[sorted.length / 2]),
+                    perOperationMillis(sorted[sorted.length * 9 / 10]), perOperationMillis(sorted[0])));
+        }
+    }
+
+    private double perOperationMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1) / operationsPerRound;
+    }
+}
@@ -0,0 +1,93 @@
+package com.rise.autotest.robot.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+class KeywordStatisticsTest {
+
+    @Test
+    void testBucketIndex_WhenSmallValue_ShouldHaveOwnBucket() {
+        for (long value = 0; value < 8; value++) {
+            assertThat(KeywordStatistics.Histogram.bucketIndex(value)).isEqualTo((int) value);
+            assertThat(KeywordStatistics.Histogram.upperBound((int) value)).isEqualTo(value);
+        }
+        assertThat(KeywordStatistics.Histogram.bucketIndex(8)).isEqualTo(8);
+        assertThat(KeywordStatistics.Histogram.upperBound(8)).isEqualTo(8);
+    }
+
+    @Test
+    void testUpperBound_ShouldBeWithinAnEighthOfTheValue() {
+        Random random = new Random(42);
+        int previousIndex = -1;
+        for (long value = 1; value > 0 && value < Long.MAX_VALUE / 2; value = value * 2 + random.nextInt(3)) {
+            int index = KeywordStatistics.Histogram.bucketIndex(value);
+            long upperBound = KeywordStatistics.Histogram.upperBound(index);
+
+            assertThat(index).isGreaterThanOrEqualTo(previousIndex);
+            assertThat(upperBound).isGreaterThanOrEqualTo(value);
+            assertThat(upperBound - value).isLessThanOrEqualTo(value / 8);
+            assertThat(KeywordStatistics.Histogram.bucketIndex(upperBound)).isEqualTo(index);
+            assertThat(KeywordStatistics.Histogram.bucketIndex(upperBound + 1)).isEqualTo(index + 1);
+            previousIndex = index;
+        }
+        assertThat(KeywordStatistics.Histogram.bucketIndex(Long.MAX_VALUE))
+                .isEqualTo(KeywordStatistics.Histogram.bucketIndex(Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    void testPercentile_ShouldEstimateWithinAnEighth() {
+        KeywordStatistics.Histogram histogram = new KeywordStatistics.Histogram();
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        assertThat(histogram.percentile(0.50)).isBetween(millisToNanos(50), millisToNanos(50) * 9 / 8);
+        assertThat(histogram.percentile(0.95)).isBetween(millisToNanos(95), millisToNanos(95) * 9 / 8);
+        assertThat(histogram.percentile(0.99)).isBetween(millisToNanos(99), millisToNanos(100));
+        assertThat(histogram.percentile(1.0)).isEqualTo(millisToNanos(100));
+    }
+
+    @Test
+    void testPercentile_WhenSingleValue_ShouldNotExceedMax() {
+        KeywordStatistics.Histogram histogram = new KeywordStatistics.Histogram();
+        histogram.record(1_000_001L);
+        histogram.record(-5L);
+
+        assertThat(histogram.percentile(0.99)).isEqualTo(1_000_001L);
+        assertThat(histogram.percentile(0.50)).isEqualTo(0L);
+        assertThat(new KeywordStatistics.Histogram().percentile(0.5)).isEqualTo(0L);
+    }
+
+    @Test
+    void testWriteCsv_ShouldWriteOneSortedLinePerKeyword() throws IOException {
+        KeywordStatistics statistics = new KeywordStatistics();
+        assertThat(statistics.isEmpty()).isTrue();
+        statistics.record("openBrowser", millisToNanos(3));
+        statistics.record("click", millisToNanos(2));
+        statistics.record("click", millisToNanos(4));
+        File file = File.createTempFile("keyword-statistics", ".csv");
+        try {
+            statistics.writeCsv(file);
+
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            assertThat(lines).hasSize(3);
+            assertThat(lines.get(0)).isEqualTo("keyword,count,total_ms,mean_ms,p50_ms,p95_ms,p99_ms,max_ms");
+            assertThat(lines.get(1)).startsWith("click,2,6.000,3.000,").endsWith(",4.000");
+            assertThat(lines.get(2)).isEqualTo("openBrowser,1,3.000,3.000,3.000,3.000,3.000,3.000");
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    private static long millisToNanos(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -0,0 +1,123 @@
+package com.rise.autotest.robot.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.python.util.PythonInterpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class PythonInterpreterPoolTest {
+
+    private final AtomicInteger created = new AtomicInteger();
+    private final List<PythonInterpreter> interpreters = new ArrayList<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testExecute_WhenAllBusy_ShouldNotCreateMoreThanMaxSize() throws Exception {
+        PythonInterpreterPool pool = new PythonInterpreterPool(2, this::newInterpreter);
+        CountDownLatch busy = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> first = executor.submit(() -> pool.execute(interpreter -> hold(busy, release)));
+        Future<?> second = executor.submit(() -> pool.execute(interpreter -> hold(busy, release)));
+        assertThat(busy.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<PythonInterpreter> third = executor.submit(() -> pool.execute(interpreter -> interpreter));
+
+        assertThatExceptionOfType(TimeoutException.class).isThrownBy(() -> third.get(300, TimeUnit.MILLISECONDS));
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertThat(third.get(5, TimeUnit.SECONDS)).isIn(interpreters);
+        assertThat(created.get()).isEqualTo(2);
+    }
+
+    @Test
+    void testExecute_ShouldReuseIdleInterpreter() {
+        PythonInterpreterPool pool = new PythonInterpreterPool(2, this::newInterpreter);
+
+        PythonInterpreter first = pool.execute(interpreter -> interpreter);
+        PythonInterpreter second = pool.execute(interpreter -> interpreter);
+
+        assertThat(second).isSameAs(first);
+        assertThat(created.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testWarmUp_ShouldCreateOneInterpreterInBackground() throws Exception {
+        PythonInterpreterPool pool = new PythonInterpreterPool(1, this::newInterpreter);
+
+        pool.warmUp();
+        pool.warmUp();
+        PythonInterpreter used = executor.submit(() -> pool.execute(interpreter -> interpreter))
+                .get(5, TimeUnit.SECONDS);
+        pool.warmUp();
+
+        assertThat(created.get()).isEqualTo(1);
+        assertThat(used).isSameAs(interpreters.get(0));
+    }
+
+    @Test
+    void testClose_ShouldDropIdleInterpretersWithoutClosingThem() {
+        PythonInterpreterPool pool = new PythonInterpreterPool(1, this::newInterpreter);
+        PythonInterpreter first = pool.execute(interpreter -> interpreter);
+
+        pool.close();
+        PythonInterpreter second = pool.execute(interpreter -> interpreter);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(created.get()).isEqualTo(2);
+        verify(first, never()).close();
+        verify(first, never()).cleanup();
+    }
+
+    @Test
+    void testExecute_WhenCreationFails_ShouldReleaseTheReservation() {
+        PythonInterpreterPool pool = new PythonInterpreterPool(1, () -> {
+            if (created.getAndIncrement() == 0) {
+                throw new IllegalStateException("jython failed");
+            }
+            return mock(PythonInterpreter.class);
+        });
+
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> pool.execute(interpreter -> interpreter));
+        PythonInterpreter interpreter = pool.execute(borrowed -> borrowed);
+
+        assertThat(interpreter).isNotNull();
+    }
+
+    private synchronized PythonInterpreter newInterpreter() {
+        created.incrementAndGet();
+        PythonInterpreter interpreter = mock(PythonInterpreter.class);
+        interpreters.add(interpreter);
+        return interpreter;
+    }
+
+    private static Object hold(CountDownLatch busy, CountDownLatch release) {
+        busy.countDown();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,47 @@
+package com.rise.autotest.robot.util;
+
+/**
+ * Compares the cost of the short log messages of a keyword, written immediately and in the buffered mode (see
+ * {@link RobotLogger#setAsync(boolean)}), times per keyword. Runs as described in {@link AlternatingBenchmark}, with
+ * the arguments [rounds] [messages per keyword].<br>
+ * <br>
+ * Outside of a robot execution, robot drops the messages after the interpreter call, which is the part the buffered
+ * mode saves.
+ */
+public final class RobotLoggerBenchmark {
+
+    private static final int KEYWORDS = 50;
+
+    private RobotLoggerBenchmark() {
+
+    }
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int messages = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        RobotLogger.open();
+        try {
+            new AlternatingBenchmark(5, rounds, KEYWORDS)
+                    .variant("immediate", () -> keywords(false, messages))
+                    .variant("buffered", () -> keywords(true, messages))
+                    .runAndPrint(System.out);
+        } finally {
+            RobotLogger.setAsync(false);
+            RobotLogger.close();
+        }
+    }
+
+    private static void keywords(boolean async, int messages) {
+        RobotLogger.setAsync(async);
+        for (int keyword = 0; keyword < KEYWORDS; keyword++) {
+            RobotLogger.startKeyword();
+            try {
+                for (int message = 0; message < messages; message++) {
+                    RobotLogger.info("Clicking element 'id=submit-" + message + "'");
+                }
+            } finally {
+                RobotLogger.endKeyword();
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.rise.autotest.robot.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.python.util.PythonInterpreter;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+class RobotLoggerTest {
+
+    private final PythonInterpreter interpreter = mock(PythonInterpreter.class);
+    private PythonInterpreterPool previous;
+
+    @BeforeEach
+    void useMockInterpreter() {
+        previous = RobotLogger.setInterpreters(new PythonInterpreterPool(1, () -> interpreter));
+        RobotLogger.setAsync(true);
+    }
+
+    @AfterEach
+    void restore() {
+        RobotLogger.setAsync(false);
+        RobotLogger.setInterpreters(previous);
+    }
+
+    @Test
+    void testInfo_WhenInKeyword_ShouldWriteAtTheEndOfTheKeyword() {
+        RobotLogger.startKeyword();
+        RobotLogger.info("first");
+        RobotLogger.warn("it's");
+
+        verifyZeroInteractions(interpreter);
+        RobotLogger.endKeyword();
+
+        verify(interpreter).exec("logger.info('first')\nlogger.info('it\\'s')\n");
+    }
+
+    @Test
+    void testInfo_WhenLongMessage_ShouldWriteTheBufferedMessagesFirst() {
+        char[] chars = new char[2000];
+        Arrays.fill(chars, 'x');
+        String longMessage = new String(chars);
+
+        RobotLogger.startKeyword();
+        RobotLogger.info("before");
+        RobotLogger.info(longMessage);
+        RobotLogger.info("after");
+        RobotLogger.endKeyword();
+
+        InOrder inOrder = inOrder(interpreter);
+        inOrder.verify(interpreter).exec("logger.info('before')\n");
+        inOrder.verify(interpreter).set(anyString(), eq((Object) longMessage));
+        inOrder.verify(interpreter).exec(startsWith("try:"));
+        inOrder.verify(interpreter).exec("logger.info('after')\n");
+    }
+
+    @Test
+    void testInfo_WhenManyMessages_ShouldWriteEvery256() {
+        RobotLogger.startKeyword();
+        for (int i = 0; i < 255; i++) {
+            RobotLogger.info("m");
+        }
+        verifyZeroInteractions(interpreter);
+        RobotLogger.info("m");
+
+        ArgumentCaptor<String> script = ArgumentCaptor.forClass(String.class);
+        verify(interpreter).exec(script.capture());
+        assertThat(script.getValue().split("\n")).hasSize(256);
+        RobotLogger.endKeyword();
+        verify(interpreter, times(1)).exec(anyString());
+    }
+
+    @Test
+    void testInfo_WhenLargeMessages_ShouldWriteEvery64kChars() {
+        char[] chars = new char[1000];
+        Arrays.fill(chars, 'x');
+        String message = new String(chars);
+
+        // 1016 chars per command, the 65th reaches 64k
+        RobotLogger.startKeyword();
+        for (int i = 0; i < 64; i++) {
+            RobotLogger.info(message);
+        }
+        verifyZeroInteractions(interpreter);
+        RobotLogger.info(message);
+
+        ArgumentCaptor<String> script = ArgumentCaptor.forClass(String.class);
+        verify(interpreter).exec(script.capture());
+        assertThat(script.getValue().split("\n")).hasSize(65);
+        RobotLogger.endKeyword();
+    }
+
+    @Test
+    void testEndKeyword_WhenNested_ShouldWriteAtEachEndAndLogImmediatelyAfterTheOuterOne() {
+        RobotLogger.startKeyword();
+        RobotLogger.info("outer");
+        RobotLogger.startKeyword();
+        RobotLogger.info("inner");
+        verifyZeroInteractions(interpreter);
+        RobotLogger.endKeyword();
+        verify(interpreter).exec("logger.info('outer')\nlogger.info('inner')\n");
+        RobotLogger.info("outer again");
+        verify(interpreter, never()).exec("logger.info('outer again')\n");
+        RobotLogger.endKeyword();
+        verify(interpreter).exec("logger.info('outer again')\n");
+
+        RobotLogger.info("outside");
+
+        verify(interpreter).exec("logger.info('outside')");
+    }
+
+    @Test
+    void testInfo_WhenNotInKeyword_ShouldWriteImmediately() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        RobotLogger.startKeyword();
+        try {
+            executor.submit(() -> RobotLogger.info("launcher")).get(5, TimeUnit.SECONDS);
+
+            verify(interpreter).exec("logger.info('launcher')");
+        } finally {
+            RobotLogger.endKeyword();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSetAsync_WhenDisabled_ShouldWriteTheBufferedMessages() {
+        RobotLogger.startKeyword();
+        try {
+            RobotLogger.info("buffered");
+            verifyZeroInteractions(interpreter);
+
+            RobotLogger.setAsync(false);
+            verify(interpreter).exec("logger.info('buffered')\n");
+
+            RobotLogger.info("immediate");
+            verify(interpreter).exec("logger.info('immediate')");
+        } finally {
+            RobotLogger.endKeyword();
+        }
+    }
+}